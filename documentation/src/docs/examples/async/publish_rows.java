@@ -0,0 +1,22 @@
+PGFlow.Publisher<String> names = connection.unwrap(PGConnection.class)
+    .publish("SELECT name FROM a_table WHERE id > ?", (rs, rowNumber) -> rs.getString(1), 100); // <1>
+
+names.subscribe(new PGFlow.Subscriber<String>() {
+
+  PGFlow.Subscription subscription;
+
+  public void onSubscribe(PGFlow.Subscription subscription) {
+    this.subscription = subscription;
+    subscription.request(50); // <2>
+  }
+
+  public void onNext(String name) {
+    // process name, then request more
+    subscription.request(1);
+  }
+
+  public void onError(Throwable error) { }
+
+  public void onComplete() { }
+
+});
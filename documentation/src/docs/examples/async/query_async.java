@@ -0,0 +1,15 @@
+PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+CompletionStage<Long> inserted = pgConnection.executeAsync("INSERT INTO a_table VALUES (?, ?)", 1, "one"); // <1>
+
+pgConnection.queryAsync("SELECT name FROM a_table WHERE id = ?", 1) // <2>
+    .thenAccept(resultSet -> {
+      try (ResultSet rs = resultSet) {
+        while (rs.next()) {
+          String name = rs.getString(1);
+        }
+      }
+      catch (SQLException e) {
+        // handle error
+      }
+    });
@@ -0,0 +1,6 @@
+try (PGCopyWriter writer = connection.unwrap(PGConnection.class).copyIn("a_table", "id", "name")) { // <1>
+  for (Item item : items) {
+    writer.writeLong(item.getId()).writeString(item.getName()); // <2>
+  }
+  long rowsCopied = writer.finish(); // <3>
+}
@@ -0,0 +1,6 @@
+try (PGCopyReader reader = connection.unwrap(PGConnection.class).copyOut("SELECT id, name FROM a_table")) { // <1>
+  while (reader.next()) { // <2>
+    long id = reader.getLong(1);
+    String name = reader.getString(2);
+  }
+}
@@ -1,5 +1,5 @@
 
-public class Address implements SQLData {
+public class Address implements SQLData, BinaryRecordData {
   private static final String TYPE_NAME = "public.address";
 
   private String street;
@@ -62,6 +62,26 @@ public class Address implements SQLData {
     out.writeString(this.state);
     out.writeString(this.zip);
   }
+
+  @Override
+  public void readRecord(BinaryRecordData.Reader in) throws IOException {
+    if (in.readAttributeCount() != 4) {
+      throw new IOException("Unexpected attribute count for " + TYPE_NAME);
+    }
+    this.street = in.readAttribute(String.class);
+    this.city = in.readAttribute(String.class);
+    this.state = in.readAttribute(String.class);
+    this.zip = in.readAttribute(String.class);
+  }
+
+  @Override
+  public void writeRecord(BinaryRecordData.Writer out) throws IOException {
+    out.writeAttributeCount(4);
+    out.writeAttribute("text", this.street);
+    out.writeAttribute("text", this.city);
+    out.writeAttribute("bpchar", this.state);
+    out.writeAttribute("bpchar", this.zip);
+  }
 }
 
 public enum Title {
@@ -29,6 +29,7 @@ val testTask = tasks.named<Test>("test") {
      "**/RequiredTests.*",
      "**/DateTimeTests.*",
      "**/PerformanceTest.*",
+     "**/VirtualThreadPerformanceTest.*",
      "**/GiantBlobTest.*",
      "**/ServerDisconnectTest.*"
   )
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.api.data;
+
+import java.io.IOException;
+import java.sql.SQLData;
+
+/**
+ * Custom type that reads &amp; writes its attributes directly from &amp; to the
+ * binary record format.
+ *
+ * The record procs use these methods, in place of building a {@link java.sql.Struct}
+ * and calling {@link SQLData#readSQL} or {@link SQLData#writeSQL}, whenever
+ * the custom type is the target of a binary decode or the value being binary
+ * encoded. Implementations are generated by the UDT generator.
+ */
+public interface BinaryRecordData extends SQLData {
+
+  void readRecord(Reader in) throws IOException;
+
+  void writeRecord(Writer out) throws IOException;
+
+  /**
+   * Reads attributes from a binary record.
+   */
+  interface Reader {
+
+    int readAttributeCount();
+
+    /**
+     * Reads the next attribute's value.
+     *
+     * @param targetClass Class of the value to decode
+     * @return Decoded value or null if the attribute is null
+     * @throws IOException If an error occurs decoding the attribute
+     */
+    <T> T readAttribute(Class<T> targetClass) throws IOException;
+
+  }
+
+  /**
+   * Writes attributes to a binary record.
+   */
+  interface Writer {
+
+    void writeAttributeCount(int count);
+
+    /**
+     * Writes the next attribute's value.
+     *
+     * @param typeName Name of the attribute's type (anything accepted by the server)
+     * @param value Value of the attribute or null
+     * @throws IOException If the type cannot be found or an error occurs encoding the attribute
+     */
+    void writeAttribute(String typeName, Object value) throws IOException;
+
+  }
+
+}
@@ -30,8 +30,10 @@ package com.impossibl.postgres.api.jdbc;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Public API for PGConnection
@@ -165,4 +167,88 @@ public interface PGConnection extends Connection {
    */
   void copyTo(String sql, OutputStream outputStream) throws SQLException;
 
+  /**
+   * Allows issuing PostgreSQL's COPY command providing a {@link WritableByteChannel}
+   * to write to. Data is written directly from the connection's receive buffers,
+   * without copying it into intermediate arrays.
+   *
+   * @param sql SQL text for a valid <code>COPY ... TO STDOUT</code> command.
+   * @param channel {@link WritableByteChannel} to write data in <code>COPY</code> format.
+   * @throws SQLException If an error occurs during the copy operation or if an alternate command is provided.
+   */
+  void copyTo(String sql, WritableByteChannel channel) throws SQLException;
+
+  /**
+   * Starts a binary <code>COPY ... FROM STDIN</code> into the given table,
+   * returning a writer that encodes typed rows directly into the copy data.
+   *
+   * @param table Name of the table to copy into (quoted as necessary).
+   * @param columns Columns that will be written for each row, or none for all columns in table order.
+   * @return Writer for the copy's rows; it must be finished or closed before the connection is used again.
+   * @throws SQLException If the table or columns cannot be resolved or the copy cannot be started.
+   */
+  PGCopyWriter copyIn(String table, String... columns) throws SQLException;
+
+  /**
+   * Starts a binary <code>COPY ... TO STDOUT</code> of the given query's
+   * results, returning a cursor that decodes typed rows directly from the
+   * copy data.
+   *
+   * @param sql SQL text of a query (anything accepted by <code>COPY (query) TO STDOUT</code>).
+   * @return Reader for the copy's rows; it must be read completely or closed before the connection is used again.
+   * @throws SQLException If the query cannot be described or the copy cannot be started.
+   */
+  PGCopyReader copyOut(String sql) throws SQLException;
+
+  /**
+   * Executes a query without blocking the calling thread. Any number of
+   * asynchronous queries may be outstanding on the connection; they are
+   * pipelined and executed in the order they were issued.
+   *
+   * Parameters are referenced in the SQL text using <code>?</code> (or
+   * <code>$n</code>) and their types are inferred from their values. The
+   * returned stage is never completed on the connection's I/O thread.
+   *
+   * @param sql SQL text of the query.
+   * @param parameters Values for the query's parameters.
+   * @return Stage completed with the query's (fully materialized) results, or
+   *         exceptionally with an {@link SQLException}.
+   * @throws SQLException If the connection is closed.
+   */
+  CompletionStage<PGResultSet> queryAsync(String sql, Object... parameters) throws SQLException;
+
+  /**
+   * Executes an update without blocking the calling thread; see
+   * {@link #queryAsync(String, Object...)}.
+   *
+   * @param sql SQL text of the update.
+   * @param parameters Values for the update's parameters.
+   * @return Stage completed with the number of rows affected, or
+   *         exceptionally with an {@link SQLException}.
+   * @throws SQLException If the connection is closed.
+   */
+  CompletionStage<Long> executeAsync(String sql, Object... parameters) throws SQLException;
+
+  /**
+   * Creates a publisher of a query's rows, mapped using the given mapper.
+   *
+   * Each subscription executes the query, fetching rows from the server
+   * only as they are requested by the subscriber; no more rows than are
+   * outstanding (limited by the default fetch size) are buffered at a time.
+   * Cancelling a subscription closes the query's portal. Signals are never
+   * delivered on the connection's I/O thread.
+   *
+   * Parameters are referenced in the SQL text using <code>?</code> (or
+   * <code>$n</code>) and their types are inferred from their values.
+   *
+   * @param sql SQL text of the query.
+   * @param mapper Mapper used to produce an item from each row; the result set
+   *               provided is a read-only view only valid during the call.
+   * @param parameters Values for the query's parameters.
+   * @param <T> Type of published items.
+   * @return Publisher of the query's mapped rows.
+   * @throws SQLException If the connection is closed.
+   */
+  <T> PGFlow.Publisher<T> publish(String sql, RowMapper<T> mapper, Object... parameters) throws SQLException;
+
 }
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.api.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Reads typed rows produced by PostgreSQL's binary <code>COPY</code>
+ * format.
+ *
+ * The reader is a forward only cursor; it is positioned before the first
+ * row and {@link #next()} must be called to move to each row. Column values
+ * are decoded with the binary decoder of the column's type, directly from
+ * the received copy data.
+ *
+ * The connection cannot be used for anything else until all rows have been
+ * read or the reader is closed. Closing a reader before all rows have been
+ * read discards the remaining rows.
+ */
+public interface PGCopyReader extends AutoCloseable {
+
+  /**
+   * Retrieves the number of columns in each row.
+   *
+   * @return Number of columns
+   */
+  int getColumnCount();
+
+  /**
+   * Retrieves the name of a column.
+   *
+   * @param column Column index (starting at 1)
+   * @return Name of the column
+   * @throws SQLException If the column index is invalid
+   */
+  String getColumnName(int column) throws SQLException;
+
+  /**
+   * Moves to the next row.
+   *
+   * @return <code>true</code> if positioned on a row, <code>false</code> if all rows have been read
+   * @throws SQLException If an error occurs reading the row or the copy fails
+   */
+  boolean next() throws SQLException;
+
+  /**
+   * Reports whether the last column value read was <code>NULL</code>.
+   *
+   * @return <code>true</code> if the last value read was <code>NULL</code>
+   */
+  boolean wasNull();
+
+  boolean getBoolean(int column) throws SQLException;
+
+  short getShort(int column) throws SQLException;
+
+  int getInt(int column) throws SQLException;
+
+  long getLong(int column) throws SQLException;
+
+  float getFloat(int column) throws SQLException;
+
+  double getDouble(int column) throws SQLException;
+
+  String getString(int column) throws SQLException;
+
+  byte[] getBytes(int column) throws SQLException;
+
+  Object getObject(int column) throws SQLException;
+
+  <T> T getObject(int column, Class<T> type) throws SQLException;
+
+  /**
+   * Retrieves the number of rows read so far.
+   *
+   * @return Number of rows read
+   */
+  long getRowCount();
+
+  /**
+   * Discards any unread rows and releases the connection.
+   *
+   * @throws SQLException If an error occurs completing the copy
+   */
+  @Override
+  void close() throws SQLException;
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.api.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Writes typed rows to a table using PostgreSQL's binary <code>COPY</code>
+ * format.
+ *
+ * Values are written column by column, in the order the columns were
+ * given to {@link PGConnection#copyIn(String, String...)}; a new row is
+ * started automatically after the last column of the previous row. Each
+ * value is encoded with the binary encoder of its column's type.
+ *
+ * The connection cannot be used for anything else until the writer is
+ * finished or closed. Closing a writer that has not been finished aborts
+ * the copy, discarding all rows written.
+ */
+public interface PGCopyWriter extends AutoCloseable {
+
+  /**
+   * Writes a <code>NULL</code> value for the next column.
+   *
+   * @return This writer
+   * @throws SQLException If an error occurs writing the value
+   */
+  PGCopyWriter writeNull() throws SQLException;
+
+  PGCopyWriter writeBoolean(boolean value) throws SQLException;
+
+  PGCopyWriter writeShort(short value) throws SQLException;
+
+  PGCopyWriter writeInt(int value) throws SQLException;
+
+  PGCopyWriter writeLong(long value) throws SQLException;
+
+  PGCopyWriter writeFloat(float value) throws SQLException;
+
+  PGCopyWriter writeDouble(double value) throws SQLException;
+
+  PGCopyWriter writeString(String value) throws SQLException;
+
+  PGCopyWriter writeBytes(byte[] value) throws SQLException;
+
+  /**
+   * Writes a value for the next column, converting it as needed to the
+   * column's type.
+   *
+   * @param value Value to write or <code>null</code>
+   * @return This writer
+   * @throws SQLException If the value cannot be converted or an error occurs writing it
+   */
+  PGCopyWriter writeObject(Object value) throws SQLException;
+
+  /**
+   * Completes the copy, after the last column of the final row has been written.
+   *
+   * @return Number of rows copied
+   * @throws SQLException If a row is incomplete or the server rejects the copied data
+   */
+  long finish() throws SQLException;
+
+  /**
+   * Aborts the copy if it has not been finished and releases the connection.
+   *
+   * @throws SQLException If an error occurs aborting the copy
+   */
+  @Override
+  void close() throws SQLException;
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.api.jdbc;
+
+/**
+ * Interfaces for demand driven (reactive) publication of results.
+ *
+ * The interfaces, and the rules that govern them, are identical to
+ * those of the <a href="https://www.reactive-streams.org">Reactive Streams</a>
+ * specification (and {@code java.util.concurrent.Flow}); they are
+ * provided here so the driver can continue to target Java 8 without
+ * additional dependencies. Adapting them to either is a matter of
+ * delegating each method.
+ */
+public final class PGFlow {
+
+  private PGFlow() {
+  }
+
+  /**
+   * Producer of items received by {@link Subscriber}s.
+   *
+   * @param <T> Type of published items
+   */
+  @FunctionalInterface
+  public interface Publisher<T> {
+
+    /**
+     * Adds the given subscriber. The subscriber is always signalled
+     * {@link Subscriber#onSubscribe(Subscription)} first, followed by
+     * items as they are requested and finally a single completion or
+     * error signal.
+     *
+     * @param subscriber Subscriber to receive items
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+
+  }
+
+  /**
+   * Receiver of items from a {@link Publisher}. Signals are never
+   * delivered concurrently.
+   *
+   * @param <T> Type of received items
+   */
+  public interface Subscriber<T> {
+
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+
+  }
+
+  /**
+   * Link between a {@link Publisher} and one of its {@link Subscriber}s.
+   */
+  public interface Subscription {
+
+    /**
+     * Adds demand for the given number of items.
+     *
+     * @param n Number of additional items requested; must be positive
+     */
+    void request(long n);
+
+    /**
+     * Stops publication of items, releasing any associated resources.
+     */
+    void cancel();
+
+  }
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.api.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+/**
+ * Public API for PGResultSet
+ */
+public interface PGResultSet extends ResultSet {
+
+  /**
+   * Creates a spliterator that maps each remaining row of the result set
+   * using the provided mapper. The result set's cursor is consumed by this
+   * call; afterwards it is positioned after the last row.
+   *
+   * When all the result set's rows have been received from the server
+   * (e.g. no fetch size was specified) the returned spliterator is sized and
+   * can be split; when used with a parallel stream, chunks of rows are decoded
+   * and mapped concurrently on the stream's worker threads while the encounter
+   * order of rows is preserved. Otherwise rows are mapped sequentially as they
+   * are fetched.
+   *
+   * The result set must remain open while the spliterator is traversed.
+   * {@link SQLException}s thrown during traversal are reported wrapped in an
+   * {@link UncheckedSQLException}.
+   *
+   * @param mapper Row mapper to apply to each row
+   * @param <T> Type of mapped row object
+   * @return Spliterator of mapped rows
+   * @throws SQLException If the result set is closed
+   */
+  <T> Spliterator<T> spliterator(RowMapper<T> mapper) throws SQLException;
+
+  /**
+   * Creates a sequential stream that maps each remaining row of the result
+   * set using the provided mapper.
+   *
+   * The stream is backed by {@link #spliterator(RowMapper)}; rows still
+   * held by the server (e.g. when a fetch size was specified) are only
+   * fetched as the stream's consumers demand them. Closing the stream closes
+   * the result set, releasing its rows and any open portal. Buffered result
+   * sets can be decoded in parallel by calling {@link Stream#parallel()}.
+   *
+   * @param mapper Row mapper to apply to each row
+   * @param <T> Type of mapped row object
+   * @return Stream of mapped rows
+   * @throws SQLException If the result set is closed
+   */
+  <T> Stream<T> stream(RowMapper<T> mapper) throws SQLException;
+
+  /**
+   * Enables deduplication of the strings retrieved from a column via
+   * {@link #getString(int)}.
+   *
+   * Equal values share a single {@link String} instance that, after the
+   * first occurrence, is found using the value's received bytes without
+   * decoding them. Intended for low-cardinality columns (e.g. status codes
+   * or country names); for columns with many distinct values it only
+   * adds overhead.
+   *
+   * Columns that are not decoded as strings (e.g. numbers or dates) are
+   * unaffected.
+   *
+   * @param columnIndex Index of column to deduplicate
+   * @throws SQLException If the result set is closed or the column index is invalid
+   */
+  void deduplicateStrings(int columnIndex) throws SQLException;
+
+}
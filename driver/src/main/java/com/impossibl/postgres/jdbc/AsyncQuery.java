@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.protocol.FieldFormat;
+import com.impossibl.postgres.protocol.Notice;
+import com.impossibl.postgres.protocol.RequestExecutor;
+import com.impossibl.postgres.protocol.ResultBatch;
+import com.impossibl.postgres.protocol.ResultField;
+import com.impossibl.postgres.protocol.RowDataSet;
+import com.impossibl.postgres.protocol.TransactionStatus;
+import com.impossibl.postgres.protocol.TypeRef;
+import com.impossibl.postgres.types.Type;
+
+import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
+import static com.impossibl.postgres.jdbc.JDBCTypeMapping.getSQLType;
+import static com.impossibl.postgres.jdbc.Unwrapping.unwrapObject;
+import static com.impossibl.postgres.protocol.FieldFormat.Text;
+import static com.impossibl.postgres.protocol.ResultBatches.transformFieldTypes;
+import static com.impossibl.postgres.system.Empty.EMPTY_FORMATS;
+import static com.impossibl.postgres.utils.Nulls.firstNonNull;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import io.netty.buffer.ByteBuf;
+
+import static io.netty.buffer.ByteBufUtil.writeUtf8;
+import static io.netty.util.ReferenceCountUtil.release;
+import static io.netty.util.ReferenceCountUtil.retain;
+
+/**
+ * Executes queries without blocking the calling thread.
+ *
+ * Queries are sent using the extended query protocol, with parameters encoded
+ * on the calling thread, and completed from the connection's
+ * {@link RequestExecutor} callbacks; any number of queries can be in flight on
+ * a connection at once. Results are materialized, and the returned stages
+ * completed, on the common {@link ForkJoinPool}, never on the connection's
+ * I/O thread (resolving result types may require querying the server).
+ */
+class AsyncQuery implements RequestExecutor.ExtendedQueryHandler {
+
+  private static final Executor COMPLETION_EXECUTOR = ForkJoinPool.commonPool();
+
+  private final CompletableFuture<ResultBatch> completed = new CompletableFuture<>();
+  private ResultBatch resultBatch;
+
+  private AsyncQuery() {
+  }
+
+  static CompletionStage<com.impossibl.postgres.api.jdbc.PGResultSet> query(PGDirectConnection connection, String sql, Object[] parameters) {
+    return start(connection, sql, parameters)
+        .thenApplyAsync(resultBatch -> createResultSet(connection, resultBatch), COMPLETION_EXECUTOR);
+  }
+
+  static CompletionStage<Long> execute(PGDirectConnection connection, String sql, Object[] parameters) {
+    return start(connection, sql, parameters)
+        .thenApplyAsync(resultBatch -> {
+          try {
+            return firstNonNull(resultBatch.getRowsAffected(), 0L);
+          }
+          finally {
+            resultBatch.release();
+          }
+        }, COMPLETION_EXECUTOR);
+  }
+
+  private static CompletableFuture<ResultBatch> start(PGDirectConnection connection, String sql, Object[] parameters) {
+
+    AsyncQuery query = new AsyncQuery();
+
+    try {
+
+      Request request = Request.encode(connection, sql, parameters);
+
+      // Parameter buffers are owned by the query until it completes
+      query.completed.whenComplete((result, error) -> request.release());
+
+      try {
+        connection.execute((long timeout) -> {
+          connection.getRequestExecutor().query(request.sql, null, request.parameterTypes, null,
+              request.parameterFormats, request.parameterBuffers, EMPTY_FORMATS, 0, query);
+        });
+      }
+      catch (SQLException e) {
+        // Failed after submitting, the query's completion will report the failure
+        query.completed.completeExceptionally(e);
+      }
+
+    }
+    catch (SQLException e) {
+      query.completed.completeExceptionally(e);
+    }
+
+    return query.completed;
+  }
+
+  /**
+   * SQL text and encoded parameters of a query, ready to be submitted
+   * using the extended query protocol.
+   */
+  static class Request {
+
+    final String sql;
+    final TypeRef[] parameterTypes;
+    final FieldFormat[] parameterFormats;
+    final ByteBuf[] parameterBuffers;
+
+    private Request(String sql, TypeRef[] parameterTypes, FieldFormat[] parameterFormats, ByteBuf[] parameterBuffers) {
+      this.sql = sql;
+      this.parameterTypes = parameterTypes;
+      this.parameterFormats = parameterFormats;
+      this.parameterBuffers = parameterBuffers;
+    }
+
+    static Request encode(PGDirectConnection connection, String sql, Object[] parameters) throws SQLException {
+
+      ParsedSQLText sqlText = connection.parseSQL(sql).processEscapes(connection);
+
+      int parameterCount = sqlText.getParameterCount();
+      if (parameters.length != parameterCount) {
+        throw new SQLException("Incorrect parameter count, was " + parameters.length + ", expected: " + parameterCount);
+      }
+
+      TypeRef[] parameterTypes = new TypeRef[parameterCount];
+      FieldFormat[] parameterFormats = new FieldFormat[parameterCount];
+      ByteBuf[] parameterBuffers = new ByteBuf[parameterCount];
+
+      try {
+        for (int parameterIdx = 0; parameterIdx < parameterCount; ++parameterIdx) {
+          encodeParameter(connection, parameterIdx, parameters[parameterIdx], parameterTypes, parameterFormats, parameterBuffers);
+        }
+      }
+      catch (SQLException e) {
+        releaseAll(parameterBuffers);
+        throw e;
+      }
+
+      return new Request(sqlText.getText(), parameterTypes, parameterFormats, parameterBuffers);
+    }
+
+    void release() {
+      releaseAll(parameterBuffers);
+    }
+
+  }
+
+  /**
+   * Encodes a parameter using the type mapped from its value. Like inferred
+   * parameters of prepared statements, strings are sent untyped allowing the
+   * server to choose their type.
+   */
+  private static void encodeParameter(PGDirectConnection connection, int parameterIdx, Object parameter,
+                                      TypeRef[] parameterTypes, FieldFormat[] parameterFormats, ByteBuf[] parameterBuffers) throws SQLException {
+
+    Object value = unwrapObject(connection, parameter);
+    if (value == null) {
+      parameterFormats[parameterIdx] = Text;
+      return;
+    }
+
+    Type type = JDBCTypeMapping.getType(getSQLType(value), value, connection.getRegistry());
+    if (type == null) {
+      throw new PGSQLSimpleException("Unsupported parameter type: " + value.getClass().getName());
+    }
+
+    FieldFormat format = type.getCategory() == Type.Category.String ? Text : type.getParameterFormat();
+
+    parameterTypes[parameterIdx] = type.getCategory() != Type.Category.String ? type : null;
+    parameterFormats[parameterIdx] = format;
+
+    ByteBuf out = connection.getAllocator().buffer();
+    try {
+      switch (format) {
+        case Text: {
+          StringBuilder text = new StringBuilder();
+          type.getTextCodec().getEncoder().encode(connection, type, value, null, text);
+          writeUtf8(out, text);
+        }
+        break;
+
+        case Binary: {
+          type.getBinaryCodec().getEncoder().encode(connection, type, value, null, out);
+        }
+        break;
+      }
+
+      parameterBuffers[parameterIdx] = out;
+    }
+    catch (IOException e) {
+      out.release();
+      throw makeSQLException(e);
+    }
+  }
+
+  private static void releaseAll(ByteBuf[] buffers) {
+    for (ByteBuf buffer : buffers) {
+      release(buffer);
+    }
+  }
+
+  private static com.impossibl.postgres.api.jdbc.PGResultSet createResultSet(PGDirectConnection connection, ResultBatch resultBatch) {
+    try {
+      transformFieldTypes(resultBatch, connection.getRegistry()::resolve);
+
+      ResultField[] resultFields = resultBatch.getFields();
+      RowDataSet rows = firstNonNull(resultBatch.takeRows(), new RowDataSet(0));
+
+      PGStatement statement = connection.createStatement();
+      statement.closeOnCompletion();
+
+      return statement.createResultSet(resultFields, rows, true, connection.getTypeMap());
+    }
+    catch (IOException e) {
+      throw new CompletionException(makeSQLException(e));
+    }
+    catch (SQLException e) {
+      throw new CompletionException(e);
+    }
+    finally {
+      resultBatch.release();
+    }
+  }
+
+  /*
+   * Request callbacks (called on the connection's I/O thread)
+   */
+
+  @Override
+  public void handleComplete(String command, Long rowsAffected, Long insertedOid, TypeRef[] parameterTypes, ResultField[] resultFields, RowDataSet rows, List<Notice> notices) {
+    resultBatch = new ResultBatch(command, rowsAffected, insertedOid, resultFields, retain(rows));
+  }
+
+  @Override
+  public void handleSuspend(TypeRef[] parameterTypes, ResultField[] resultFields, RowDataSet rows, List<Notice> notices) {
+    // Queries are executed without a row limit and never suspended
+    handleComplete(null, null, null, parameterTypes, resultFields, rows, notices);
+  }
+
+  @Override
+  public void handleReady(TransactionStatus transactionStatus) {
+    // Ownership of the batch passes to the future when it completes
+    if (!completed.complete(resultBatch)) {
+      releaseResultBatch();
+    }
+    resultBatch = null;
+  }
+
+  @Override
+  public void handleError(Throwable cause, List<Notice> notices) {
+    // Commands can complete and then fail (e.g. deferred constraints
+    // checked during the implicit commit)
+    SQLException error = cause instanceof Exception ? makeSQLException((Exception) cause) : new SQLException(cause);
+    completed.completeExceptionally(error);
+    releaseResultBatch();
+  }
+
+  private void releaseResultBatch() {
+    if (resultBatch != null) {
+      resultBatch.release();
+      resultBatch = null;
+    }
+  }
+
+}
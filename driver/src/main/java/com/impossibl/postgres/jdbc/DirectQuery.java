@@ -36,10 +36,12 @@ import com.impossibl.postgres.protocol.RequestExecutorHandlers.ExecuteResult;
 import com.impossibl.postgres.protocol.RequestExecutorHandlers.QueryResult;
 import com.impossibl.postgres.protocol.ResultBatch;
 import com.impossibl.postgres.protocol.ResultField;
+import com.impossibl.postgres.protocol.TypeRef;
 
 import static com.impossibl.postgres.jdbc.ErrorUtils.chainWarnings;
 import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
 import static com.impossibl.postgres.protocol.ResultBatches.transformFieldTypes;
+import static com.impossibl.postgres.system.Empty.EMPTY_TYPES;
 import static com.impossibl.postgres.utils.Nulls.firstNonNull;
 
 import java.io.IOException;
@@ -57,6 +59,8 @@ import io.netty.buffer.ByteBuf;
 public class DirectQuery implements Query {
 
   private String sql;
+  private String statementName;
+  private TypeRef[] parameterTypes;
   private FieldFormatRef[] parameterFormats;
   private ByteBuf[] parameterBuffers;
   private FieldFormatRef[] resultFieldFormats;
@@ -68,7 +72,13 @@ public class DirectQuery implements Query {
   private ResultField[] suspendedResultFields;
 
   DirectQuery(String sql, FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers, FieldFormatRef[] resultFieldFormats) {
+    this(sql, null, EMPTY_TYPES, parameterFormats, parameterBuffers, resultFieldFormats);
+  }
+
+  DirectQuery(String sql, String statementName, TypeRef[] parameterTypes, FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers, FieldFormatRef[] resultFieldFormats) {
     this.sql = sql;
+    this.statementName = statementName;
+    this.parameterTypes = parameterTypes;
     this.parameterFormats = parameterFormats;
     this.parameterBuffers = parameterBuffers;
     this.resultFieldFormats = resultFieldFormats;
@@ -109,6 +119,10 @@ public class DirectQuery implements Query {
     return parameterBuffers != null && parameterBuffers.length != 0;
   }
 
+  private boolean requiresParse() {
+    return statementName != null || parameterTypes.length != 0;
+  }
+
   private SQLWarning executeSimple(PGDirectConnection connection, String sql) throws SQLException {
 
     portalName = null;
@@ -146,7 +160,7 @@ public class DirectQuery implements Query {
 
     QueryResult result = connection.executeTimed(this.timeout, (timeout) -> {
       QueryResult handler = new QueryResult(!requiresPortal());
-      connection.getRequestExecutor().query(sql, portalName, parameterFormats, parameterBuffers, resultFieldFormats, maxRows, handler);
+      connection.getRequestExecutor().query(sql, statementName, parameterTypes, portalName, parameterFormats, parameterBuffers, resultFieldFormats, maxRows, handler);
       handler.await(timeout, MILLISECONDS);
       return handler;
     });
@@ -215,7 +229,7 @@ public class DirectQuery implements Query {
       }
 
 
-      if (requiresPortal() || hasParameters()) {
+      if (requiresPortal() || hasParameters() || requiresParse()) {
         return executeExtended(connection, sql);
       }
       else {
@@ -248,6 +262,7 @@ public class DirectQuery implements Query {
   public String toString() {
     return "DirectQuery{" +
         "sql='" + sql + '\'' +
+        ", statementName='" + statementName + '\'' +
         ", portalName='" + portalName + '\'' +
         ", status=" + status +
         '}';
@@ -34,6 +34,7 @@ public class Exceptions {
 
   public static final SQLException NOT_SUPPORTED = new SQLException("Operation not supported");
   public static final SQLException NOT_IMPLEMENTED = new SQLException("Operation not implemented");
+  public static final SQLException NOT_SUPPORTED_BY_SHARED_CONNECTION = new SQLException("Operation not supported by shared connections");
   public static final SQLException NOT_ALLOWED_ON_PREP_STMT = new SQLException("Operation not allowed on PreparedStatement");
   public static final SQLException INVALID_COMMAND_FOR_GENERATED_KEYS = new SQLException("SQL command does not support generated keys");
   public static final SQLException NO_RESULT_SET_AVAILABLE = new SQLException("No result set available");
@@ -44,6 +45,8 @@ public class Exceptions {
   public static final SQLException CLOSED_CONNECTION = new SQLException("Connection closed");
   public static final SQLException CLOSED_BLOB = new SQLException("Blob closed");
   public static final SQLException CLOSED_CLOB = new SQLException("Clob closed");
+  public static final SQLException CLOSED_COPY = new SQLException("Copy closed");
+  public static final SQLException COPY_IN_PROGRESS = new SQLException("Copy in progress");
   public static final SQLException INVALID_COLUMN_NAME = new SQLException("Invalid column name");
   public static final SQLException COLUMN_INDEX_OUT_OF_BOUNDS = new SQLException("Column index out of bounds");
   public static final SQLException ROW_INDEX_OUT_OF_BOUNDS = new SQLException("Row index out of bounds");
@@ -55,8 +55,6 @@ public interface Housekeeper {
 
     String getKind();
 
-    StackTraceElement[] getAllocationStackTrace();
-
   }
 
   /**
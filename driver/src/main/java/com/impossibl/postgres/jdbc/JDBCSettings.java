@@ -123,6 +123,18 @@ public class JDBCSettings {
   )
   public static final Setting<Integer> DEFAULT_FETCH_SIZE = Setting.declare();
 
+  @Setting.Info(
+      desc = "Enables or disables shared (multiplexed) connection mode.\n\n" +
+          "Shared connections can be used by any number of threads concurrently; independent statements are " +
+          "pipelined to the server in the order they are submitted. Shared connections are always in " +
+          "auto-commit mode and do not support transactions, fetching results in batches, <code>COPY</code>, " +
+          "query or network timeouts. The prepared statement cache is disabled for shared connections.",
+      def = "false",
+      name = "shared",
+      group = "jdbc"
+  )
+  public static final Setting<Boolean> SHARED = Setting.declare();
+
   @Setting.Info(
       desc = "Enables or disables the housekeeping system for leaked JDBC objects.",
       def = "true",
@@ -132,6 +144,42 @@ public class JDBCSettings {
   )
   public static final Setting<Boolean> HOUSEKEEPER = Setting.declare();
 
+  public enum LeakDetection {
+
+    @Setting.Description(
+        "Leaked objects are cleaned up without being reported."
+    )
+    DISABLED,
+
+    @Setting.Description(
+        "Leaked objects are reported. The allocation trace is captured for a sample of objects, " +
+        "see <code>housekeeper.leak-detection.sampling-interval</code>."
+    )
+    SAMPLED,
+
+    @Setting.Description(
+        "Leaked objects are reported with the allocation trace captured for every object."
+    )
+    PARANOID,
+  }
+
+  @Setting.Info(
+      desc = "Level of leak detection performed by the housekeeping system.",
+      def = "sampled",
+      name = "housekeeper.leak-detection",
+      group = "jdbc"
+  )
+  public static final Setting<LeakDetection> HOUSEKEEPER_LEAK_DETECTION = Setting.declare();
+
+  @Setting.Info(
+      desc = "Interval at which allocation traces are captured when using <code>sampled</code> leak detection.\n\n" +
+          "On average, one allocation in this many captures a trace.",
+      def = "128", min = 1,
+      name = "housekeeper.leak-detection.sampling-interval",
+      group = "jdbc"
+  )
+  public static final Setting<Integer> HOUSEKEEPER_LEAK_SAMPLING_INTERVAL = Setting.declare();
+
   @Setting.Info(
       desc = "Enables or disables sharing type registries between connections.",
       def = "true",
@@ -364,6 +364,12 @@ public class PGCallableStatement extends PGPreparedStatement implements Callable
     return true;
   }
 
+  @Override
+  boolean allowPrimitiveParameters() {
+    // Parameter indexes are remapped to the in-parameters
+    return false;
+  }
+
 
   @Override
   public void registerOutParameter(int parameterIndex, SQLType sqlType, int scale) throws SQLException {
@@ -0,0 +1,354 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.protocol.CopyFormat;
+import com.impossibl.postgres.protocol.FieldFormat;
+import com.impossibl.postgres.protocol.Notice;
+import com.impossibl.postgres.protocol.RequestExecutor.CopyOutHandler;
+import com.impossibl.postgres.protocol.RequestExecutor.CopyOutRows;
+import com.impossibl.postgres.protocol.ResultField;
+import com.impossibl.postgres.protocol.RowData;
+import com.impossibl.postgres.protocol.TransactionStatus;
+import com.impossibl.postgres.utils.Await;
+import com.impossibl.postgres.utils.BlockingReadTimeoutException;
+
+import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
+import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLWarningChain;
+import static com.impossibl.postgres.jdbc.Exceptions.CLOSED_COPY;
+import static com.impossibl.postgres.jdbc.Exceptions.COLUMN_INDEX_OUT_OF_BOUNDS;
+import static com.impossibl.postgres.utils.Nulls.firstNonNull;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * Binary <code>COPY ... TO STDOUT</code> reader.
+ *
+ * Rows are taken as they are received and their columns decoded on
+ * demand, using each column's binary decoder, directly from the copy
+ * data buffers.
+ */
+public class PGCopyReader implements com.impossibl.postgres.api.jdbc.PGCopyReader {
+
+  private PGDirectConnection connection;
+  private ResultField[] fields;
+  private CopyOutRows rows;
+  private RowData row;
+  private long rowCount;
+  private boolean nullFlag;
+  private CountDownLatch started;
+  private AtomicReference<Throwable> errorRef;
+  private boolean completed;
+  private boolean closed;
+
+  PGCopyReader(PGDirectConnection connection, ResultField[] fields) {
+    this.connection = connection;
+    this.fields = fields;
+    this.started = new CountDownLatch(1);
+    this.errorRef = new AtomicReference<>();
+  }
+
+  private class Handler implements CopyOutHandler {
+
+    @Override
+    public void handleStart(CopyFormat format, FieldFormat[] fieldFormats, CopyOutRows rows) {
+      PGCopyReader.this.rows = rows;
+      started.countDown();
+    }
+
+    @Override
+    public void handleComplete(Long rowsAffected) {
+    }
+
+    @Override
+    public void handleError(Throwable cause, List<Notice> notices) {
+      connection.addWarning(makeSQLWarningChain(notices));
+      errorRef.compareAndSet(null, cause);
+      started.countDown();
+    }
+
+    @Override
+    public void handleReady(TransactionStatus transactionStatus) {
+      started.countDown();
+    }
+
+  }
+
+  /**
+   * Issues the copy command and waits for the server to begin sending rows.
+   *
+   * @param sql Text of the <code>COPY ... TO STDOUT (FORMAT BINARY)</code> command
+   * @throws SQLException If the server rejects the command
+   */
+  void start(String sql) throws SQLException {
+
+    connection.execute(timeout -> {
+
+      connection.getRequestExecutor().copyOut(sql, new Handler());
+
+      Await.awaitUninterruptibly(timeout, MILLISECONDS, started::await);
+
+    });
+
+    checkError();
+
+    if (rows == null) {
+      release();
+      throw new SQLTimeoutException("Timeout waiting for copy to start");
+    }
+  }
+
+  private void checkClosed() throws SQLException {
+    if (closed) {
+      throw CLOSED_COPY;
+    }
+  }
+
+  private void checkError() throws SQLException {
+
+    Throwable error = errorRef.get();
+    if (error == null) {
+      return;
+    }
+
+    release();
+
+    if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    }
+    else if (error instanceof Error) {
+      throw (Error) error;
+    }
+    else {
+      throw makeSQLException((Exception) error);
+    }
+  }
+
+  private void release() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    releaseRow();
+    if (rows != null) {
+      rows.close();
+    }
+    connection.copyClosed(this);
+  }
+
+  private void releaseRow() {
+    if (row != null) {
+      ReferenceCountUtil.release(row);
+      row = null;
+    }
+  }
+
+  private int checkColumn(int column) throws SQLException {
+    checkClosed();
+
+    if (row == null) {
+      throw new SQLException("Not positioned on a row");
+    }
+
+    if (column < 1 || column > fields.length) {
+      throw COLUMN_INDEX_OUT_OF_BOUNDS;
+    }
+
+    return column - 1;
+  }
+
+  private Object get(int column, Class<?> targetClass) throws SQLException {
+
+    int columnIdx = checkColumn(column);
+
+    Object value;
+    try {
+      value = row.getField(columnIdx, fields[columnIdx], connection, targetClass, null);
+    }
+    catch (IOException e) {
+      throw new PGSQLSimpleException("Error decoding column", e);
+    }
+
+    nullFlag = value == null;
+    return value;
+  }
+
+  private <T> T getVal(int column, Class<T> targetClass) throws SQLException {
+    return targetClass.cast(get(column, targetClass));
+  }
+
+  @Override
+  public int getColumnCount() {
+    return fields.length;
+  }
+
+  @Override
+  public String getColumnName(int column) throws SQLException {
+
+    if (column < 1 || column > fields.length) {
+      throw COLUMN_INDEX_OUT_OF_BOUNDS;
+    }
+
+    return fields[column - 1].getName();
+  }
+
+  @Override
+  public boolean next() throws SQLException {
+    checkClosed();
+
+    releaseRow();
+
+    if (completed) {
+      return false;
+    }
+
+    try {
+      row = rows.take(connection.getNetworkTimeout());
+    }
+    catch (BlockingReadTimeoutException e) {
+      release();
+      throw new SQLTimeoutException(e);
+    }
+    catch (IOException e) {
+      release();
+      throw makeSQLException(e);
+    }
+
+    if (row == null) {
+      completed = true;
+      connection.copyClosed(this);
+      checkError();
+      return false;
+    }
+
+    rowCount += 1;
+
+    return true;
+  }
+
+  @Override
+  public boolean wasNull() {
+    return nullFlag;
+  }
+
+  @Override
+  public boolean getBoolean(int column) throws SQLException {
+    return firstNonNull(getVal(column, Boolean.class), false);
+  }
+
+  @Override
+  public short getShort(int column) throws SQLException {
+    return firstNonNull(getVal(column, Short.class), (short) 0);
+  }
+
+  @Override
+  public int getInt(int column) throws SQLException {
+    return firstNonNull(getVal(column, Integer.class), 0);
+  }
+
+  @Override
+  public long getLong(int column) throws SQLException {
+    return firstNonNull(getVal(column, Long.class), 0L);
+  }
+
+  @Override
+  public float getFloat(int column) throws SQLException {
+    return firstNonNull(getVal(column, Float.class), 0.0f);
+  }
+
+  @Override
+  public double getDouble(int column) throws SQLException {
+    return firstNonNull(getVal(column, Double.class), 0.0);
+  }
+
+  @Override
+  public String getString(int column) throws SQLException {
+    return getVal(column, String.class);
+  }
+
+  @Override
+  public byte[] getBytes(int column) throws SQLException {
+    return getVal(column, byte[].class);
+  }
+
+  @Override
+  public Object getObject(int column) throws SQLException {
+    return get(column, null);
+  }
+
+  @Override
+  public <T> T getObject(int column, Class<T> type) throws SQLException {
+    return getVal(column, type);
+  }
+
+  @Override
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  @Override
+  public void close() throws SQLException {
+
+    if (closed) {
+      return;
+    }
+
+    releaseRow();
+
+    if (!completed) {
+
+      // Discard remaining rows, waiting for the copy to complete
+      rows.close();
+
+      try {
+        while (rows.take(connection.getNetworkTimeout()) != null) {
+          // Nothing queued after close
+        }
+      }
+      catch (IOException e) {
+        release();
+        throw makeSQLException(e);
+      }
+
+      completed = true;
+    }
+
+    release();
+  }
+
+}
@@ -0,0 +1,436 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.jdbc.PGPreparedStatement.PrimitiveFormat;
+import com.impossibl.postgres.protocol.CopyFormat;
+import com.impossibl.postgres.protocol.FieldFormat;
+import com.impossibl.postgres.protocol.Notice;
+import com.impossibl.postgres.protocol.RequestExecutor.CopyInHandler;
+import com.impossibl.postgres.protocol.RequestExecutor.CopyInSink;
+import com.impossibl.postgres.protocol.TransactionStatus;
+import com.impossibl.postgres.system.NoticeException;
+import com.impossibl.postgres.types.Type;
+import com.impossibl.postgres.utils.Await;
+
+import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
+import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLWarningChain;
+import static com.impossibl.postgres.jdbc.Exceptions.CLOSED_COPY;
+import static com.impossibl.postgres.utils.ByteBufs.lengthEncodeBinary;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Binary <code>COPY ... FROM STDIN</code> writer.
+ *
+ * Rows are encoded directly into a single buffer, using each column's
+ * binary encoder, and handed to the connection as copy data whenever
+ * the buffer fills. Writing copy data blocks while the connection is not
+ * writable, so memory use is bounded regardless of the number of rows.
+ */
+public class PGCopyWriter implements com.impossibl.postgres.api.jdbc.PGCopyWriter {
+
+  private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
+  private static final int FLUSH_SIZE = 0x10000;
+
+  private PGDirectConnection connection;
+  private Type[] columnTypes;
+  private PrimitiveFormat[] columnPrimitiveFormats;
+  private ByteBuf buffer;
+  private int columnIdx;
+  private CopyInSink sink;
+  private CountDownLatch started;
+  private CountDownLatch completed;
+  private AtomicReference<Throwable> errorRef;
+  private volatile Long rowsAffected;
+  private boolean closed;
+
+  PGCopyWriter(PGDirectConnection connection, Type[] columnTypes) {
+    this.connection = connection;
+    this.columnTypes = columnTypes;
+    this.columnPrimitiveFormats = new PrimitiveFormat[columnTypes.length];
+    for (int columnIdx = 0; columnIdx < columnTypes.length; ++columnIdx) {
+      this.columnPrimitiveFormats[columnIdx] = PrimitiveFormat.of(columnTypes[columnIdx], FieldFormat.Binary);
+    }
+    this.started = new CountDownLatch(1);
+    this.completed = new CountDownLatch(1);
+    this.errorRef = new AtomicReference<>();
+  }
+
+  private class Handler implements CopyInHandler {
+
+    @Override
+    public void handleStart(CopyFormat format, FieldFormat[] fieldFormats, CopyInSink sink) {
+      PGCopyWriter.this.sink = sink;
+      started.countDown();
+    }
+
+    @Override
+    public void handleComplete(Long rowsAffected) {
+      PGCopyWriter.this.rowsAffected = rowsAffected;
+    }
+
+    @Override
+    public void handleError(Throwable cause, List<Notice> notices) {
+      connection.addWarning(makeSQLWarningChain(notices));
+      errorRef.compareAndSet(null, cause);
+      started.countDown();
+      // No ReadyForQuery follows when the connection is lost
+      completed.countDown();
+    }
+
+    @Override
+    public void handleReady(TransactionStatus transactionStatus) {
+      started.countDown();
+      completed.countDown();
+    }
+
+  }
+
+  /**
+   * Issues the copy command and waits for the server to accept data.
+   *
+   * @param sql Text of the <code>COPY ... FROM STDIN (FORMAT BINARY)</code> command
+   * @throws SQLException If the server rejects the command
+   */
+  void start(String sql) throws SQLException {
+
+    connection.execute(timeout -> {
+
+      connection.getRequestExecutor().copyIn(sql, new Handler());
+
+      Await.awaitUninterruptibly(timeout, MILLISECONDS, started::await);
+
+    });
+
+    checkError();
+
+    if (sink == null) {
+      release();
+      throw new SQLTimeoutException("Timeout waiting for copy to start");
+    }
+
+    buffer = connection.getAllocator().buffer(FLUSH_SIZE + 0x1000);
+    buffer.writeBytes(SIGNATURE);
+    buffer.writeInt(0);
+    buffer.writeInt(0);
+  }
+
+  private void checkClosed() throws SQLException {
+    if (closed) {
+      throw CLOSED_COPY;
+    }
+  }
+
+  private void checkError() throws SQLException {
+
+    Throwable error = errorRef.get();
+    if (error == null) {
+      return;
+    }
+
+    release();
+
+    throwError(error);
+  }
+
+  private static void throwError(Throwable error) throws SQLException {
+
+    if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    }
+    else if (error instanceof Error) {
+      throw (Error) error;
+    }
+    else {
+      throw makeSQLException((Exception) error);
+    }
+  }
+
+  private void release() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (buffer != null) {
+      buffer.release();
+      buffer = null;
+    }
+    connection.copyClosed(this);
+  }
+
+  /**
+   * Prepares to write the next column's value.
+   *
+   * @return Writer index to reset to if writing the value fails
+   */
+  private int beginValue() throws SQLException {
+    checkClosed();
+
+    int mark = buffer.writerIndex();
+    if (columnIdx == 0) {
+      buffer.writeShort(columnTypes.length);
+    }
+
+    return mark;
+  }
+
+  private PGCopyWriter endValue() throws SQLException {
+
+    if (++columnIdx == columnTypes.length) {
+      columnIdx = 0;
+    }
+
+    if (buffer.readableBytes() >= FLUSH_SIZE) {
+      flushBuffer();
+    }
+
+    return this;
+  }
+
+  private void flushBuffer() throws SQLException {
+
+    checkError();
+
+    try {
+      sink.write(buffer);
+    }
+    catch (IOException e) {
+      release();
+      throw makeSQLException(e);
+    }
+
+    buffer.clear();
+  }
+
+  private PGCopyWriter writeEncoded(Object value) throws SQLException {
+
+    int mark = beginValue();
+
+    Type type = columnTypes[columnIdx];
+    try {
+      lengthEncodeBinary(type.getBinaryCodec().getEncoder(), connection, type, value, null, buffer);
+    }
+    catch (IOException e) {
+      buffer.writerIndex(mark);
+      throw makeSQLException(e);
+    }
+    catch (RuntimeException e) {
+      buffer.writerIndex(mark);
+      throw e;
+    }
+
+    return endValue();
+  }
+
+  private PGCopyWriter writeIntegral(long value) throws SQLException {
+
+    PrimitiveFormat format = columnPrimitiveFormats[columnIdx];
+    if (format == null ||
+        (format == PrimitiveFormat.Int2 && (short) value != value) ||
+        (format == PrimitiveFormat.Int4 && (int) value != value)) {
+      return writeEncoded(value);
+    }
+
+    beginValue();
+
+    switch (format) {
+      case Int2:
+        buffer.writeInt(2);
+        buffer.writeShort((short) value);
+        break;
+      case Int4:
+        buffer.writeInt(4);
+        buffer.writeInt((int) value);
+        break;
+      case Int8:
+        buffer.writeInt(8);
+        buffer.writeLong(value);
+        break;
+      case Float4:
+        buffer.writeInt(4);
+        buffer.writeFloat((float) value);
+        break;
+      case Float8:
+        buffer.writeInt(8);
+        buffer.writeDouble((double) value);
+        break;
+    }
+
+    return endValue();
+  }
+
+  private PGCopyWriter writeFloating(double value) throws SQLException {
+
+    PrimitiveFormat format = columnPrimitiveFormats[columnIdx];
+    if (format != PrimitiveFormat.Float4 && format != PrimitiveFormat.Float8) {
+      return writeEncoded(value);
+    }
+
+    beginValue();
+
+    if (format == PrimitiveFormat.Float4) {
+      buffer.writeInt(4);
+      buffer.writeFloat((float) value);
+    }
+    else {
+      buffer.writeInt(8);
+      buffer.writeDouble(value);
+    }
+
+    return endValue();
+  }
+
+  @Override
+  public PGCopyWriter writeNull() throws SQLException {
+    beginValue();
+    buffer.writeInt(-1);
+    return endValue();
+  }
+
+  @Override
+  public PGCopyWriter writeBoolean(boolean value) throws SQLException {
+    return writeEncoded(value);
+  }
+
+  @Override
+  public PGCopyWriter writeShort(short value) throws SQLException {
+    checkClosed();
+    return writeIntegral(value);
+  }
+
+  @Override
+  public PGCopyWriter writeInt(int value) throws SQLException {
+    checkClosed();
+    return writeIntegral(value);
+  }
+
+  @Override
+  public PGCopyWriter writeLong(long value) throws SQLException {
+    checkClosed();
+    return writeIntegral(value);
+  }
+
+  @Override
+  public PGCopyWriter writeFloat(float value) throws SQLException {
+    checkClosed();
+    return writeFloating(value);
+  }
+
+  @Override
+  public PGCopyWriter writeDouble(double value) throws SQLException {
+    checkClosed();
+    return writeFloating(value);
+  }
+
+  @Override
+  public PGCopyWriter writeString(String value) throws SQLException {
+    return value != null ? writeEncoded(value) : writeNull();
+  }
+
+  @Override
+  public PGCopyWriter writeBytes(byte[] value) throws SQLException {
+    return value != null ? writeEncoded(value) : writeNull();
+  }
+
+  @Override
+  public PGCopyWriter writeObject(Object value) throws SQLException {
+    return value != null ? writeEncoded(value) : writeNull();
+  }
+
+  @Override
+  public long finish() throws SQLException {
+    checkClosed();
+
+    if (columnIdx != 0) {
+      throw new SQLException("Incomplete row, " + (columnTypes.length - columnIdx) + " column(s) not written");
+    }
+
+    buffer.writeShort(-1);
+
+    flushBuffer();
+
+    try {
+      sink.done();
+    }
+    catch (IOException e) {
+      release();
+      throw makeSQLException(e);
+    }
+
+    boolean finished = Await.awaitUninterruptibly(connection.getNetworkTimeout(), MILLISECONDS, completed::await);
+
+    checkError();
+
+    release();
+
+    if (!finished) {
+      throw new SQLTimeoutException("Timeout waiting for copy to complete");
+    }
+
+    return rowsAffected != null ? rowsAffected : 0;
+  }
+
+  @Override
+  public void close() throws SQLException {
+
+    if (closed) {
+      return;
+    }
+
+    try {
+      if (errorRef.get() == null) {
+        sink.fail("Copy aborted by client");
+        Await.awaitUninterruptibly(connection.getNetworkTimeout(), MILLISECONDS, completed::await);
+      }
+    }
+    catch (IOException e) {
+      throw makeSQLException(e);
+    }
+    finally {
+      release();
+    }
+
+    // The server reports the abort as an error, only report other failures
+    Throwable error = errorRef.get();
+    if (error != null && !(error instanceof NoticeException)) {
+      throwError(error);
+    }
+  }
+
+}
@@ -30,21 +30,27 @@ package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.api.jdbc.PGAnyType;
 import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGFlow;
 import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+import com.impossibl.postgres.api.jdbc.RowMapper;
 import com.impossibl.postgres.jdbc.Housekeeper.CleanupRunnable;
 import com.impossibl.postgres.jdbc.SQLTextTree.ParameterPiece;
 import com.impossibl.postgres.jdbc.SQLTextTree.Processor;
+import com.impossibl.postgres.protocol.FieldFormat;
 import com.impossibl.postgres.protocol.FieldFormatRef;
 import com.impossibl.postgres.protocol.Notice;
 import com.impossibl.postgres.protocol.RequestExecutor.CopyFromHandler;
+import com.impossibl.postgres.protocol.RequestExecutor.CopyOutData;
 import com.impossibl.postgres.protocol.RequestExecutor.CopyToHandler;
 import com.impossibl.postgres.protocol.RequestExecutorHandlers;
+import com.impossibl.postgres.protocol.RequestExecutorHandlers.PrepareResult;
 import com.impossibl.postgres.protocol.ResultBatch;
 import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.RowData;
 import com.impossibl.postgres.protocol.ServerConnection;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.system.BasicContext;
+import com.impossibl.postgres.system.Metrics;
 import com.impossibl.postgres.system.ParameterNames;
 import com.impossibl.postgres.system.Setting;
 import com.impossibl.postgres.system.Settings;
@@ -60,8 +66,10 @@ import static com.impossibl.postgres.jdbc.ErrorUtils.chainWarnings;
 import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
 import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLWarningChain;
 import static com.impossibl.postgres.jdbc.Exceptions.CLOSED_CONNECTION;
+import static com.impossibl.postgres.jdbc.Exceptions.COPY_IN_PROGRESS;
 import static com.impossibl.postgres.jdbc.Exceptions.INVALID_COMMAND_FOR_GENERATED_KEYS;
 import static com.impossibl.postgres.jdbc.Exceptions.NOT_SUPPORTED;
+import static com.impossibl.postgres.jdbc.Exceptions.NOT_SUPPORTED_BY_SHARED_CONNECTION;
 import static com.impossibl.postgres.jdbc.Exceptions.UNWRAP_ERROR;
 import static com.impossibl.postgres.jdbc.JDBCSettings.CI_APPLICATION_NAME;
 import static com.impossibl.postgres.jdbc.JDBCSettings.CI_CLIENT_USER;
@@ -74,8 +82,8 @@ import static com.impossibl.postgres.jdbc.JDBCSettings.PARSED_SQL_CACHE_SIZE;
 import static com.impossibl.postgres.jdbc.JDBCSettings.PREPARED_STATEMENT_CACHE_SIZE;
 import static com.impossibl.postgres.jdbc.JDBCSettings.PREPARED_STATEMENT_CACHE_THRESHOLD;
 import static com.impossibl.postgres.jdbc.JDBCSettings.READ_ONLY;
+import static com.impossibl.postgres.jdbc.JDBCSettings.SHARED;
 import static com.impossibl.postgres.jdbc.JDBCSettings.STRICT_MODE;
-import static com.impossibl.postgres.jdbc.SQLTextUtils.appendReturningClause;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.escapeLiteral;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getBeginText;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getCommitText;
@@ -88,6 +96,7 @@ import static com.impossibl.postgres.jdbc.SQLTextUtils.getRollbackToText;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getSetSavepointText;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getSetSessionIsolationLevelText;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getSetSessionReadabilityText;
+import static com.impossibl.postgres.jdbc.SQLTextUtils.isRelationChangingCommand;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.isTrue;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.prependCursorDeclaration;
 import static com.impossibl.postgres.protocol.TransactionStatus.Idle;
@@ -106,7 +115,9 @@ import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.lang.ref.WeakReference;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.CallableStatement;
@@ -134,16 +145,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
+import static java.lang.Boolean.TRUE;
 import static java.lang.String.format;
 import static java.sql.ClientInfoStatus.REASON_UNKNOWN;
 import static java.sql.ClientInfoStatus.REASON_UNKNOWN_PROPERTY;
@@ -182,13 +199,11 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
     ServerConnection serverConnection;
     Collection<WeakReference<PGStatement>> statements;
-    StackTraceElement[] allocationStackTrace;
     String connectionInfo;
 
     private Cleanup(ServerConnection serverConnection, Collection<WeakReference<PGStatement>> statements, String connectionInfo) {
       this.serverConnection = serverConnection;
       this.statements = statements;
-      this.allocationStackTrace = new Exception().getStackTrace();
       this.connectionInfo = connectionInfo;
     }
 
@@ -197,11 +212,6 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       return "connection ( " + connectionInfo + " )";
     }
 
-    @Override
-    public StackTraceElement[] getAllocationStackTrace() {
-      return allocationStackTrace;
-    }
-
     @Override
     public void run() {
 
@@ -213,48 +223,58 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   }
 
   boolean strict;
-  private long statementId = 0L;
-  private long portalId = 0L;
+  private final AtomicLong statementId = new AtomicLong();
+  private final AtomicLong portalId = new AtomicLong();
+  private final ReentrantLock validationLock = new ReentrantLock();
   private int savepointId;
   private int holdability;
   boolean autoCommit = true;
+  final boolean shared;
   private int networkTimeout;
   private SQLWarning warningChain;
   private Collection<WeakReference<PGStatement>> activeStatements;
   private Map<StatementCacheKey, StatementDescription> descriptionCache;
   private Map<StatementCacheKey, PreparedStatementDescription> preparedStatementCache;
+  private Queue<String> evictedStatements;
   private int preparedStatementCacheThreshold;
   private Map<StatementCacheKey, Integer> preparedStatementHeat;
   private Integer defaultFetchSize;
+  private AutoCloseable activeCopy;
   private Map<NotificationKey, PGNotificationListener> notificationListeners;
+  private Metrics metrics;
   final Housekeeper.Ref housekeeper;
   private final Object cleanupKey;
 
-  private static Map<String, SQLText> parsedSqlCache;
+  private static Map<String, ParsedSQLText> parsedSqlCache;
 
   PGDirectConnection(SocketAddress address, Settings settings, Housekeeper.Ref housekeeper) throws IOException {
     super(address, settings.duplicateKnowing(JDBC, SYS, PROTO, SERVER));
 
     this.strict = getSetting(STRICT_MODE);
-    this.networkTimeout = getSetting(DEFAULT_NETWORK_TIMEOUT);
+    this.shared = getSetting(SHARED);
+    // A network timeout on a shared connection would also expire while waiting
+    // for other threads' pipelined requests, closing the connection under them
+    this.networkTimeout = shared ? 0 : getSetting(DEFAULT_NETWORK_TIMEOUT);
     this.activeStatements = new ConcurrentLinkedQueue<>();
     this.notificationListeners = new ConcurrentHashMap<>();
 
+    Metrics metrics = getMetrics();
+    this.metrics = metrics.isEnabled() ? metrics : null;
+
     final int descriptionCacheSize = getSetting(DESCRIPTION_CACHE_SIZE);
     if (descriptionCacheSize > 0) {
       this.descriptionCache = synchronizedMap(new CacheMap<>(descriptionCacheSize, 1.1f, true));
     }
 
-    final int statementCacheSize = getSetting(PREPARED_STATEMENT_CACHE_SIZE);
+    // Evicting a cached statement closes it on the server, which is unsafe when
+    // another thread of a shared connection may have just fetched it from the cache
+    final int statementCacheSize = shared ? 0 : getSetting(PREPARED_STATEMENT_CACHE_SIZE);
     if (statementCacheSize > 0) {
-      WeakReference<PGDirectConnection> weakThis = new WeakReference<>(this);
-      preparedStatementCache = synchronizedMap(new CacheMap<>(statementCacheSize, 1.1f, true, eldest -> {
-        try {
-          PGStatement.dispose(weakThis.get(), eldest.getValue().name);
-        }
-        catch (SQLException ignored) {
-        }
-      }));
+      // Evicted statements are disposed once the cache's monitor is released; disposing
+      // waits for the server, and waiting inside a monitor pins virtual threads
+      evictedStatements = new ConcurrentLinkedQueue<>();
+      preparedStatementCache = synchronizedMap(new CacheMap<>(statementCacheSize, 1.1f, true,
+          eldest -> evictedStatements.add(eldest.getValue().name)));
     }
 
     final int statementCacheThreshold = getSetting(PREPARED_STATEMENT_CACHE_THRESHOLD);
@@ -341,6 +361,17 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       throw new SQLException("connection closed", "08006");
   }
 
+  /**
+   * Ensures the connection is not in shared mode
+   *
+   * @throws SQLException If the connection is in shared mode
+   */
+  private void checkNotShared() throws SQLException {
+
+    if (shared)
+      throw NOT_SUPPORTED_BY_SHARED_CONNECTION;
+  }
+
   /**
    * Ensures the connection is currently in manual-commit mode
    *
@@ -358,7 +389,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
    * @return New unique statement name
    */
   String getNextStatementName() {
-    return Long.toHexString(++statementId);
+    return Long.toHexString(statementId.incrementAndGet());
   }
 
   /**
@@ -367,7 +398,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
    * @return New unique portal name
    */
   String getNextPortalName() {
-    return Long.toHexString(++portalId);
+    return Long.toHexString(portalId.incrementAndGet());
   }
 
   /**
@@ -426,22 +457,32 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     closeStatements(activeStatements);
   }
 
-  SQLText parseSQL(String sqlText) throws SQLException {
+  /**
+   * Parses SQL text, consulting the parsed SQL cache when enabled.
+   *
+   * The returned instance is immutable and shared between connections;
+   * callers that must modify the parsed tree use {@link ParsedSQLText#toSQLText()}.
+   */
+  ParsedSQLText parseSQL(String sqlText) throws SQLException {
 
     try {
-      final boolean standardConformingStrings = getSetting(STANDARD_CONFORMING_STRINGS, false);
+      final boolean standardConformingStrings = TRUE.equals(getSettingsSnapshot().standardConformingStrings);
 
       if (parsedSqlCache == null) {
-        return new SQLText(sqlText, standardConformingStrings);
+        return ParsedSQLText.parse(sqlText, standardConformingStrings);
       }
 
-      SQLText parsedSql = parsedSqlCache.get(sqlText);
-      if (parsedSql == null) {
-        parsedSql = new SQLText(sqlText, standardConformingStrings);
+      ParsedSQLText parsedSql = parsedSqlCache.get(sqlText);
+      if (parsedSql == null || parsedSql.isStandardConformingStrings() != standardConformingStrings) {
+        cacheAccessed(Metrics.Cache.ParsedSQL, false);
+        parsedSql = ParsedSQLText.parse(sqlText, standardConformingStrings);
         parsedSqlCache.put(sqlText, parsedSql);
       }
+      else {
+        cacheAccessed(Metrics.Cache.ParsedSQL, true);
+      }
 
-      return parsedSql.copy();
+      return parsedSql;
     }
     catch (ParseException e) {
       throw new SQLException("Error parsing SQL at position " + e.getErrorOffset() +
@@ -450,6 +491,25 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   }
 
 
+  /**
+   * Checks the given result batches for commands that may have altered
+   * relations and, if any are found, invalidates the relation data cached
+   * in the registry.
+   *
+   * @param resultBatches Result batches of a completed query
+   */
+  void checkRelationChanges(List<ResultBatch> resultBatches) {
+
+    for (ResultBatch resultBatch : resultBatches) {
+      if (resultBatch != null && isRelationChangingCommand(resultBatch.getCommand())) {
+        registry.getShared().invalidateRelations();
+        return;
+      }
+    }
+
+  }
+
+
   interface QueryFunction {
     void query(long timeout) throws IOException;
   }
@@ -485,6 +545,10 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
    */
   <T> T execute(QueryResultFunction<T> function) throws SQLException {
 
+    if (activeCopy != null) {
+      throw COPY_IN_PROGRESS;
+    }
+
     try {
       if (!autoCommit && getTransactionStatus() == Idle) {
         getRequestExecutor().lazyExecute("TB");
@@ -525,9 +589,12 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     // Lock the executor to ensure no asynchronous requests are
     // started while we're operating under the execution timeout.
     // This ensures we don't cancel a request _after_ this one
-    // by mistake.
+    // by mistake. An explicit lock is used so waiting for the
+    // results doesn't pin virtual threads to their carrier.
 
-    synchronized (getRequestExecutor()) {
+    Lock requestLock = getServerConnection().getRequestLock();
+    requestLock.lock();
+    try {
 
       // Schedule task to run at execution timeout
 
@@ -552,6 +619,9 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       }
 
     }
+    finally {
+      requestLock.unlock();
+    }
 
   }
 
@@ -720,7 +790,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   }
 
   @Override
-  public synchronized boolean isValid(int timeout) throws SQLException {
+  public boolean isValid(int timeout) throws SQLException {
 
     //Not valid if connection is closed
     if (isClosed())
@@ -730,6 +800,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       throw new SQLException("Timeout is less than 0");
 
     boolean result;
+    validationLock.lock();
     try {
       RequestExecutorHandlers.SynchronizedResult syncResult = new RequestExecutorHandlers.SynchronizedResult();
       getServerConnection().getRequestExecutor().sync(syncResult);
@@ -740,6 +811,9 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     catch (Exception se) {
       result = false;
     }
+    finally {
+      validationLock.unlock();
+    }
 
     return result;
   }
@@ -798,6 +872,9 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     if (this.autoCommit == autoCommit)
       return;
 
+    // Shared connections are used by multiple threads & cannot have transactions
+    checkNotShared();
+
     // Commit any in-flight transaction (cannot call commit as it will start a
     // new transaction since we would still be in manual commit mode)
     if (!this.autoCommit && getTransactionStatus() != Idle) {
@@ -989,11 +1066,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   public String nativeSQL(String sql) throws SQLException {
     checkClosed();
 
-    SQLText sqlText = parseSQL(sql);
-
-    SQLTextEscapes.processEscapes(sqlText, this);
-
-    return sqlText.toString();
+    return parseSQL(sql).processEscapes(this).getText();
   }
 
   @Override
@@ -1035,22 +1108,34 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   public PGPreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
     checkClosed();
 
-    SQLText sqlText = parseSQL(sql);
+    ParsedSQLText sqlText = parseSQL(sql);
 
     return prepareStatement(sqlText, resultSetType, resultSetConcurrency, resultSetHoldability);
   }
 
   public PGPreparedStatement prepareStatement(SQLText sqlText, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
 
-    SQLTextEscapes.processEscapes(sqlText, this);
+    return prepareStatement(new ParsedSQLText(sqlText, getSetting(STANDARD_CONFORMING_STRINGS, false)), resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
 
+  private PGPreparedStatement prepareStatement(ParsedSQLText sqlText, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+
+    sqlText = sqlText.processEscapes(this);
+
+    String text = sqlText.getText();
     String cursorName = null;
 
     if (resultSetType != ResultSet.TYPE_FORWARD_ONLY || resultSetConcurrency == ResultSet.CONCUR_UPDATABLE) {
 
       cursorName = "cursor" + getNextStatementName();
 
-      if (!prependCursorDeclaration(sqlText, cursorName, resultSetType, resultSetHoldability, autoCommit)) {
+      String cursorText = sqlText.getCursorDeclarationText(cursorName, resultSetType, resultSetHoldability, autoCommit);
+      if (cursorText != null) {
+
+        text = cursorText;
+
+      }
+      else {
 
         cursorName = null;
 
@@ -1058,19 +1143,12 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
     }
 
-    final int[] parameterCount = new int[1];
-    sqlText.process(node -> {
-      if (node instanceof ParameterPiece)
-        parameterCount[0] += 1;
-      return node;
-    }, true);
-
-    if (parameterCount[0] > 0xffff) {
+    if (sqlText.getParameterCount() > 0xffff) {
       throw new PGSQLSimpleException("Too many parameters specified: Max of 65535 allowed");
     }
 
     PGPreparedStatement statement =
-        new PGPreparedStatement(this, resultSetType, resultSetConcurrency, resultSetHoldability, sqlText.toString(), parameterCount[0], cursorName);
+        new PGPreparedStatement(this, resultSetType, resultSetConcurrency, resultSetHoldability, text, sqlText.getParameterCount(), cursorName);
 
     activeStatements.add(new WeakReference<>(statement));
 
@@ -1081,13 +1159,14 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
     checkClosed();
 
-    SQLText sqlText = parseSQL(sql);
+    ParsedSQLText sqlText = parseSQL(sql);
 
     if (autoGeneratedKeys != RETURN_GENERATED_KEYS) {
       return prepareStatement(sql);
     }
 
-    if (!appendReturningClause(sqlText)) {
+    sqlText = sqlText.withReturningClause();
+    if (sqlText == null) {
       throw INVALID_COMMAND_FOR_GENERATED_KEYS;
     }
 
@@ -1108,9 +1187,8 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
     checkClosed();
 
-    SQLText sqlText = parseSQL(sql);
-
-    if (!appendReturningClause(sqlText, asList(columnNames))) {
+    ParsedSQLText sqlText = parseSQL(sql).withReturningClause(asList(columnNames));
+    if (sqlText == null) {
       throw INVALID_COMMAND_FOR_GENERATED_KEYS;
     }
 
@@ -1135,7 +1213,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
     checkClosed();
 
-    SQLText sqlText = parseSQL(sql);
+    SQLText sqlText = parseSQL(sql).toSQLText();
 
     return prepareCall(sqlText, resultSetType, resultSetConcurrency, resultSetHoldability);
   }
@@ -1426,6 +1504,10 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       throw new SQLException("invalid network timeout");
     }
 
+    if (networkTimeout > 0) {
+      checkNotShared();
+    }
+
     this.networkTimeout = networkTimeout;
   }
 
@@ -1553,11 +1635,15 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     // Check prepared statement cache...
     if (preparedStatementCache != null) {
       PreparedStatementDescription cached = preparedStatementCache.get(key);
-      if (cached != null) return cached;
+      if (cached != null) {
+        cacheAccessed(Metrics.Cache.Description, true);
+        return cached;
+      }
     }
 
     // Check description cache
     StatementDescription cached = descriptionCache.get(key);
+    cacheAccessed(Metrics.Cache.Description, cached != null);
     if (cached != null) return cached;
 
     try {
@@ -1590,18 +1676,11 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     }
 
     PreparedStatementDescription cached = preparedStatementCache.get(key);
+    cacheAccessed(Metrics.Cache.PreparedStatement, cached != null);
     if (cached != null) return cached;
 
-
-    if (preparedStatementHeat != null) {
-      Integer heat = preparedStatementHeat.computeIfPresent(key, (k, h) -> h + 1);
-      if (heat == null) {
-        preparedStatementHeat.put(key, 1);
-        return null;
-      }
-      else if (heat < preparedStatementCacheThreshold) {
-        return null;
-      }
+    if (!isPreparedStatementHot(key)) {
+      return null;
     }
 
     try {
@@ -1612,6 +1691,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     }
 
     preparedStatementCache.put(key, cached);
+    disposeEvictedStatements();
 
     // Save a copy in the description cache as well. This cache uses no parameter types for
     // more general lookup capability.
@@ -1620,8 +1700,86 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     return cached;
   }
 
+  private void disposeEvictedStatements() {
+
+    String name;
+    while ((name = evictedStatements.poll()) != null) {
+      try {
+        PGStatement.dispose(this, name);
+      }
+      catch (SQLException ignored) {
+      }
+    }
+
+  }
+
+  boolean hasCachedStatementDescription(String sql) {
+
+    StatementCacheKey key = new StatementCacheKey(sql, EMPTY_TYPES);
+
+    return (preparedStatementCache != null && preparedStatementCache.containsKey(key)) ||
+        (descriptionCache != null && descriptionCache.containsKey(key));
+  }
+
+  PreparedStatementDescription findCachedPreparedStatement(StatementCacheKey key) {
+    if (preparedStatementCache == null) {
+      return null;
+    }
+
+    PreparedStatementDescription cached = preparedStatementCache.get(key);
+    cacheAccessed(Metrics.Cache.PreparedStatement, cached != null);
+    return cached;
+  }
+
+  private void cacheAccessed(Metrics.Cache cache, boolean hit) {
+    if (metrics != null) {
+      metrics.cacheAccessed(cache, hit);
+    }
+  }
+
+  /**
+   * Metrics instance this connection reports to.
+   */
+  Metrics getMetrics() {
+    return getServerConnection().getMetrics();
+  }
+
+  /**
+   * Records a use of the statement and determines if it has been used often enough
+   * to be prepared &amp; cached.
+   */
+  boolean isPreparedStatementHot(StatementCacheKey key) {
+
+    if (preparedStatementHeat == null) {
+      return true;
+    }
+
+    Integer heat = preparedStatementHeat.computeIfPresent(key, (k, h) -> h + 1);
+    if (heat == null) {
+      preparedStatementHeat.put(key, 1);
+      return false;
+    }
+
+    return heat >= preparedStatementCacheThreshold;
+  }
+
+  /**
+   * Caches a statement that was prepared using client supplied parameter types. Unlike
+   * {@link #getCachedPreparedStatement(StatementCacheKey, PreparedStatementDescriptionLoader)}
+   * the description is not shared with the description cache because its parameter types
+   * were not chosen by the server.
+   */
+  void cachePreparedStatement(StatementCacheKey key, PreparedStatementDescription description) {
+
+    if (preparedStatementCache != null) {
+      preparedStatementCache.put(key, description);
+      disposeEvictedStatements();
+    }
+  }
+
   @Override
   public void copyFrom(String sql, InputStream inputStream) throws SQLException {
+    checkNotShared();
 
     AtomicReference<Throwable> errorRef = new AtomicReference<>(null);
 
@@ -1668,16 +1826,167 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
   }
 
+  @Override
+  public PGCopyWriter copyIn(String table, String... columns) throws SQLException {
+    checkClosed();
+    checkNotShared();
+
+    String columnList = columns.length != 0 ? String.join(", ", columns) : null;
+
+    // Describe the columns to resolve their types
+    ResultField[] fields = describeCopyColumns("SELECT " + (columnList != null ? columnList : "*") + " FROM " + table);
+
+    Type[] columnTypes = new Type[fields.length];
+    try {
+      for (int columnIdx = 0; columnIdx < columnTypes.length; ++columnIdx) {
+        ResultField field = fields[columnIdx];
+        Type columnType = getRegistry().resolve(field.getTypeRef());
+        if (columnType == null || !columnType.isParameterFormatSupported(FieldFormat.Binary)) {
+          throw new SQLException("Column does not support binary copy: " + field.getName());
+        }
+        columnTypes[columnIdx] = columnType;
+      }
+    }
+    catch (IOException e) {
+      throw makeSQLException(e);
+    }
+
+    String sql = "COPY " + table + (columnList != null ? " (" + columnList + ")" : "") + " FROM STDIN (FORMAT BINARY)";
+
+    PGCopyWriter copyWriter = new PGCopyWriter(this, columnTypes);
+    copyWriter.start(sql);
+
+    activeCopy = copyWriter;
+
+    return copyWriter;
+  }
+
+  @Override
+  public CompletionStage<com.impossibl.postgres.api.jdbc.PGResultSet> queryAsync(String sql, Object... parameters) throws SQLException {
+    checkClosed();
+
+    return AsyncQuery.query(this, sql, parameters);
+  }
+
+  @Override
+  public CompletionStage<Long> executeAsync(String sql, Object... parameters) throws SQLException {
+    checkClosed();
+
+    return AsyncQuery.execute(this, sql, parameters);
+  }
+
+  @Override
+  public <T> PGFlow.Publisher<T> publish(String sql, RowMapper<T> mapper, Object... parameters) throws SQLException {
+    checkClosed();
+    checkNotShared();
+
+    return new RowPublisher<>(this, sql, parameters, mapper);
+  }
+
+  @Override
+  public PGCopyReader copyOut(String sql) throws SQLException {
+    checkClosed();
+    checkNotShared();
+
+    ResultField[] describedFields = describeCopyColumns(sql);
+    if (describedFields.length == 0) {
+      throw new SQLException("Query does not return any columns");
+    }
+
+    // Copy data is always binary, described fields are shared so use copies
+    ResultField[] fields = new ResultField[describedFields.length];
+    try {
+      for (int columnIdx = 0; columnIdx < fields.length; ++columnIdx) {
+        ResultField field = describedFields[columnIdx];
+        Type columnType = getRegistry().resolve(field.getTypeRef());
+        if (columnType == null || !columnType.isResultFormatSupported(FieldFormat.Binary)) {
+          throw new SQLException("Column does not support binary copy: " + field.getName());
+        }
+        fields[columnIdx] = new ResultField(field.getName(), field.getRelationId(), field.getRelationAttributeNumber(),
+            field.getTypeRef(), field.getTypeLength(), field.getTypeModifier(), FieldFormat.Binary);
+      }
+    }
+    catch (IOException e) {
+      throw makeSQLException(e);
+    }
+
+    PGCopyReader copyReader = new PGCopyReader(this, fields);
+    copyReader.start("COPY (" + sql + ") TO STDOUT (FORMAT BINARY)");
+
+    activeCopy = copyReader;
+
+    return copyReader;
+  }
+
+  /**
+   * Describes the result columns of a query, used to resolve the types
+   * of binary copy data.
+   */
+  private ResultField[] describeCopyColumns(String sql) throws SQLException {
+
+    StatementDescription description = getCachedStatementDescription(sql, () -> {
+
+      PrepareResult result = execute(timeout -> {
+        PrepareResult handler = new PrepareResult();
+        getRequestExecutor().prepare(null, sql, EMPTY_TYPES, handler);
+        handler.await(timeout, MILLISECONDS);
+        return handler;
+      });
+
+      return new StatementDescription(result.getDescribedParameterTypes(this), result.getDescribedResultFields());
+    });
+
+    return description.resultFields != null ? description.resultFields : new ResultField[0];
+  }
+
+  void copyClosed(AutoCloseable copy) {
+    if (activeCopy == copy) {
+      activeCopy = null;
+    }
+  }
+
   @Override
   public void copyTo(String sql, OutputStream outputStream) throws SQLException {
 
+    copyTo(sql, frame -> frame.readBytes(outputStream, frame.readableBytes()));
+  }
+
+  @Override
+  public void copyTo(String sql, WritableByteChannel channel) throws SQLException {
+
+    copyTo(sql, frame -> {
+      for (ByteBuffer buffer : frame.nioBuffers()) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+    });
+  }
+
+  private interface CopyDataWriter {
+    void write(ByteBuf frame) throws IOException;
+  }
+
+  /**
+   * Executes a copy to the client, writing the received data on the calling
+   * thread as it is taken from the connection.
+   */
+  private void copyTo(String sql, CopyDataWriter writer) throws SQLException {
+    checkNotShared();
+
+    AtomicReference<CopyOutData> dataRef = new AtomicReference<>(null);
     AtomicReference<Throwable> errorRef = new AtomicReference<>(null);
 
     execute(timeout -> {
 
       CountDownLatch latch = new CountDownLatch(1);
 
-      getRequestExecutor().copyTo(sql, outputStream, new CopyToHandler() {
+      getRequestExecutor().copyTo(sql, new CopyToHandler() {
+
+        @Override
+        public void handleStart(CopyOutData data) {
+          dataRef.set(data);
+        }
 
         @Override
         public void handleComplete() {
@@ -1697,8 +2006,38 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
       });
 
+      CopyOutData data = dataRef.get();
+      IOException writeError = null;
+      try {
+
+        ByteBuf frame;
+        while ((frame = data.take(timeout)) != null) {
+          try {
+            writer.write(frame);
+          }
+          finally {
+            frame.release();
+          }
+        }
+
+      }
+      catch (BlockingReadTimeoutException e) {
+        data.close();
+        throw e;
+      }
+      catch (IOException e) {
+        // Discard the remaining data; the copy is still completed to
+        // keep the connection usable.
+        data.close();
+        writeError = e;
+      }
+
       Await.awaitUninterruptibly(timeout, MILLISECONDS, latch::await);
 
+      if (writeError != null && errorRef.get() == null) {
+        throw writeError;
+      }
+
     });
 
     Throwable error = errorRef.get();
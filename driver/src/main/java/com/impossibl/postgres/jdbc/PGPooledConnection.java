@@ -28,6 +28,8 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.system.Metrics;
+
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
@@ -51,6 +53,7 @@ public class PGPooledConnection implements PooledConnection {
   private PGPooledConnectionDelegator last;
   private final boolean autoCommit;
   private final boolean isXA;
+  private final Metrics metrics;
 
   /**
    * Creates a new PooledConnection representing the specified physical
@@ -63,6 +66,7 @@ public class PGPooledConnection implements PooledConnection {
     this.last = null;
     this.autoCommit = autoCommit;
     this.isXA = isXA;
+    this.metrics = con.getMetrics();
   }
 
   /**
@@ -70,6 +74,12 @@ public class PGPooledConnection implements PooledConnection {
    * @param v The value
    */
   void setLast(PGPooledConnectionDelegator v) {
+    if (last == null && v != null) {
+      metrics.connectionCheckedOut();
+    }
+    else if (last != null && v == null) {
+      metrics.connectionCheckedIn();
+    }
     last = v;
   }
 
@@ -137,6 +147,7 @@ public class PGPooledConnection implements PooledConnection {
     }
     finally {
       con = null;
+      setLast(null);
     }
   }
 
@@ -192,7 +203,7 @@ public class PGPooledConnection implements PooledConnection {
 
     PGPooledConnectionDelegator handler = new PGPooledConnectionDelegator(this, con);
 
-    last = handler;
+    setLast(handler);
 
     return handler;
   }
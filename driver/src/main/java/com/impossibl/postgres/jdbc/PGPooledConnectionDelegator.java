@@ -30,10 +30,15 @@ package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.api.jdbc.PGAnyType;
 import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGCopyReader;
+import com.impossibl.postgres.api.jdbc.PGCopyWriter;
+import com.impossibl.postgres.api.jdbc.PGFlow;
 import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+import com.impossibl.postgres.api.jdbc.RowMapper;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.CallableStatement;
@@ -50,6 +55,7 @@ import java.sql.Statement;
 import java.sql.Struct;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 
 /**
@@ -184,6 +190,96 @@ public class PGPooledConnectionDelegator implements PGConnection {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void copyTo(String sql, WritableByteChannel channel) throws SQLException {
+    try {
+      checkClosed();
+      delegator.copyTo(sql, channel);
+    }
+    catch (SQLException se) {
+      owner.fireConnectionError(se);
+      throw se;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public CompletionStage<com.impossibl.postgres.api.jdbc.PGResultSet> queryAsync(String sql, Object... parameters) throws SQLException {
+    try {
+      checkClosed();
+      return delegator.queryAsync(sql, parameters);
+    }
+    catch (SQLException se) {
+      owner.fireConnectionError(se);
+      throw se;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public CompletionStage<Long> executeAsync(String sql, Object... parameters) throws SQLException {
+    try {
+      checkClosed();
+      return delegator.executeAsync(sql, parameters);
+    }
+    catch (SQLException se) {
+      owner.fireConnectionError(se);
+      throw se;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public <T> PGFlow.Publisher<T> publish(String sql, RowMapper<T> mapper, Object... parameters) throws SQLException {
+    try {
+      checkClosed();
+      return delegator.publish(sql, mapper, parameters);
+    }
+    catch (SQLException se) {
+      owner.fireConnectionError(se);
+      throw se;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public PGCopyReader copyOut(String sql) throws SQLException {
+    try {
+      checkClosed();
+      return delegator.copyOut(sql);
+    }
+    catch (SQLException se) {
+      owner.fireConnectionError(se);
+      throw se;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public PGCopyWriter copyIn(String table, String... columns) throws SQLException {
+    try {
+      checkClosed();
+      return delegator.copyIn(table, columns);
+    }
+    catch (SQLException se) {
+      owner.fireConnectionError(se);
+      throw se;
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
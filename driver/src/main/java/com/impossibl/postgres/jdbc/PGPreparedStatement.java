@@ -28,6 +28,8 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.api.jdbc.PGType;
+import com.impossibl.postgres.api.jdbc.RowMapper;
 import com.impossibl.postgres.protocol.FieldFormat;
 import com.impossibl.postgres.protocol.RequestExecutor;
 import com.impossibl.postgres.protocol.RequestExecutorHandlers.ExecuteResult;
@@ -37,6 +39,7 @@ import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.RowDataSet;
 import com.impossibl.postgres.protocol.ServerObjectType;
 import com.impossibl.postgres.protocol.TransactionStatus;
+import com.impossibl.postgres.protocol.TypeRef;
 import com.impossibl.postgres.types.Type;
 import com.impossibl.postgres.utils.ByteBufs;
 import com.impossibl.postgres.utils.guava.ByteStreams;
@@ -58,7 +61,6 @@ import static com.impossibl.postgres.jdbc.Unwrapping.unwrapRowId;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapXML;
 import static com.impossibl.postgres.protocol.FieldFormat.Text;
 import static com.impossibl.postgres.system.Empty.EMPTY_TYPES;
-import static com.impossibl.postgres.utils.ByteBufs.releaseAll;
 import static com.impossibl.postgres.utils.ByteBufs.retainedDuplicateAll;
 
 import java.io.IOException;
@@ -76,7 +78,6 @@ import java.sql.Date;
 import java.sql.JDBCType;
 import java.sql.NClob;
 import java.sql.ParameterMetaData;
-import java.sql.PreparedStatement;
 import java.sql.Ref;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -89,21 +90,25 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static java.lang.Integer.toHexString;
 import static java.lang.Long.min;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Arrays.fill;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.util.ReferenceCountUtil;
 
 import static io.netty.buffer.ByteBufUtil.writeUtf8;
 
-class PGPreparedStatement extends PGStatement implements PreparedStatement {
+class PGPreparedStatement extends PGStatement implements com.impossibl.postgres.api.jdbc.PGPreparedStatement {
 
 
   String sqlText;
@@ -111,6 +116,9 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
   Type[] parameterTypesParsed;
   FieldFormat[] parameterFormats;
   ByteBuf[] parameterBuffers;
+  private ParameterArena parameterArena;
+  SQLType[] parameterSQLTypes;
+  PrimitiveFormat[] parameterPrimitiveFormats;
   private int parameterCount;
   private boolean[] parameterSet;
   private List<Type[]> batchParameterTypes;
@@ -118,6 +126,103 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
   private List<ByteBuf[]> batchParameterBuffers;
   private boolean wantsGeneratedKeys;
   protected boolean parsed;
+  private InferredParameter[] inferredParameters;
+
+  /**
+   * SQL states reported when the server cannot use the parameter types
+   * inferred by the client.
+   */
+  private static final Set<String> INFERRED_TYPE_REJECTION_STATES = new HashSet<>(asList(
+      "42804", // datatype_mismatch
+      "42883", // undefined_function
+      "42725", // ambiguous_function
+      "42846", // cannot_coerce
+      "42P08", // ambiguous_parameter
+      "42P18", // indeterminate_datatype
+      "22P03"  // invalid_binary_representation
+  ));
+
+  /**
+   * Parameter value that was encoded using a type inferred from its JDBC
+   * type, before the statement was described by the server. The value is
+   * kept to allow re-encoding it if the server rejects the inferred type.
+   */
+  private static class InferredParameter {
+
+    Object source;
+    Object sourceContext;
+    SQLType sqlType;
+    long integerSource;
+    boolean integer;
+
+    InferredParameter(Object source, Object sourceContext, SQLType sqlType) {
+      this.source = source;
+      this.sourceContext = sourceContext;
+      this.sqlType = sqlType;
+    }
+
+    void setInteger(SQLType sqlType, long value) {
+      this.source = null;
+      this.sourceContext = null;
+      this.sqlType = sqlType;
+      this.integerSource = value;
+      this.integer = true;
+    }
+
+    Object getSource() {
+      if (!integer) {
+        return source;
+      }
+
+      if (sqlType == JDBCType.SMALLINT) {
+        return (short) integerSource;
+      }
+      else if (sqlType == JDBCType.INTEGER) {
+        return (int) integerSource;
+      }
+      return integerSource;
+    }
+
+  }
+
+  /**
+   * Binary formats primitive values can be written in directly, without
+   * boxing or using the type's codec.
+   */
+  enum PrimitiveFormat {
+    Int2,
+    Int4,
+    Int8,
+    Float4,
+    Float8;
+
+    static PrimitiveFormat of(Type type, FieldFormat format) {
+
+      if (format != FieldFormat.Binary) {
+        return null;
+      }
+
+      int typeId = type.getId();
+      if (typeId == PGType.INT2.getVendorTypeNumber()) {
+        return Int2;
+      }
+      else if (typeId == PGType.INT4.getVendorTypeNumber()) {
+        return Int4;
+      }
+      else if (typeId == PGType.INT8.getVendorTypeNumber()) {
+        return Int8;
+      }
+      else if (typeId == PGType.FLOAT4.getVendorTypeNumber()) {
+        return Float4;
+      }
+      else if (typeId == PGType.FLOAT8.getVendorTypeNumber()) {
+        return Float8;
+      }
+
+      return null;
+    }
+
+  }
 
 
   PGPreparedStatement(PGDirectConnection connection, int type, int concurrency, int holdability, String sqlText, int parameterCount, String cursorName) {
@@ -127,6 +232,9 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
     this.parameterTypes = new Type[parameterCount];
     this.parameterFormats = new FieldFormat[parameterCount];
     this.parameterBuffers = new ByteBuf[parameterCount];
+    this.parameterArena = new ParameterArena(connection.getAllocator(), parameterCount);
+    this.parameterSQLTypes = new SQLType[parameterCount];
+    this.parameterPrimitiveFormats = new PrimitiveFormat[parameterCount];
     this.parameterSet = new boolean[parameterCount];
     this.cursorName = cursorName;
   }
@@ -146,6 +254,13 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
 
   private Type resolveType(int parameterIdx, SQLType sqlType, Object value) throws SQLException {
 
+    if (parameterTypesParsed == null) {
+      Type inferredType = inferType(sqlType, value);
+      if (inferredType != null) {
+        return inferredType;
+      }
+    }
+
     describeIfNeeded();
 
     Type suggestedType = JDBCTypeMapping.getType(sqlType, value, connection.getRegistry());
@@ -159,6 +274,46 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
     return type;
   }
 
+  /**
+   * Infers the type of a parameter, without describing the statement, when
+   * the statement can be executed using client chosen parameter types and
+   * the value maps to a type the server will reliably accept or reject.
+   *
+   * @return Inferred type or null if the statement must be described
+   */
+  private Type inferType(SQLType sqlType, Object value) throws SQLException {
+
+    if (!connection.autoCommit || cursorName != null || connection.hasCachedStatementDescription(sqlText)) {
+      return null;
+    }
+
+    Type type = JDBCTypeMapping.getType(sqlType, value, connection.getRegistry());
+    if (type == null) {
+      return null;
+    }
+
+    switch (type.getCategory()) {
+      case String:
+        return value == null || value instanceof String ? type : null;
+
+      case Boolean:
+        return value == null || value instanceof Boolean ? type : null;
+
+      case Numeric:
+        switch (type.getName()) {
+          case "int2":
+          case "int4":
+          case "int8":
+            return value == null || value instanceof Short || value instanceof Integer || value instanceof Long ? type : null;
+          default:
+            return null;
+        }
+
+      default:
+        return null;
+    }
+  }
+
   void set(int parameterIdx, Object source, SQLType sqlType) throws SQLException {
     set(parameterIdx, source, null, sqlType);
   }
@@ -169,36 +324,52 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
 
     Type paramType = resolveType(parameterIdx, sqlType, source);
 
+    if (parameterTypesParsed == null) {
+      if (inferredParameters == null) {
+        inferredParameters = new InferredParameter[parameterCount];
+      }
+      inferredParameters[parameterIdx] = new InferredParameter(source, sourceContext, sqlType);
+    }
+
     FieldFormat paramFormat = paramType.getCategory() == Type.Category.String ? Text : paramType.getParameterFormat();
 
     parameterTypes[parameterIdx] = paramType;
     parameterFormats[parameterIdx] = paramFormat;
 
-    ReferenceCountUtil.release(parameterBuffers[parameterIdx]);
+    if (allowPrimitiveParameters()) {
+      parameterSQLTypes[parameterIdx] = sqlType;
+      parameterPrimitiveFormats[parameterIdx] = source != null ? PrimitiveFormat.of(paramType, paramFormat) : null;
+    }
+
     parameterBuffers[parameterIdx] = null;
+    parameterArena.clear(parameterIdx);
 
     if (source != null) {
 
+      ByteBuf out = parameterArena.begin(parameterIdx);
       try {
         switch (paramFormat) {
           case Text: {
-            StringBuilder out = new StringBuilder();
-            paramType.getTextCodec().getEncoder().encode(connection, paramType, source, sourceContext, out);
-            parameterBuffers[parameterIdx] = writeUtf8(connection.getAllocator(), out);
+            StringBuilder text = new StringBuilder();
+            paramType.getTextCodec().getEncoder().encode(connection, paramType, source, sourceContext, text);
+            writeUtf8(out, text);
           }
           break;
 
           case Binary: {
-            ByteBuf out = connection.getAllocator().buffer();
             paramType.getBinaryCodec().getEncoder().encode(connection, paramType, source, sourceContext, out);
-            parameterBuffers[parameterIdx] = out;
           }
           break;
         }
+
+        parameterBuffers[parameterIdx] = parameterArena.end(parameterIdx);
       }
       catch (IOException e) {
         throw makeSQLException(e);
       }
+      finally {
+        parameterArena.abort();
+      }
 
     }
 
@@ -207,12 +378,85 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
     }
   }
 
+  /**
+   * Determines the format a primitive value can be written in directly. This is
+   * only possible when the parameter was last set using the same JDBC type, meaning
+   * the type resolved for it then will be resolved again.
+   *
+   * @return Format to write the value in, or null if it must be set normally
+   */
+  private PrimitiveFormat getPrimitiveFormat(int parameterIndex, SQLType sqlType) throws SQLException {
+    checkClosed();
+
+    if (!allowPrimitiveParameters() || parameterIndex < 1 || parameterIndex > parameterCount) {
+      return null;
+    }
+
+    int parameterIdx = parameterIndex - 1;
+
+    if (parameterSQLTypes[parameterIdx] != sqlType) {
+      return null;
+    }
+
+    return parameterPrimitiveFormats[parameterIdx];
+  }
+
+  /**
+   * Writes a primitive value directly in the parameter's primitive format. Integral
+   * values are passed in {@code longValue} and floating point values in
+   * {@code doubleValue}, avoiding a lossy conversion between the two.
+   *
+   * @return true if the value was written, false if it must be set normally
+   */
+  private boolean setPrimitive(int parameterIndex, SQLType sqlType, boolean integral, long longValue, double doubleValue) throws SQLException {
+
+    PrimitiveFormat format = getPrimitiveFormat(parameterIndex, sqlType);
+    if (format == null) {
+      return false;
+    }
+
+    int parameterIdx = parameterIndex - 1;
+
+    if (parameterTypesParsed == null) {
+      // Keep the value available in case the inferred type must be re-encoded
+      InferredParameter inferred = inferredParameters != null ? inferredParameters[parameterIdx] : null;
+      if (inferred == null || !integral) {
+        return false;
+      }
+      inferred.setInteger(sqlType, longValue);
+    }
+
+    ByteBuf out = parameterArena.begin(parameterIdx);
+    switch (format) {
+      case Int2:
+        out.writeShort(integral ? (short) longValue : (short) doubleValue);
+        break;
+      case Int4:
+        out.writeInt(integral ? (int) longValue : (int) doubleValue);
+        break;
+      case Int8:
+        out.writeLong(integral ? longValue : (long) doubleValue);
+        break;
+      case Float4:
+        out.writeFloat(integral ? (float) longValue : (float) doubleValue);
+        break;
+      case Float8:
+        out.writeDouble(integral ? (double) longValue : doubleValue);
+        break;
+    }
+
+    parameterBuffers[parameterIdx] = parameterArena.end(parameterIdx);
+    parameterSet[parameterIdx] = true;
+
+    return true;
+  }
+
   @Override
   void internalClose() throws SQLException {
 
     super.internalClose();
 
-    releaseAll(parameterBuffers);
+    parameterArena.release();
     parameterBuffers = null;
 
     if (batchParameterBuffers != null) {
@@ -258,10 +502,36 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
       parameterTypesParsed = cachedDescription.parameterTypes;
     }
 
+    resolveInferredParameters();
+  }
+
+  /**
+   * Re-encodes parameters set using inferred types with the types
+   * described by the server.
+   */
+  private void resolveInferredParameters() throws SQLException {
+
+    if (inferredParameters == null) {
+      return;
+    }
+
+    InferredParameter[] inferred = inferredParameters;
+    inferredParameters = null;
+
+    for (int parameterIdx = 0; parameterIdx < inferred.length; ++parameterIdx) {
+      InferredParameter parameter = inferred[parameterIdx];
+      if (parameter != null) {
+        set(parameterIdx + 1, parameter.getSource(), parameter.sourceContext, parameter.sqlType);
+      }
+    }
   }
 
   void parseIfNeeded() throws SQLException {
 
+    if (inferredParameters != null) {
+      describeIfNeeded();
+    }
+
     if (query != null) {
       closeCursor(connection, cursorName);
     }
@@ -296,13 +566,7 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
         warningChain = chainWarnings(warningChain, prep);
 
         // Results are always described as "Text"... update them to our preferred format.
-        ResultField[] describedResultFields = prep.getDescribedResultFields().clone();
-        for (ResultField describedResultField : describedResultFields) {
-          Type type = connection.getRegistry().resolve(describedResultField.getTypeRef());
-          if (type != null) {
-            describedResultField.setFormat(type.getResultFormat());
-          }
-        }
+        ResultField[] describedResultFields = withPreferredFormats(prep.getDescribedResultFields());
 
         return new PreparedStatementDescription(name, prep.getDescribedParameterTypes(connection), describedResultFields);
       });
@@ -318,25 +582,132 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
 
   }
 
+  private ResultField[] withPreferredFormats(ResultField[] resultFields) throws IOException {
+
+    resultFields = resultFields.clone();
+    for (int idx = 0; idx < resultFields.length; ++idx) {
+      Type type = connection.getRegistry().resolve(resultFields[idx].getTypeRef());
+      if (type != null) {
+        resultFields[idx] = resultFields[idx].withFormat(type.getResultFormat());
+      }
+    }
+
+    return resultFields;
+  }
+
+  private boolean canExecuteInferred() throws SQLException {
+    return inferredParameters != null && connection.autoCommit && !shouldUseFetchSize() &&
+        connection.getTransactionStatus() == TransactionStatus.Idle;
+  }
+
+  /**
+   * Parses, binds &amp; executes the statement in a single request using the
+   * inferred parameter types. If the statement is hot enough to be cached it
+   * is prepared as a named statement and cached for later executions.
+   *
+   * @return true if command returned results, false if not, or null if the
+   *          server rejected the inferred parameter types.
+   * @throws SQLException
+   *          If an error occurred during statement execution
+   */
+  private Boolean executeInferred() throws SQLException {
+
+    closeResultSets();
+    verifyParameterSet();
+
+    StatementCacheKey key = new StatementCacheKey(sqlText, parameterTypes);
+
+    PreparedStatementDescription cachedStatement = connection.findCachedPreparedStatement(key);
+    if (cachedStatement != null) {
+      resultFields = cachedStatement.resultFields;
+      return super.executeStatement(cachedStatement.name, parameterFormats, parameterBuffers);
+    }
+
+    String statementName =
+        connection.isCacheEnabled() && connection.isPreparedStatementHot(key) ? CACHED_STATEMENT_PREFIX + toHexString(key.hashCode()) : null;
+
+    // String values are sent untyped allowing the server to choose their
+    // type, exactly as it does when describing the statement.
+    TypeRef[] inferredTypes = new TypeRef[parameterCount];
+    for (int parameterIdx = 0; parameterIdx < parameterCount; ++parameterIdx) {
+      Type parameterType = parameterTypes[parameterIdx];
+      inferredTypes[parameterIdx] = parameterType.getCategory() != Type.Category.String ? parameterType : null;
+    }
+
+    boolean res;
+    try {
+      res = super.executeDirect(sqlText, statementName, inferredTypes, parameterFormats, parameterBuffers, null);
+    }
+    catch (SQLException e) {
+      // Parse may have succeeded before binding or executing failed, leaving
+      // the named statement on the server without it being cached
+      disposeUncached(statementName);
+      if (INFERRED_TYPE_REJECTION_STATES.contains(e.getSQLState())) {
+        return null;
+      }
+      throw e;
+    }
+
+    if (statementName != null && resultBatches.isEmpty()) {
+      disposeUncached(statementName);
+    }
+    else if (statementName != null) {
+      try {
+        ResultField[] describedResultFields = withPreferredFormats(resultBatches.get(0).getFields());
+        connection.cachePreparedStatement(key, new PreparedStatementDescription(statementName, parameterTypes.clone(), describedResultFields));
+      }
+      catch (IOException e) {
+        disposeUncached(statementName);
+        throw makeSQLException(e);
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * Closes a named statement that was prepared but could not be cached.
+   * Closing a statement the server does not have is not an error.
+   */
+  private void disposeUncached(String statementName) {
+
+    if (statementName == null)
+      return;
+
+    try {
+      dispose(connection, statementName);
+    }
+    catch (SQLException ignored) {
+      // Connection is unusable
+    }
+  }
+
   boolean allowBatchSelects() {
     return false;
   }
 
+  boolean allowPrimitiveParameters() {
+    return true;
+  }
+
   @Override
   public boolean execute() throws SQLException {
     checkClosed();
 
-    parseIfNeeded();
-    closeResultSets();
-    verifyParameterSet();
+    Boolean res = canExecuteInferred() ? executeInferred() : null;
 
-    boolean res;
+    if (res == null) {
 
-    if (name == null) {
-      res = super.executeDirect(sqlText, parameterFormats, parameterBuffers, resultFields);
-    }
-    else {
-      res = super.executeStatement(name, parameterFormats, parameterBuffers);
+      parseIfNeeded();
+      closeResultSets();
+      verifyParameterSet();
+
+      if (name == null) {
+        res = super.executeDirect(sqlText, parameterFormats, parameterBuffers, resultFields);
+      }
+      else {
+        res = super.executeStatement(name, parameterFormats, parameterBuffers);
+      }
     }
 
     if (cursorName != null) {
@@ -348,6 +719,8 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
       res = false;
     }
 
+    parameterArena.reset(parameterBuffers);
+
     return res;
   }
 
@@ -361,6 +734,11 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
     return getResultSet();
   }
 
+  @Override
+  public <T> Stream<T> stream(RowMapper<T> mapper) throws SQLException {
+    return executeQuery().stream(mapper);
+  }
+
   @Override
   public int executeUpdate() throws SQLException {
 
@@ -381,6 +759,10 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
   public void addBatch() throws SQLException {
     checkClosed();
 
+    if (inferredParameters != null) {
+      describeIfNeeded();
+    }
+
     if (batchParameterTypes == null) {
       batchParameterTypes = new ArrayList<>();
     }
@@ -394,6 +776,8 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
     batchParameterTypes.add(parameterTypes.clone());
     batchParameterFormats.add(parameterFormats.clone());
     batchParameterBuffers.add(retainedDuplicateAll(parameterBuffers));
+
+    parameterArena.reset(parameterBuffers);
   }
 
   @Override
@@ -593,12 +977,16 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
   public void clearParameters() throws SQLException {
     checkClosed();
 
-    releaseAll(parameterBuffers);
+    fill(parameterBuffers, null);
+    parameterArena.clear();
 
     for (int parameterIdx = 0; parameterIdx < parameterSet.length; ++parameterIdx) {
       parameterSet[parameterIdx] = Boolean.FALSE;
     }
 
+    inferredParameters = null;
+    fill(parameterSQLTypes, null);
+
   }
 
   @Override
@@ -616,7 +1004,7 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
 
     parseIfNeeded();
 
-    return new PGResultSetMetaData(connection, resultFields, connection.getTypeMap());
+    return getResultSetMetaData(resultFields, connection.getTypeMap());
   }
 
   @Override
@@ -636,27 +1024,37 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
 
   @Override
   public void setShort(int parameterIndex, short x) throws SQLException {
-    set(parameterIndex, x, JDBCType.SMALLINT);
+    if (!setPrimitive(parameterIndex, JDBCType.SMALLINT, true, x, 0)) {
+      set(parameterIndex, x, JDBCType.SMALLINT);
+    }
   }
 
   @Override
   public void setInt(int parameterIndex, int x) throws SQLException {
-    set(parameterIndex, x, JDBCType.INTEGER);
+    if (!setPrimitive(parameterIndex, JDBCType.INTEGER, true, x, 0)) {
+      set(parameterIndex, x, JDBCType.INTEGER);
+    }
   }
 
   @Override
   public void setLong(int parameterIndex, long x) throws SQLException {
-    set(parameterIndex, x, JDBCType.BIGINT);
+    if (!setPrimitive(parameterIndex, JDBCType.BIGINT, true, x, 0)) {
+      set(parameterIndex, x, JDBCType.BIGINT);
+    }
   }
 
   @Override
   public void setFloat(int parameterIndex, float x) throws SQLException {
-    set(parameterIndex, x, JDBCType.FLOAT);
+    if (!setPrimitive(parameterIndex, JDBCType.FLOAT, false, 0, x)) {
+      set(parameterIndex, x, JDBCType.FLOAT);
+    }
   }
 
   @Override
   public void setDouble(int parameterIndex, double x) throws SQLException {
-    set(parameterIndex, x, JDBCType.DOUBLE);
+    if (!setPrimitive(parameterIndex, JDBCType.DOUBLE, false, 0, x)) {
+      set(parameterIndex, x, JDBCType.DOUBLE);
+    }
   }
 
   @Override
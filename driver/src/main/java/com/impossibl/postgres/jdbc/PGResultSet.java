@@ -28,6 +28,8 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.api.jdbc.RowMapper;
+import com.impossibl.postgres.api.jdbc.UncheckedSQLException;
 import com.impossibl.postgres.jdbc.Housekeeper.CleanupRunnable;
 import com.impossibl.postgres.protocol.FieldBuffersRowData;
 import com.impossibl.postgres.protocol.ResultBatch;
@@ -36,9 +38,12 @@ import com.impossibl.postgres.protocol.RowData;
 import com.impossibl.postgres.protocol.RowDataSet;
 import com.impossibl.postgres.protocol.UpdatableRowData;
 import com.impossibl.postgres.system.Context;
+import com.impossibl.postgres.system.Metrics;
 import com.impossibl.postgres.system.SettingsContext;
 import com.impossibl.postgres.system.TypeMapContext;
+import com.impossibl.postgres.system.procs.Strings;
 import com.impossibl.postgres.types.Type;
+import com.impossibl.postgres.utils.StringCache;
 import com.impossibl.postgres.utils.guava.ByteStreams;
 import com.impossibl.postgres.utils.guava.CharStreams;
 
@@ -88,6 +93,9 @@ import java.sql.Timestamp;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
@@ -99,7 +107,7 @@ import io.netty.buffer.ByteBuf;
 import static io.netty.util.ReferenceCountUtil.release;
 
 
-class PGResultSet implements ResultSet {
+class PGResultSet implements com.impossibl.postgres.api.jdbc.PGResultSet {
 
   /**
    * Cleans up server resources in the event of leaking resultset
@@ -111,12 +119,10 @@ class PGResultSet implements ResultSet {
 
     PGStatement statement;
     Query query;
-    StackTraceElement[] allocationStackTrace;
 
     private Cleanup(PGStatement statement, Query query) {
       this.statement = statement;
       this.query = query;
-      this.allocationStackTrace = new Exception().getStackTrace();
     }
 
     @Override
@@ -124,11 +130,6 @@ class PGResultSet implements ResultSet {
       return "result-set";
     }
 
-    @Override
-    public StackTraceElement[] getAllocationStackTrace() {
-      return allocationStackTrace;
-    }
-
     @Override
     public void run() {
 
@@ -168,6 +169,9 @@ class PGResultSet implements ResultSet {
   private final Housekeeper.Ref housekeeper;
   private final Object cleanupKey;
   private PGResultSetMetaData metaData;
+  private StringCache[] stringCaches;
+  private final PGResultSet viewParent;
+  private final Metrics metrics;
 
   private static final ThreadLocal<TypeMapContext> TYPE_MAP_CONTEXTS = ThreadLocal.withInitial(TypeMapContext::new);
 
@@ -207,13 +211,46 @@ class PGResultSet implements ResultSet {
     this.fetchSize = statement.fetchSize;
 
     this.context = new SettingsContext(statement.connection, typeMap);
-    updateMaxFieldSize(statement.maxFieldSize);
+    if (statement.maxFieldSize != null) {
+      updateMaxFieldSize(statement.maxFieldSize);
+    }
 
     this.housekeeper = statement.housekeeper;
     if (this.housekeeper != null)
       this.cleanupKey = housekeeper.add(this, new Cleanup(statement, query));
     else
       this.cleanupKey = null;
+
+    this.viewParent = null;
+
+    Metrics metrics = statement.connection.getMetrics();
+    this.metrics = metrics.isEnabled() ? metrics : null;
+  }
+
+  /**
+   * Creates a read-only view of a parent result set's buffered rows. Views
+   * decode using their own context so they can be used from a different
+   * thread than the parent; they do not own the rows or any server resources.
+   */
+  private PGResultSet(PGResultSet parent, RowDataSet results) {
+    this.statement = parent.statement;
+    this.fetchDirection = ResultSet.FETCH_FORWARD;
+    this.fetchSize = null;
+    this.context = new SettingsContext(parent.context, null);
+    this.housekeeper = null;
+    this.cleanupKey = null;
+    this.viewParent = parent;
+    this.scroller = new ListScroller(parent.scroller.getResultFields(), results, false);
+    this.stringCaches = parent.stringCaches;
+    this.metrics = parent.metrics;
+  }
+
+  PGResultSet createView(RowDataSet results) {
+    return new PGResultSet(this, results);
+  }
+
+  void positionView(int rowIndex) {
+    ((ListScroller) scroller).currentRowIndex = rowIndex;
   }
 
   void updateMaxFieldSize(Integer maxFieldSize) {
@@ -297,6 +334,8 @@ class PGResultSet implements ResultSet {
 
   private Object getObj(int columnIndex, Context context, Class<?> targetClass, Object targetContext) throws PGSQLSimpleException {
 
+    long startNanos = metrics != null ? System.nanoTime() : 0;
+
     Object val;
     try {
       val = scroller.getRowField(columnIndex - 1, context, targetClass, targetContext);
@@ -305,6 +344,11 @@ class PGResultSet implements ResultSet {
       throw new PGSQLSimpleException("Error decoding column", e);
     }
     nullFlag = val == null;
+
+    if (metrics != null) {
+      metrics.valueDecoded(System.nanoTime() - startNanos);
+    }
+
     return val;
   }
 
@@ -479,7 +523,12 @@ class PGResultSet implements ResultSet {
   public boolean next() throws SQLException {
     checkClosed();
 
-    return scroller.next();
+    boolean next = scroller.next();
+    if (next && metrics != null) {
+      metrics.rowRead();
+    }
+
+    return next;
   }
 
   @Override
@@ -579,6 +628,12 @@ class PGResultSet implements ResultSet {
     if (isClosed())
       return;
 
+    // Views are not tracked by the statement
+    if (viewParent != null) {
+      internalClose();
+      return;
+    }
+
     // Notify statement of our closure
     statement.handleResultSetClosure(this);
 
@@ -602,6 +657,64 @@ class PGResultSet implements ResultSet {
     statement = null;
   }
 
+  @Override
+  public <T> Spliterator<T> spliterator(RowMapper<T> mapper) throws SQLException {
+    checkClosed();
+
+    if (viewParent == null && scroller.isBuffered()) {
+      ListScroller listScroller = (ListScroller) scroller;
+      RowDataSet results = listScroller.results;
+      int start = max(listScroller.currentRowIndex + 1, 0);
+      int end = results.size();
+      listScroller.currentRowIndex = end;
+      return new RowSpliterators.Buffered<>(this, results, mapper, listScroller.getRowOffset(), start, end);
+    }
+
+    return new RowSpliterators.Cursor<>(this, mapper);
+  }
+
+  @Override
+  public <T> Stream<T> stream(RowMapper<T> mapper) throws SQLException {
+    return StreamSupport.stream(spliterator(mapper), false).onClose(this::closeStream);
+  }
+
+  private void closeStream() {
+    try {
+      close();
+    }
+    catch (SQLException e) {
+      throw new UncheckedSQLException(e);
+    }
+  }
+
+  @Override
+  public void deduplicateStrings(int columnIndex) throws SQLException {
+    checkClosed();
+    checkColumnIndex(columnIndex);
+
+    ResultField[] resultFields = scroller.getResultFields();
+    ResultField field = resultFields[columnIndex - 1];
+
+    Type type;
+    try {
+      type = context.getRegistry().resolve(field.getTypeRef());
+    }
+    catch (IOException e) {
+      throw makeSQLException(e);
+    }
+
+    if (type == null || !Strings.isDecodedAsString(type, field.getFormat())) {
+      return;
+    }
+
+    if (stringCaches == null) {
+      stringCaches = new StringCache[resultFields.length];
+    }
+    if (stringCaches[columnIndex - 1] == null) {
+      stringCaches[columnIndex - 1] = new StringCache();
+    }
+  }
+
   @Override
   public String getCursorName() throws SQLException {
     checkClosed();
@@ -615,7 +728,7 @@ class PGResultSet implements ResultSet {
 
     // Cache meta-data, allowing for result fields and type map to change
     if (metaData == null || !metaData.matches(scroller.getResultFields(), context.getCustomTypeMap())) {
-      metaData = new PGResultSetMetaData(statement.connection, scroller.getResultFields(), context.getCustomTypeMap());
+      metaData = statement.getResultSetMetaData(scroller.getResultFields(), context.getCustomTypeMap());
     }
 
     return metaData;
@@ -637,7 +750,7 @@ class PGResultSet implements ResultSet {
     checkRow();
     checkColumnIndex(columnIndex);
 
-    return getVal(columnIndex, context, String.class, null);
+    return getVal(columnIndex, context, String.class, stringCaches != null ? stringCaches[columnIndex - 1] : null);
   }
 
   @Override
@@ -1736,6 +1849,14 @@ abstract class Scroller {
 
   abstract void close() throws SQLException;
 
+  /**
+   * Determines if all the remaining rows are available locally, without
+   * further requests to the server.
+   */
+  boolean isBuffered() {
+    return false;
+  }
+
   abstract String getCursorName();
 
   abstract int getType();
@@ -1824,6 +1945,18 @@ class ListScroller extends Scroller {
     }
   }
 
+  @Override
+  boolean isBuffered() {
+    return true;
+  }
+
+  /**
+   * Number of rows preceding the current list of results.
+   */
+  int getRowOffset() {
+    return 0;
+  }
+
   @Override
   ResultField[] getResultFields() {
     return resultFields;
@@ -2001,6 +2134,16 @@ class QueryScroller extends ListScroller {
     query.dispose(resultSet.statement.connection);
   }
 
+  @Override
+  boolean isBuffered() {
+    return query.getStatus() == Completed;
+  }
+
+  @Override
+  int getRowOffset() {
+    return resultsIndexOffset;
+  }
+
   @Override
   int getType() {
     return ResultSet.TYPE_FORWARD_ONLY;
@@ -31,6 +31,8 @@ package com.impossibl.postgres.jdbc;
 import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.types.CompositeType;
 import com.impossibl.postgres.types.Registry;
+import com.impossibl.postgres.types.RelationCache;
+import com.impossibl.postgres.types.SharedRegistry;
 import com.impossibl.postgres.types.Type;
 
 import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
@@ -42,33 +44,32 @@ import static com.impossibl.postgres.system.SystemSettings.DATABASE_NAME;
 import java.io.IOException;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static java.util.Collections.emptyList;
-import static java.util.Collections.singletonList;
 
 class PGResultSetMetaData extends PGMetaData implements ResultSetMetaData {
 
   private ResultField[] resultFields;
-  private int resultFieldsHash;
-  private Map<Integer, List<ColumnData>> relationsColumnsData;
   private Map<String, Class<?>> typeMap;
   private int typeMapHash;
 
   PGResultSetMetaData(PGDirectConnection connection, ResultField[] resultFields, Map<String, Class<?>> typeMap) {
     super(connection);
     this.resultFields = resultFields;
-    this.resultFieldsHash = Arrays.hashCode(resultFields);
-    this.relationsColumnsData = new HashMap<>();
     this.typeMap = typeMap;
     this.typeMapHash = typeMap.hashCode();
   }
 
   boolean matches(ResultField[] resultFields, Map<String, Class<?>> typeMap) {
-    return this.resultFieldsHash == Arrays.hashCode(resultFields) && this.typeMapHash == typeMap.hashCode();
+    // Result fields are frequently shared (e.g. between executions of the same statement)
+    boolean fieldsMatch = this.resultFields == resultFields || Arrays.equals(this.resultFields, resultFields);
+    return fieldsMatch && this.typeMapHash == typeMap.hashCode();
   }
 
   private ColumnData getRelationColumnData(ResultField field) throws SQLException {
@@ -84,18 +85,60 @@ class PGResultSetMetaData extends PGMetaData implements ResultSetMetaData {
   private List<ColumnData> getRelationColumnsData(int relationId) throws SQLException {
     if (relationId == 0) return emptyList();
 
+    SharedRegistry sharedRegistry = connection.getRegistry().getShared();
+    RelationCache<List<ColumnData>> cache = sharedRegistry.getRelationCache();
+
+    long version = sharedRegistry.getRelationVersion(relationId);
+
     List<ColumnData> data;
-    if ((data = relationsColumnsData.get(relationId)) == null) {
-      data = loadRelationColumsData(relationId);
-      relationsColumnsData.put(relationId, data);
+    if ((data = cache.find(relationId, version)) == null) {
+      data = loadRelationsColumnsData(relationId, version, cache, sharedRegistry).get(relationId);
     }
     return data;
   }
 
-  private List<ColumnData> loadRelationColumsData(int relationId) throws SQLException {
-    String sql = getColumnSQL(" AND c.oid = ?").toString();
+  /**
+   * Loads the column data for the requested relation, along with all other
+   * relations referenced by the result fields that are not currently cached,
+   * using a single query and stores it in the shared cache.
+   */
+  private Map<Integer, List<ColumnData>> loadRelationsColumnsData(int relationId, long version, RelationCache<List<ColumnData>> cache, SharedRegistry sharedRegistry) throws SQLException {
+
+    Map<Integer, Long> relationVersions = new LinkedHashMap<>();
+    relationVersions.put(relationId, version);
+    for (ResultField resultField : resultFields) {
+      int fieldRelationId = resultField.getRelationId();
+      if (fieldRelationId == 0 || relationVersions.containsKey(fieldRelationId)) continue;
+
+      long fieldVersion = sharedRegistry.getRelationVersion(fieldRelationId);
+      if (cache.find(fieldRelationId, fieldVersion) == null) {
+        relationVersions.put(fieldRelationId, fieldVersion);
+      }
+    }
+
+    StringBuilder relationIdConditions = new StringBuilder(" AND c.oid IN (");
+    for (int c = 0; c < relationVersions.size(); ++c) {
+      relationIdConditions.append(c == 0 ? "?" : ",?");
+    }
+    relationIdConditions.append(")");
+
+    String sql = getColumnSQL(relationIdConditions).toString();
+
+    Map<Integer, List<ColumnData>> relationsColumnsData = new HashMap<>();
+    for (Integer loadRelationId : relationVersions.keySet()) {
+      relationsColumnsData.put(loadRelationId, new ArrayList<>());
+    }
+
+    for (ColumnData columnData : getColumnData(sql, new ArrayList<Object>(relationVersions.keySet()))) {
+      relationsColumnsData.get(columnData.relationId).add(columnData);
+    }
+
+    for (Map.Entry<Integer, List<ColumnData>> relationColumnsData : relationsColumnsData.entrySet()) {
+      int loadedRelationId = relationColumnsData.getKey();
+      cache.put(loadedRelationId, relationVersions.get(loadedRelationId), relationColumnsData.getValue());
+    }
 
-    return getColumnData(sql, singletonList(relationId));
+    return relationsColumnsData;
   }
 
   /**
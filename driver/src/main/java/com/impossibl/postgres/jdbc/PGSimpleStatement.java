@@ -35,13 +35,12 @@ import static com.impossibl.postgres.jdbc.Exceptions.INVALID_COMMAND_FOR_GENERAT
 import static com.impossibl.postgres.jdbc.Exceptions.NOT_SUPPORTED;
 import static com.impossibl.postgres.jdbc.Exceptions.NO_RESULT_COUNT_AVAILABLE;
 import static com.impossibl.postgres.jdbc.Exceptions.NO_RESULT_SET_AVAILABLE;
-import static com.impossibl.postgres.jdbc.SQLTextUtils.appendReturningClause;
-import static com.impossibl.postgres.jdbc.SQLTextUtils.prependCursorDeclaration;
 
 import java.sql.BatchUpdateException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import static java.lang.Boolean.TRUE;
 import static java.lang.Long.max;
 import static java.lang.Long.min;
 import static java.util.Arrays.asList;
@@ -55,10 +54,10 @@ class PGSimpleStatement extends PGStatement {
     super(connection, type, concurrency, holdability, null, null);
   }
 
-  private void setup(SQLText sqlText) {
+  private String setup(ParsedSQLText sqlText) {
 
     if (sqlText.getStatementCount() > 1) {
-      return;
+      return sqlText.getText();
     }
 
     if (resultSetConcurrency != ResultSet.CONCUR_READ_ONLY) {
@@ -67,17 +66,24 @@ class PGSimpleStatement extends PGStatement {
 
       cursorName = "cursor" + name;
 
-      if (!prependCursorDeclaration(sqlText, cursorName, resultSetType, resultSetHoldability, connection.autoCommit)) {
-
-        cursorName = name = null;
+      String cursorText = sqlText.getCursorDeclarationText(cursorName, resultSetType, resultSetHoldability, connection.autoCommit);
+      if (cursorText != null) {
+        return cursorText;
       }
 
+      cursorName = name = null;
     }
 
+    return sqlText.getText();
   }
 
   boolean execute(SQLText sqlText) throws SQLException {
 
+    return execute(new ParsedSQLText(sqlText, TRUE.equals(connection.getSettingsSnapshot().standardConformingStrings)));
+  }
+
+  boolean execute(ParsedSQLText sqlText) throws SQLException {
+
     if (name != null) {
 
       dispose(connection, name);
@@ -86,12 +92,10 @@ class PGSimpleStatement extends PGStatement {
     }
 
     if (processEscapes) {
-      SQLTextEscapes.processEscapes(sqlText, connection);
+      sqlText = sqlText.processEscapes(connection);
     }
 
-    setup(sqlText);
-
-    boolean result = executeDirect(sqlText.toString());
+    boolean result = executeDirect(setup(sqlText));
 
     if (cursorName != null) {
       result = executeDirect("FETCH ABSOLUTE 0 FROM " + cursorName);
@@ -104,7 +108,7 @@ class PGSimpleStatement extends PGStatement {
   public boolean execute(String sql) throws SQLException {
     checkClosed();
 
-    SQLText sqlText = connection.parseSQL(sql);
+    ParsedSQLText sqlText = connection.parseSQL(sql);
 
     return execute(sqlText);
   }
@@ -113,13 +117,14 @@ class PGSimpleStatement extends PGStatement {
   public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
     checkClosed();
 
-    SQLText sqlText = connection.parseSQL(sql);
+    ParsedSQLText sqlText = connection.parseSQL(sql);
 
     if (autoGeneratedKeys != RETURN_GENERATED_KEYS) {
       return execute(sqlText);
     }
 
-    if (!appendReturningClause(sqlText)) {
+    sqlText = sqlText.withReturningClause();
+    if (sqlText == null) {
       throw INVALID_COMMAND_FOR_GENERATED_KEYS;
     }
 
@@ -141,9 +146,8 @@ class PGSimpleStatement extends PGStatement {
   public boolean execute(String sql, String[] columnNames) throws SQLException {
     checkClosed();
 
-    SQLText sqlText = connection.parseSQL(sql);
-
-    if (!appendReturningClause(sqlText, asList(columnNames))) {
+    ParsedSQLText sqlText = connection.parseSQL(sql).withReturningClause(asList(columnNames));
+    if (sqlText == null) {
       throw INVALID_COMMAND_FOR_GENERATED_KEYS;
     }
 
@@ -236,7 +240,7 @@ class PGSimpleStatement extends PGStatement {
   public void addBatch(String sql) throws SQLException {
     checkClosed();
 
-    SQLText sqlText = connection.parseSQL(sql);
+    SQLText sqlText = connection.parseSQL(sql).toSQLText();
 
     if (batchCommands == null) {
       batchCommands = sqlText;
@@ -28,6 +28,7 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.api.jdbc.RowMapper;
 import com.impossibl.postgres.jdbc.Housekeeper.CleanupRunnable;
 import com.impossibl.postgres.protocol.FieldFormat;
 import com.impossibl.postgres.protocol.FieldFormatRef;
@@ -35,13 +36,16 @@ import com.impossibl.postgres.protocol.ResultBatch;
 import com.impossibl.postgres.protocol.ResultBatches;
 import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.RowDataSet;
+import com.impossibl.postgres.protocol.TypeRef;
 
 import static com.impossibl.postgres.jdbc.Exceptions.CLOSED_STATEMENT;
 import static com.impossibl.postgres.jdbc.Exceptions.ILLEGAL_ARGUMENT;
 import static com.impossibl.postgres.jdbc.Exceptions.NOT_IMPLEMENTED;
+import static com.impossibl.postgres.jdbc.Exceptions.NOT_SUPPORTED_BY_SHARED_CONNECTION;
 import static com.impossibl.postgres.jdbc.Exceptions.UNWRAP_ERROR;
 import static com.impossibl.postgres.protocol.ServerObjectType.Statement;
 import static com.impossibl.postgres.system.Empty.EMPTY_FIELDS;
+import static com.impossibl.postgres.system.Empty.EMPTY_TYPES;
 
 import java.lang.ref.WeakReference;
 import java.sql.ResultSet;
@@ -54,6 +58,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
 
 import static java.lang.Long.min;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -61,7 +66,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import io.netty.buffer.ByteBuf;
 
 
-public abstract class PGStatement implements Statement {
+public abstract class PGStatement implements com.impossibl.postgres.api.jdbc.PGStatement {
 
   static final String CACHED_STATEMENT_PREFIX = "cached-";
   static final String NO_CACHE_STATEMENT_PREFIX = "nocache-";
@@ -77,13 +82,11 @@ public abstract class PGStatement implements Statement {
     PGDirectConnection connection;
     String name;
     Collection<WeakReference<PGResultSet>> resultSets;
-    StackTraceElement[] allocationStackTrace;
 
     private Cleanup(PGDirectConnection connection, String name, Collection<WeakReference<PGResultSet>> resultSets) {
       this.connection = connection;
       this.name = name;
       this.resultSets = resultSets;
-      this.allocationStackTrace = new Exception().getStackTrace();
     }
 
     @Override
@@ -91,11 +94,6 @@ public abstract class PGStatement implements Statement {
       return "statement";
     }
 
-    @Override
-    public StackTraceElement[] getAllocationStackTrace() {
-      return allocationStackTrace;
-    }
-
     @Override
     public void run() {
 
@@ -133,6 +131,7 @@ public abstract class PGStatement implements Statement {
   boolean autoClose;
   Collection<WeakReference<PGResultSet>> activeResultSets;
   PGResultSet generatedKeysResultSet;
+  PGResultSetMetaData resultSetMetaData;
   SQLWarning warningChain;
   int queryTimeout;
   final Housekeeper.Ref housekeeper;
@@ -288,6 +287,7 @@ public abstract class PGStatement implements Statement {
     connection = null;
     query = null;
     resultFields = null;
+    resultSetMetaData = null;
     generatedKeysResultSet = null;
   }
 
@@ -299,11 +299,12 @@ public abstract class PGStatement implements Statement {
     return !resultBatches.isEmpty() && resultBatches.get(0).hasRowsAffected();
   }
 
-  private boolean shouldUseFetchSize() {
+  boolean shouldUseFetchSize() {
     // Only use if fetch size is requested &
     // we aren't executing a cursor request; cursor
-    // requests always return 0 or 1 row.
-    return fetchSize != null && cursorName == null;
+    // requests always return 0 or 1 row. Shared
+    // connections cannot hold suspended portals.
+    return fetchSize != null && cursorName == null && !connection.shared;
   }
 
   boolean executeDirect(String sqlText) throws SQLException {
@@ -319,13 +320,31 @@ public abstract class PGStatement implements Statement {
    *          If an error occurred during statement execution
    */
   boolean executeDirect(String sqlText, FieldFormat[] parameterFormats, ByteBuf[] parameterBuffers, FieldFormatRef[] resultFieldFormats) throws SQLException {
+    return executeDirect(sqlText, null, EMPTY_TYPES, parameterFormats, parameterBuffers, resultFieldFormats);
+  }
+
+  /**
+   * Parse (using the provided parameter types) and execute the sql text
+   * in a single request.
+   *
+   * @param sqlText SQL text to execute
+   * @param statementName Name of backend statement to prepare or null
+   * @param parameterTypes List of parameter types, null elements are inferred by the server
+   * @param parameterFormats List of parameter formats
+   * @param parameterBuffers List of parameter values
+   * @param resultFieldFormats List of result field formats
+   * @return true if command returned results or false if not
+   * @throws SQLException
+   *          If an error occurred during statement execution
+   */
+  boolean executeDirect(String sqlText, String statementName, TypeRef[] parameterTypes, FieldFormat[] parameterFormats, ByteBuf[] parameterBuffers, FieldFormatRef[] resultFieldFormats) throws SQLException {
 
     try {
 
       closeResultSets();
       resultBatches = ResultBatches.releaseAll(resultBatches);
 
-      Query query = new DirectQuery(sqlText, parameterFormats, parameterBuffers, resultFieldFormats);
+      Query query = new DirectQuery(sqlText, statementName, parameterTypes, parameterFormats, parameterBuffers, resultFieldFormats);
 
       query.setTimeout(SECONDS.toMillis(queryTimeout));
 
@@ -338,6 +357,8 @@ public abstract class PGStatement implements Statement {
       this.query = query;
       this.resultBatches = query.getResultBatches();
 
+      connection.checkRelationChanges(resultBatches);
+
       return hasResults();
     }
     catch (SQLException e) {
@@ -380,6 +401,8 @@ public abstract class PGStatement implements Statement {
       this.query = query;
       this.resultBatches = query.getResultBatches();
 
+      connection.checkRelationChanges(resultBatches);
+
       return hasResults();
     }
     catch (SQLException e) {
@@ -391,6 +414,25 @@ public abstract class PGStatement implements Statement {
 
   }
 
+  /**
+   * Returns meta-data for the given result fields, reusing the meta-data
+   * of previous executions when the fields (and type map) match.
+   *
+   * @param resultFields Result fields to describe
+   * @param typeMap Custom type map
+   * @return Result set meta-data
+   */
+  PGResultSetMetaData getResultSetMetaData(ResultField[] resultFields, Map<String, Class<?>> typeMap) {
+
+    PGResultSetMetaData metaData = resultSetMetaData;
+    if (metaData == null || !metaData.matches(resultFields, typeMap)) {
+      metaData = new PGResultSetMetaData(connection, resultFields, typeMap);
+      resultSetMetaData = metaData;
+    }
+
+    return metaData;
+  }
+
   public PGResultSet createResultSet(ResultField[] resultFields, RowDataSet results, boolean releaseResults, Map<String, Class<?>> typeMap) throws SQLException {
 
     PGResultSet resultSet = new PGResultSet(this, resultFields, results, releaseResults, typeMap);
@@ -581,6 +623,12 @@ public abstract class PGStatement implements Statement {
       throw new SQLException("invalid query timeout");
     }
 
+    // Cancelling a timed out statement cancels whatever the server is
+    // executing, which may be another thread's pipelined statement
+    if (queryTimeout > 0 && connection.shared) {
+      throw NOT_SUPPORTED_BY_SHARED_CONNECTION;
+    }
+
     this.queryTimeout = queryTimeout;
   }
 
@@ -643,6 +691,11 @@ public abstract class PGStatement implements Statement {
     }
   }
 
+  @Override
+  public <T> Stream<T> stream(String sql, RowMapper<T> mapper) throws SQLException {
+    return ((PGResultSet) executeQuery(sql)).stream(mapper);
+  }
+
   @Override
   public int getUpdateCount() throws SQLException {
 
@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import static java.lang.Math.max;
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+
+/**
+ * Storage for the encoded parameter values of a statement.
+ *
+ * Values are encoded directly into a shared buffer and exposed as
+ * slices of it, using an offset table to track the location of each
+ * parameter's value.
+ *
+ * Between executions the arena is {@link #reset(ByteBuf[]) reset}, which
+ * recycles the space of values that were replaced since the previous
+ * reset. Two buffers are used; values set since the last reset are
+ * written to the current buffer while the values from before it remain
+ * valid in the previous buffer. This allows the common pattern of
+ * replacing every parameter between executions to recycle buffers
+ * without copying any values.
+ *
+ * Slices of the arena may be retained (e.g. for batches). Buffers with
+ * outstanding references are never reused and are released instead.
+ */
+class ParameterArena {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private ByteBufAllocator alloc;
+  private ByteBuf current;
+  private ByteBuf previous;
+  private int[] offsets;
+  private int[] lengths;
+  private boolean[] inPrevious;
+  private int beginIndex;
+
+  ParameterArena(ByteBufAllocator alloc, int parameterCount) {
+    this.alloc = alloc;
+    this.offsets = new int[parameterCount];
+    this.lengths = new int[parameterCount];
+    this.inPrevious = new boolean[parameterCount];
+    this.beginIndex = -1;
+    fill(lengths, -1);
+  }
+
+  private void ensureParameterCount(int parameterCount) {
+    if (parameterCount <= offsets.length) {
+      return;
+    }
+
+    int oldCount = offsets.length;
+
+    offsets = copyOf(offsets, parameterCount);
+    lengths = copyOf(lengths, parameterCount);
+    inPrevious = copyOf(inPrevious, parameterCount);
+    fill(lengths, oldCount, parameterCount, -1);
+  }
+
+  /**
+   * Begins writing the value of a parameter.
+   *
+   * @param parameterIdx Index of the parameter
+   * @return Buffer the value should be appended to
+   */
+  ByteBuf begin(int parameterIdx) {
+    ensureParameterCount(parameterIdx + 1);
+
+    if (current == null) {
+      current = alloc.buffer(INITIAL_CAPACITY);
+    }
+
+    beginIndex = current.writerIndex();
+
+    return current;
+  }
+
+  /**
+   * Completes writing the value of a parameter started with {@link #begin(int)}.
+   *
+   * @param parameterIdx Index of the parameter
+   * @return Slice containing the parameter's value
+   */
+  ByteBuf end(int parameterIdx) {
+
+    int length = current.writerIndex() - beginIndex;
+
+    offsets[parameterIdx] = beginIndex;
+    lengths[parameterIdx] = length;
+    inPrevious[parameterIdx] = false;
+
+    beginIndex = -1;
+
+    return current.slice(offsets[parameterIdx], length);
+  }
+
+  /**
+   * Discards a value started with {@link #begin(int)} that could not
+   * be completed.
+   */
+  void abort() {
+
+    if (beginIndex != -1) {
+      current.writerIndex(beginIndex);
+      beginIndex = -1;
+    }
+  }
+
+  /**
+   * Clears the value of a parameter (e.g. when set to null).
+   *
+   * @param parameterIdx Index of the parameter
+   */
+  void clear(int parameterIdx) {
+    ensureParameterCount(parameterIdx + 1);
+
+    lengths[parameterIdx] = -1;
+    inPrevious[parameterIdx] = false;
+  }
+
+  /**
+   * Clears all parameter values.
+   */
+  void clear() {
+    fill(lengths, -1);
+    fill(inPrevious, false);
+  }
+
+  /**
+   * Recycles space used by values that have been replaced since the
+   * last reset.
+   *
+   * Values still located in the previous buffer are moved to the current
+   * buffer when at least as many bytes have been written since the last
+   * reset; amortizing the copy against the writes. Otherwise the buffers
+   * are left as is until enough values have been written.
+   *
+   * @param views Parameter value slices, updated with the new location
+   *              of any moved values.
+   */
+  void reset(ByteBuf[] views) {
+
+    if (current == null || current.writerIndex() == 0) {
+      return;
+    }
+
+    int previousBytes = 0;
+    for (int parameterIdx = 0; parameterIdx < offsets.length; ++parameterIdx) {
+      if (inPrevious[parameterIdx] && lengths[parameterIdx] > 0) {
+        previousBytes += lengths[parameterIdx];
+      }
+    }
+
+    if (previousBytes > current.writerIndex()) {
+      return;
+    }
+
+    for (int parameterIdx = 0; parameterIdx < offsets.length; ++parameterIdx) {
+      if (!inPrevious[parameterIdx]) {
+        continue;
+      }
+
+      int offset = current.writerIndex();
+      int length = lengths[parameterIdx];
+      if (length > 0) {
+        current.writeBytes(previous, offsets[parameterIdx], length);
+      }
+
+      offsets[parameterIdx] = offset;
+      if (parameterIdx < views.length && views[parameterIdx] != null) {
+        views[parameterIdx] = current.slice(offset, max(length, 0));
+      }
+    }
+
+    ByteBuf recycled = previous;
+
+    previous = current;
+    fill(inPrevious, true);
+
+    if (recycled != null && recycled.refCnt() == 1) {
+      current = recycled.clear();
+    }
+    else {
+      if (recycled != null) {
+        recycled.release();
+      }
+      current = null;
+    }
+  }
+
+  /**
+   * Releases the arena's buffers. Slices of the arena are invalid
+   * after releasing, unless retained.
+   */
+  void release() {
+
+    if (current != null) {
+      current.release();
+      current = null;
+    }
+
+    if (previous != null) {
+      previous.release();
+      previous = null;
+    }
+
+    clear();
+  }
+
+}
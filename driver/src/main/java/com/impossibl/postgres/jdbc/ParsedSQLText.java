@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.jdbc.SQLTextTree.EscapeNode;
+import com.impossibl.postgres.jdbc.SQLTextTree.Node;
+import com.impossibl.postgres.jdbc.SQLTextTree.ParameterPiece;
+import com.impossibl.postgres.jdbc.SQLTextTree.StatementNode;
+import com.impossibl.postgres.system.Context;
+
+import static com.impossibl.postgres.jdbc.SQLTextUtils.appendReturningClause;
+import static com.impossibl.postgres.jdbc.SQLTextUtils.hasReturningClause;
+
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Immutable result of parsing SQL text.
+ *
+ * Instances are shared (e.g. via the parsed SQL cache) and must never be
+ * modified; the parsed tree is only ever copied. The properties needed to
+ * prepare &amp; execute the text are computed once when parsed and variants
+ * derived from it (e.g. with a RETURNING clause) are cached with it.
+ *
+ * @see SQLText
+ */
+final class ParsedSQLText {
+
+  private final SQLText template;
+  private final boolean standardConformingStrings;
+  private final String text;
+  private final int statementCount;
+  private final int parameterCount;
+  private final boolean escapeFree;
+  private final boolean returningClause;
+  private final boolean singleSelect;
+  private volatile ParsedSQLText escapesProcessedVariant;
+  private volatile ParsedSQLText returningAllVariant;
+  private final Map<List<String>, ParsedSQLText> returningColumnsVariants;
+
+  ParsedSQLText(SQLText sqlText, boolean standardConformingStrings) throws SQLException {
+    this(sqlText, standardConformingStrings, true);
+  }
+
+  private ParsedSQLText(SQLText sqlText, boolean standardConformingStrings, boolean scan) throws SQLException {
+    this.template = sqlText;
+    this.standardConformingStrings = standardConformingStrings;
+    this.text = sqlText.toString();
+    this.statementCount = sqlText.getStatementCount();
+
+    int[] parameterCount = new int[1];
+    boolean[] escapeFree = new boolean[] {true};
+    if (scan) {
+      sqlText.process(node -> {
+        if (node instanceof ParameterPiece)
+          parameterCount[0] += 1;
+        else if (node instanceof EscapeNode)
+          escapeFree[0] = false;
+        return node;
+      }, true);
+    }
+
+    this.parameterCount = parameterCount[0];
+    this.escapeFree = escapeFree[0];
+
+    StatementNode lastStatement = sqlText.getLastStatement();
+    this.returningClause = lastStatement != null && hasReturningClause(lastStatement);
+
+    Node firstNode = statementCount == 1 ? sqlText.getFirstStatement().getFirstNode() : null;
+    this.singleSelect = firstNode != null && firstNode.toString().equalsIgnoreCase("SELECT");
+
+    this.returningColumnsVariants = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Parses SQL text.
+   *
+   * The tree is only walked (to count parameters and locate escapes) when
+   * the raw text contains a '?' or '{'; text without either character cannot
+   * contain parameters or escapes, so parsing it is a single pass.
+   */
+  static ParsedSQLText parse(String sql, boolean standardConformingStrings) throws ParseException, SQLException {
+    boolean scan = sql.indexOf('?') != -1 || sql.indexOf('{') != -1;
+    return new ParsedSQLText(new SQLText(sql, standardConformingStrings), standardConformingStrings, scan);
+  }
+
+  boolean isStandardConformingStrings() {
+    return standardConformingStrings;
+  }
+
+  /**
+   * @return Text in PostgreSQL's native dialect (e.g. with numbered parameters)
+   */
+  String getText() {
+    return text;
+  }
+
+  int getStatementCount() {
+    return statementCount;
+  }
+
+  int getParameterCount() {
+    return parameterCount;
+  }
+
+  /**
+   * @return True if the text contains no JDBC escapes
+   */
+  boolean isEscapeFree() {
+    return escapeFree;
+  }
+
+  /**
+   * @return Modifiable copy of the parsed text
+   */
+  SQLText toSQLText() {
+    return template.copy();
+  }
+
+  /**
+   * Processes JDBC escapes in the text.
+   *
+   * Escape rewriting does not depend on the context's state, so the
+   * processed variant is computed once and cached with this instance.
+   *
+   * @param context Context used for escape processing
+   * @return Text with escapes processed; this instance if it contains no escapes
+   * @throws SQLException If an escape is invalid
+   */
+  ParsedSQLText processEscapes(Context context) throws SQLException {
+
+    if (escapeFree) {
+      return this;
+    }
+
+    ParsedSQLText variant = escapesProcessedVariant;
+    if (variant == null) {
+
+      SQLText sqlText = toSQLText();
+
+      SQLTextEscapes.processEscapes(sqlText, context);
+
+      variant = escapesProcessedVariant = new ParsedSQLText(sqlText, standardConformingStrings);
+    }
+
+    return variant;
+  }
+
+  /**
+   * Retrieves the variant of the text with a "RETURNING *" clause.
+   *
+   * @return Variant of the text or null if the text cannot be appended to
+   * @throws SQLException If an error occurs deriving the variant
+   */
+  ParsedSQLText withReturningClause() throws SQLException {
+
+    if (returningClause) {
+      return this;
+    }
+
+    if (statementCount > 1) {
+      return null;
+    }
+
+    ParsedSQLText variant = returningAllVariant;
+    if (variant == null) {
+
+      SQLText sqlText = toSQLText();
+      appendReturningClause(sqlText);
+
+      variant = returningAllVariant = new ParsedSQLText(sqlText, standardConformingStrings);
+    }
+
+    return variant;
+  }
+
+  /**
+   * Retrieves the variant of the text with a RETURNING clause for the
+   * provided columns.
+   *
+   * @param columns Columns to return
+   * @return Variant of the text or null if the text cannot be appended to
+   * @throws SQLException If an error occurs deriving the variant
+   */
+  ParsedSQLText withReturningClause(List<String> columns) throws SQLException {
+
+    if (returningClause) {
+      return this;
+    }
+
+    if (statementCount > 1) {
+      return null;
+    }
+
+    List<String> key = new ArrayList<>(columns);
+
+    ParsedSQLText variant = returningColumnsVariants.get(key);
+    if (variant == null) {
+
+      SQLText sqlText = toSQLText();
+      appendReturningClause(sqlText, key);
+
+      variant = new ParsedSQLText(sqlText, standardConformingStrings);
+
+      returningColumnsVariants.putIfAbsent(key, variant);
+    }
+
+    return variant;
+  }
+
+  /**
+   * Generates the text prefixed with a cursor declaration.
+   *
+   * @return Text with declaration or null if the text cannot be declared as a cursor
+   * @see SQLTextUtils#prependCursorDeclaration(SQLText, String, int, int, boolean)
+   */
+  String getCursorDeclarationText(String cursorName, int resultSetType, int resultSetHoldability, boolean autoCommit) {
+
+    if (!singleSelect) {
+      return null;
+    }
+
+    return SQLTextUtils.getCursorDeclarationText(cursorName, resultSetType, resultSetHoldability, autoCommit) + text;
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+
+}
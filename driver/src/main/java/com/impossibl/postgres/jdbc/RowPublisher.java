@@ -0,0 +1,490 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGFlow;
+import com.impossibl.postgres.api.jdbc.RowMapper;
+import com.impossibl.postgres.protocol.Notice;
+import com.impossibl.postgres.protocol.RequestExecutor;
+import com.impossibl.postgres.protocol.ResultField;
+import com.impossibl.postgres.protocol.RowDataSet;
+import com.impossibl.postgres.protocol.TransactionStatus;
+import com.impossibl.postgres.protocol.TypeRef;
+
+import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
+import static com.impossibl.postgres.system.Empty.EMPTY_FORMATS;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+import static io.netty.util.ReferenceCountUtil.release;
+import static io.netty.util.ReferenceCountUtil.retain;
+
+/**
+ * Publishes the mapped rows of a query as they are requested.
+ *
+ * Each subscription executes the query in its own portal, fetching rows
+ * with {@code Execute(maxRows)} only when the subscriber has outstanding
+ * demand and resuming the suspended portal as more is requested. At most
+ * one group of rows is buffered per subscription, so memory is bounded by
+ * demand (capped by the connection's default fetch size) instead of the
+ * size of the result.
+ *
+ * Rows are mapped, through a read-only result set view positioned on each
+ * received row, and all signals delivered, on the common
+ * {@link ForkJoinPool}; never on the connection's I/O thread.
+ */
+class RowPublisher<T> implements PGFlow.Publisher<T> {
+
+  private static final Executor SIGNAL_EXECUTOR = ForkJoinPool.commonPool();
+
+  static final int DEFAULT_FETCH_SIZE_MAX = 1000;
+
+  private PGDirectConnection connection;
+  private String sql;
+  private Object[] parameters;
+  private RowMapper<T> mapper;
+
+  RowPublisher(PGDirectConnection connection, String sql, Object[] parameters, RowMapper<T> mapper) {
+    this.connection = connection;
+    this.sql = sql;
+    this.parameters = parameters;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public void subscribe(PGFlow.Subscriber<? super T> subscriber) {
+    requireNonNull(subscriber, "subscriber");
+
+    RowSubscription<T> subscription = new RowSubscription<>(connection, mapper, subscriber);
+    try {
+      subscription.request = AsyncQuery.Request.encode(connection, sql, parameters);
+      subscription.portalName = connection.getNextPortalName();
+    }
+    catch (SQLException e) {
+      subscription.failure = e;
+      subscription.closed = true;
+    }
+
+    subscription.start();
+  }
+
+  /**
+   * State of a single subscription.
+   *
+   * All state, apart from demand and that delivered by request callbacks, is
+   * only accessed while draining; draining is serialized, each drain running
+   * on {@link #SIGNAL_EXECUTOR} until no more work is signalled.
+   */
+  private static class RowSubscription<T> implements PGFlow.Subscription, RequestExecutor.ExtendedQueryHandler, RequestExecutor.ResumeHandler {
+
+    private PGDirectConnection connection;
+    private RowMapper<T> mapper;
+    private PGFlow.Subscriber<? super T> subscriber;
+    private int fetchSizeMax;
+
+    private final AtomicInteger work = new AtomicInteger(1);
+    private final AtomicLong demand = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile IllegalArgumentException invalidRequest;
+
+    // Drain state
+    private AsyncQuery.Request request;
+    private String portalName;
+    private boolean started;
+    private boolean fetching;
+    private boolean exhausted;
+    private boolean closing;
+    private boolean closed;
+    private boolean terminated;
+    private Throwable failure;
+    private PGStatement statement;
+    private PGResultSet resultSet;
+    private RowDataSet rows;
+    private PGResultSet rowsView;
+    private int rowIndex;
+    private int rowNumber;
+
+    // Delivered by request callbacks
+    private volatile boolean fetched;
+    private volatile boolean finished;
+    private volatile Throwable finishError;
+    private ResultField[] fetchedFields;
+    private RowDataSet fetchedRows;
+    private boolean fetchedSuspended;
+    private Throwable fetchedError;
+
+    RowSubscription(PGDirectConnection connection, RowMapper<T> mapper, PGFlow.Subscriber<? super T> subscriber) {
+      this.connection = connection;
+      this.mapper = mapper;
+      this.subscriber = subscriber;
+      Integer defaultFetchSize = connection.getDefaultFetchSize();
+      this.fetchSizeMax = defaultFetchSize != null && defaultFetchSize > 0 ? defaultFetchSize : DEFAULT_FETCH_SIZE_MAX;
+    }
+
+    void start() {
+      // Draining is held (work starts at one) until the subscriber has been
+      // signalled, any demand it adds is handled by the initial drain
+      try {
+        subscriber.onSubscribe(this);
+      }
+      finally {
+        SIGNAL_EXECUTOR.execute(this::drain);
+      }
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("Requested item count must be positive, was " + n);
+        cancelled = true;
+      }
+      else {
+        demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+      }
+      signal();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      signal();
+    }
+
+    private void signal() {
+      if (work.getAndIncrement() == 0) {
+        SIGNAL_EXECUTOR.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      int missed = 1;
+      do {
+        try {
+          drainOnce();
+        }
+        catch (Throwable t) {
+          fail(t);
+          drainOnce();
+        }
+        missed = work.addAndGet(-missed);
+      }
+      while (missed != 0);
+    }
+
+    private void drainOnce() {
+
+      if (terminated) {
+        return;
+      }
+
+      if (fetching && fetched) {
+        fetching = false;
+        fetched = false;
+        receive();
+      }
+
+      // Emit received rows while there is demand
+      while (rows != null && !cancelled && failure == null) {
+        if (rowIndex >= rows.size()) {
+          releaseRows();
+          break;
+        }
+        if (demand.get() == 0) {
+          break;
+        }
+        T item;
+        try {
+          item = map();
+        }
+        catch (SQLException e) {
+          fail(e);
+          break;
+        }
+        demand.decrementAndGet();
+        subscriber.onNext(item);
+      }
+
+      if (cancelled) {
+        releaseRows();
+      }
+
+      if (rows == null && !fetching && !closing && !closed) {
+        if (cancelled || failure != null || exhausted) {
+          close();
+        }
+        else if (demand.get() > 0) {
+          fetch();
+        }
+      }
+
+      if (closing && finished) {
+        closing = false;
+        closed = true;
+        if (finishError != null) {
+          fail(finishError);
+        }
+      }
+
+      if (closed) {
+        terminate();
+      }
+    }
+
+    private void receive() {
+
+      // Parameters are only required until the first response
+      if (request != null) {
+        request.release();
+        request = null;
+      }
+
+      if (fetchedError != null) {
+        fail(fetchedError);
+        return;
+      }
+
+      RowDataSet received = fetchedRows;
+      fetchedRows = null;
+
+      if (cancelled || failure != null) {
+        release(received);
+        return;
+      }
+
+      try {
+        if (resultSet == null) {
+          createResultSet(fetchedFields);
+        }
+      }
+      catch (SQLException e) {
+        release(received);
+        fail(e);
+        return;
+      }
+
+      exhausted = !fetchedSuspended;
+      if (received.isEmpty()) {
+        release(received);
+        return;
+      }
+
+      rows = received;
+      rowsView = resultSet.createView(rows);
+      rowIndex = 0;
+    }
+
+    private void createResultSet(ResultField[] fields) throws SQLException {
+
+      // Resolving types may require queries and cannot be done in request callbacks
+      try {
+        for (ResultField field : fields) {
+          field.setTypeRef(connection.getRegistry().resolve(field.getTypeRef()));
+        }
+      }
+      catch (IOException e) {
+        throw makeSQLException(e);
+      }
+
+      statement = connection.createStatement();
+      resultSet = statement.createResultSet(fields, new RowDataSet(), true, connection.getTypeMap());
+    }
+
+    private T map() throws SQLException {
+      rowsView.positionView(rowIndex++);
+      return mapper.mapRow(rowsView, ++rowNumber);
+    }
+
+    private void fetch() {
+
+      int fetchSize = (int) min(demand.get(), fetchSizeMax);
+
+      fetching = true;
+      try {
+        if (!started) {
+          started = true;
+          AsyncQuery.Request request = this.request;
+          connection.execute((long timeout) -> {
+            connection.getRequestExecutor().query(request.sql, null, request.parameterTypes, portalName,
+                request.parameterFormats, request.parameterBuffers, EMPTY_FORMATS, fetchSize, this);
+          });
+        }
+        else {
+          connection.execute((long timeout) -> {
+            connection.getRequestExecutor().resume(portalName, fetchSize, this);
+          });
+        }
+      }
+      catch (SQLException e) {
+        // Nothing is outstanding on the connection
+        fetching = false;
+        closed = true;
+        fail(e);
+      }
+    }
+
+    private void close() {
+
+      if (!started) {
+        closed = true;
+        return;
+      }
+
+      closing = true;
+      try {
+        connection.execute((long timeout) -> {
+          connection.getRequestExecutor().finish(portalName, new RequestExecutor.SynchronizedHandler() {
+
+            @Override
+            public void handleReady(TransactionStatus transactionStatus) {
+              finished = true;
+              signal();
+            }
+
+            @Override
+            public void handleError(Throwable cause, List<Notice> notices) {
+              finishError = cause;
+            }
+
+          });
+        });
+      }
+      catch (SQLException e) {
+        closing = false;
+        closed = true;
+        fail(e);
+      }
+    }
+
+    private void fail(Throwable cause) {
+      if (failure == null) {
+        if (cause instanceof SQLException || !(cause instanceof Exception)) {
+          failure = cause;
+        }
+        else {
+          failure = makeSQLException((Exception) cause);
+        }
+      }
+      releaseRows();
+    }
+
+    private void releaseRows() {
+      if (rows != null) {
+        release(rows);
+        rows = null;
+        rowsView = null;
+      }
+    }
+
+    private void terminate() {
+      terminated = true;
+
+      releaseRows();
+
+      if (request != null) {
+        request.release();
+        request = null;
+      }
+
+      if (statement != null) {
+        try {
+          statement.close();
+        }
+        catch (SQLException ignored) {
+          // Statement has no server resources
+        }
+        statement = null;
+      }
+
+      if (invalidRequest != null) {
+        subscriber.onError(invalidRequest);
+      }
+      else if (failure != null && !cancelled) {
+        subscriber.onError(failure);
+      }
+      else if (!cancelled) {
+        subscriber.onComplete();
+      }
+    }
+
+    /*
+     * Request callbacks (called on the connection's I/O thread)
+     */
+
+    private void received(ResultField[] fields, RowDataSet rows, boolean suspended) {
+      fetchedFields = fields;
+      fetchedRows = retain(rows);
+      fetchedSuspended = suspended;
+      fetched = true;
+      signal();
+    }
+
+    @Override
+    public void handleSuspend(TypeRef[] parameterTypes, ResultField[] resultFields, RowDataSet rows, List<Notice> notices) {
+      received(resultFields, rows, true);
+    }
+
+    @Override
+    public void handleComplete(String command, Long rowsAffected, Long insertedOid, TypeRef[] parameterTypes, ResultField[] resultFields, RowDataSet rows, List<Notice> notices) {
+      received(resultFields, rows, false);
+    }
+
+    @Override
+    public void handleSuspend(RowDataSet rows, List<Notice> notices) {
+      received(null, rows, true);
+    }
+
+    @Override
+    public void handleComplete(String command, Long rowsAffected, Long insertedOid, RowDataSet rows, List<Notice> notices) {
+      received(null, rows, false);
+    }
+
+    @Override
+    public void handleReady(TransactionStatus transactionStatus) {
+      // Portal executions are not synchronized
+    }
+
+    @Override
+    public void handleError(Throwable cause, List<Notice> notices) {
+      fetchedError = cause;
+      fetched = true;
+      signal();
+    }
+
+  }
+
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.RowMapper;
+import com.impossibl.postgres.api.jdbc.UncheckedSQLException;
+import com.impossibl.postgres.protocol.RowDataSet;
+
+import static com.impossibl.postgres.jdbc.Exceptions.CLOSED_RESULT_SET;
+
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Spliterators that map result set rows using a {@link RowMapper}.
+ */
+class RowSpliterators {
+
+  /**
+   * Minimum number of rows in a split chunk. Splitting into smaller
+   * chunks costs more in task overhead than is gained by decoding
+   * them in parallel.
+   */
+  static final int MIN_CHUNK_SIZE = 128;
+
+  /**
+   * Sized, splittable spliterator over a range of rows that have been
+   * fully received from the server.
+   *
+   * Each split decodes its rows through its own read-only view of the
+   * result set, allowing splits to be traversed concurrently.
+   */
+  static class Buffered<T> implements Spliterator<T> {
+
+    private PGResultSet resultSet;
+    private RowDataSet results;
+    private RowMapper<T> mapper;
+    private int rowOffset;
+    private int index;
+    private int fence;
+    private PGResultSet view;
+
+    Buffered(PGResultSet resultSet, RowDataSet results, RowMapper<T> mapper, int rowOffset, int index, int fence) {
+      this.resultSet = resultSet;
+      this.results = results;
+      this.mapper = mapper;
+      this.rowOffset = rowOffset;
+      this.index = index;
+      this.fence = fence;
+    }
+
+    private T map(int rowIndex) {
+      try {
+        if (resultSet.isClosed()) {
+          throw CLOSED_RESULT_SET;
+        }
+        if (view == null) {
+          view = resultSet.createView(results);
+        }
+        view.positionView(rowIndex);
+        return mapper.mapRow(view, rowOffset + rowIndex + 1);
+      }
+      catch (SQLException e) {
+        throw new UncheckedSQLException(e);
+      }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (index >= fence) {
+        return false;
+      }
+      action.accept(map(index++));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      while (index < fence) {
+        action.accept(map(index++));
+      }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      int mid = (index + fence) >>> 1;
+      if (mid - index < MIN_CHUNK_SIZE) {
+        return null;
+      }
+      Spliterator<T> prefix = new Buffered<>(resultSet, results, mapper, rowOffset, index, mid);
+      index = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED;
+    }
+
+  }
+
+  /**
+   * Sequential spliterator that maps rows as the result set's cursor
+   * is advanced.
+   */
+  static class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+
+    private PGResultSet resultSet;
+    private RowMapper<T> mapper;
+
+    Cursor(PGResultSet resultSet, RowMapper<T> mapper) {
+      super(Long.MAX_VALUE, ORDERED);
+      this.resultSet = resultSet;
+      this.mapper = mapper;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      try {
+        if (!resultSet.next()) {
+          return false;
+        }
+        action.accept(mapper.mapRow(resultSet, resultSet.getRow()));
+        return true;
+      }
+      catch (SQLException e) {
+        throw new UncheckedSQLException(e);
+      }
+    }
+
+  }
+
+}
@@ -52,6 +52,11 @@ import static java.sql.Connection.TRANSACTION_SERIALIZABLE;
  */
 class SQLTextUtils {
 
+  // Object types of ALTER/DROP commands that can change existing relations
+  private static final String[] RELATION_CHANGING_OBJECTS = {
+    "TABLE", "VIEW", "MATERIALIZED VIEW", "FOREIGN TABLE", "TYPE", "DOMAIN", "SCHEMA", "EXTENSION"
+  };
+
   /**
    * Tests the given value for equality to "true"
    *
@@ -72,6 +77,44 @@ class SQLTextUtils {
     return "off".equals(value);
   }
 
+  /**
+   * Tests whether the given command tag reports a command that can alter
+   * the definition of existing relations (e.g. "ALTER TABLE" or
+   * "DROP VIEW"). Commands that only create new relations, or change
+   * objects not reflected in result metadata (e.g. "CREATE INDEX" or
+   * "COMMENT"), are not considered.
+   *
+   * @param command Command tag to test
+   * @return true if the command may have changed the catalog's relations
+   */
+  public static boolean isRelationChangingCommand(String command) {
+    if (command == null) {
+      return false;
+    }
+
+    String object;
+    if (command.startsWith("ALTER ")) {
+      object = command.substring(6);
+    }
+    else if (command.startsWith("DROP ")) {
+      object = command.substring(5);
+      if (object.equals("OWNED")) {
+        return true;
+      }
+    }
+    else {
+      // CREATE OR REPLACE VIEW reports "CREATE VIEW"
+      return command.equals("CREATE VIEW");
+    }
+
+    for (String relationObject : RELATION_CHANGING_OBJECTS) {
+      if (object.equals(relationObject)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Translates a JDBC isolation code to text
    *
@@ -249,6 +292,16 @@ class SQLTextUtils {
       return false;
     }
 
+    return prependClause(sqlText, getCursorDeclarationText(cursorName, resultSetType, resultSetHoldability, autoCommit));
+  }
+
+  /**
+   * Generates the text of a cursor declaration that prefixes a query.
+   *
+   * @return Cursor declaration text
+   */
+  public static String getCursorDeclarationText(String cursorName, int resultSetType, int resultSetHoldability, boolean autoCommit) {
+
     String preCursor = "DECLARE " + cursorName + " BINARY ";
 
     if (resultSetType != ResultSet.TYPE_FORWARD_ONLY) {
@@ -266,7 +319,7 @@ class SQLTextUtils {
 
     preCursor += "FOR ";
 
-    return prependClause(sqlText, preCursor);
+    return preCursor;
   }
 
   /**
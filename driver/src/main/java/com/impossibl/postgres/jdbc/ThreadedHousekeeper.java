@@ -28,12 +28,14 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.jdbc.JDBCSettings.LeakDetection;
+
 import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -56,6 +58,13 @@ public class ThreadedHousekeeper implements Housekeeper {
   public class Ref implements Housekeeper.Ref {
 
     private AtomicBoolean released = new AtomicBoolean(false);
+    private LeakDetection leakDetection;
+    private int samplingInterval;
+
+    Ref(LeakDetection leakDetection, int samplingInterval) {
+      this.leakDetection = leakDetection;
+      this.samplingInterval = samplingInterval;
+    }
 
     @Override
     public ThreadedHousekeeper get() {
@@ -68,9 +77,32 @@ public class ThreadedHousekeeper implements Housekeeper {
       ThreadedHousekeeper.release();
     }
 
+    /**
+     * Tracks the reference, capturing its allocation trace according to
+     * the leak detection level. Traces are captured as a
+     * {@link Throwable}, their stack trace elements are only
+     * materialized when a leak is reported.
+     */
     @Override
     public <T> Object add(T reference, CleanupRunnable cleanup) {
-      return ThreadedHousekeeper.this.add(reference, cleanup);
+
+      Throwable allocationTrace = null;
+      switch (leakDetection) {
+        case PARANOID:
+          allocationTrace = new Throwable();
+          break;
+
+        case SAMPLED:
+          if (samplingInterval <= 1 || ThreadLocalRandom.current().nextInt(samplingInterval) == 0) {
+            allocationTrace = new Throwable();
+          }
+          break;
+
+        default:
+          break;
+      }
+
+      return track(reference, cleanup, allocationTrace, leakDetection != LeakDetection.DISABLED);
     }
 
     @Override
@@ -80,13 +112,17 @@ public class ThreadedHousekeeper implements Housekeeper {
 
   }
 
-  public static synchronized Ref acquire() {
+  public static Ref acquire() {
+    return acquire(LeakDetection.PARANOID, 1);
+  }
+
+  public static synchronized Ref acquire(LeakDetection leakDetection, int samplingInterval) {
 
     if (instanceRefs == 0) {
       instance = new ThreadedHousekeeper();
     }
     ++instanceRefs;
-    return instance.new Ref();
+    return instance.new Ref(leakDetection, samplingInterval);
   }
 
   private static synchronized void release() {
@@ -105,8 +141,10 @@ public class ThreadedHousekeeper implements Housekeeper {
 
     int id;
     CleanupRunnable cleanup;
+    Throwable allocationTrace;
+    boolean report;
 
-    HousekeeperReference(CleanupRunnable cleanup, T referent, ReferenceQueue<? super T> q) {
+    HousekeeperReference(CleanupRunnable cleanup, Throwable allocationTrace, boolean report, T referent, ReferenceQueue<? super T> q) {
       super(referent, q);
 
       if (cleanup == referent) {
@@ -115,16 +153,25 @@ public class ThreadedHousekeeper implements Housekeeper {
 
       this.id = System.identityHashCode(referent);
       this.cleanup = cleanup;
+      this.allocationTrace = allocationTrace;
+      this.report = report;
     }
 
     void cleanup() {
 
-      if (logLeaks) {
-        String allocationTrace = printStackTrace(getSimplifiedAllocationStackTrace());
-        logger.log(
-            Level.WARNING,
-            "Cleaning up leaked " + cleanup.getKind() + "\n"
-                + "Allocation occurred @\n" + allocationTrace);
+      if (logLeaks && report) {
+        if (allocationTrace != null) {
+          logger.log(
+              Level.WARNING,
+              "Cleaning up leaked " + cleanup.getKind() + "\n"
+                  + "Allocation occurred @\n" + printStackTrace(getSimplifiedAllocationStackTrace()));
+        }
+        else {
+          logger.log(
+              Level.WARNING,
+              "Cleaning up leaked " + cleanup.getKind() + "\n"
+                  + "Allocation was not sampled, use paranoid leak detection to capture all allocation traces");
+        }
       }
 
       cleanup.run();
@@ -132,7 +179,7 @@ public class ThreadedHousekeeper implements Housekeeper {
 
     StackTraceElement[] getSimplifiedAllocationStackTrace() {
 
-      StackTraceElement[] allocationTrace = cleanup.getAllocationStackTrace();
+      StackTraceElement[] allocationTrace = this.allocationTrace.getStackTrace();
 
       // Find the first non driver related class
       for (int c = 0; c < allocationTrace.length; ++c) {
@@ -173,7 +220,7 @@ public class ThreadedHousekeeper implements Housekeeper {
 
   private boolean logLeaks = true;
   private ReferenceQueue<Object> cleanupQueue = new ReferenceQueue<>();
-  private Set<HousekeeperReference<?>> cleanupReferences = new HashSet<>();
+  private Set<HousekeeperReference<?>> cleanupReferences = ConcurrentHashMap.newKeySet();
   private AtomicBoolean cleanupThreadEnabled = new AtomicBoolean(true);
   private Thread cleanupThread = new Thread() {
 
@@ -198,9 +245,7 @@ public class ThreadedHousekeeper implements Housekeeper {
           // Ignore...
         }
 
-        synchronized (ThreadedHousekeeper.this) {
-          cleanupReferences.remove(ref);
-        }
+        cleanupReferences.remove(ref);
       }
 
       emptyQueue();
@@ -238,25 +283,26 @@ public class ThreadedHousekeeper implements Housekeeper {
   }
 
   @Override
-  public synchronized <T> Object add(T referent, CleanupRunnable cleanup) {
-    HousekeeperReference<T> ref = new HousekeeperReference<>(cleanup, referent, cleanupQueue);
+  public <T> Object add(T referent, CleanupRunnable cleanup) {
+    return track(referent, cleanup, new Throwable(), true);
+  }
+
+  private <T> HousekeeperReference<T> track(T referent, CleanupRunnable cleanup, Throwable allocationTrace, boolean report) {
+    HousekeeperReference<T> ref = new HousekeeperReference<>(cleanup, allocationTrace, report, referent, cleanupQueue);
     cleanupReferences.add(ref);
-    return cleanup;
+    return ref;
   }
 
   @Override
-  public synchronized void remove(Object cleanupKey) {
+  public void remove(Object cleanupKey) {
 
-    Iterator<HousekeeperReference<?>> refIter = cleanupReferences.iterator();
-    while (refIter.hasNext()) {
-      HousekeeperReference<?> ref = refIter.next();
-      if (ref.cleanup == cleanupKey) {
-        ref.clear();
-        refIter.remove();
-        return;
-      }
+    if (!(cleanupKey instanceof HousekeeperReference)) {
+      return;
     }
 
+    HousekeeperReference<?> ref = (HousekeeperReference<?>) cleanupKey;
+    ref.clear();
+    cleanupReferences.remove(ref);
   }
 
   private void close() {
@@ -30,7 +30,6 @@ package com.impossibl.postgres.protocol;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.List;
 
 import io.netty.buffer.ByteBuf;
@@ -167,6 +166,29 @@ public interface RequestExecutor {
              FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers,
              FieldFormatRef[] resultFieldFormats, int maxRows, ExtendedQueryHandler handler) throws IOException;
 
+  /**
+   * Same as {@link #query(String, String, FieldFormatRef[], ByteBuf[], FieldFormatRef[], int, ExtendedQueryHandler)}
+   * except the query is parsed using the provided parameter types, and optionally as a named statement, in the
+   * same request. Allowing a statement to be prepared, bound &amp; executed in a single round trip.
+   *
+   * If the server cannot parse the query using the provided parameter types an error is reported and, if
+   * requested, the named statement is not created.
+   *
+   * @param sql SQL query to execute.
+   * @param statementName Name of the statement to prepare or {@code null} to use the unnamed statement.
+   * @param parameterTypes Types of the parameters; {@code null} elements allow the server to infer the type.
+   * @param portalName Name of the portal to instantiate or {@code null} to use the unnamed portal.
+   * @param parameterFormats Formats (text or binary) of parameters in `parameterBuffers`.
+   * @param parameterBuffers Buffer of encoded parameter values.
+   * @param resultFieldFormats Desired formats of the result fields.
+   * @param maxRows The number of results to receive at a time, or zero to receive all results at once.
+   * @param handler Query handler to process results.
+   * @throws IOException If an error occurs submitting the request.
+   */
+  void query(String sql, String statementName, TypeRef[] parameterTypes, String portalName,
+             FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers,
+             FieldFormatRef[] resultFieldFormats, int maxRows, ExtendedQueryHandler handler) throws IOException;
+
 
   /**
    * Uses the "extended" query protocol to query the rows associated with a portal that was prepared by the server
@@ -457,12 +479,128 @@ public interface RequestExecutor {
   void copyFrom(String sql, InputStream stream, CopyFromHandler handler) throws IOException;
 
 
+  /**
+   * Data received from a copy started with {@link #copyTo(String, CopyToHandler)}.
+   * Data is queued as it arrives; reading from the connection is suspended
+   * while too much data is waiting to be taken.
+   */
+  interface CopyOutData {
+
+    /**
+     * Waits for and removes the next frame of copy data. The caller owns
+     * the returned buffer and must release it.
+     *
+     * @param timeout Maximum time to wait in milliseconds (less than 1 waits indefinitely).
+     * @return Next frame of data or null if the copy has completed.
+     * @throws IOException If the timeout elapses.
+     */
+    ByteBuf take(long timeout) throws IOException;
+
+    /**
+     * Releases all queued data and discards any further copy data.
+     */
+    void close();
+
+  }
+
   interface CopyToHandler extends SynchronizedHandler {
 
+    void handleStart(CopyOutData data) throws IOException;
+
     void handleComplete() throws IOException;
 
   }
 
-  void copyTo(String sql, OutputStream stream, CopyToHandler handler) throws IOException;
+  /**
+   * Starts a <code>COPY ... TO STDOUT</code> command whose data is taken
+   * by the caller from the {@link CopyOutData} provided to
+   * {@link CopyToHandler#handleStart(CopyOutData)}, which is called
+   * as the request is sent.
+   *
+   * @param sql SQL text of the copy command.
+   * @param handler Handler to receive the data and results.
+   * @throws IOException If an error occurs submitting the request.
+   */
+  void copyTo(String sql, CopyToHandler handler) throws IOException;
+
+
+  /**
+   * Destination for the data of a copy started with
+   * {@link #copyIn(String, CopyInHandler)}. Writes block while the
+   * connection cannot accept more data.
+   */
+  interface CopyInSink {
+
+    void write(ByteBuf data) throws IOException;
+
+    void done() throws IOException;
+
+    void fail(String message) throws IOException;
+
+  }
+
+  interface CopyInHandler extends SynchronizedHandler {
+
+    void handleStart(CopyFormat format, FieldFormat[] fieldFormats, CopyInSink sink) throws IOException;
+
+    void handleComplete(Long rowsAffected) throws IOException;
+
+  }
+
+  /**
+   * Starts a <code>COPY ... FROM STDIN</code> command whose data is written
+   * by the caller, through the sink provided to
+   * {@link CopyInHandler#handleStart(CopyFormat, FieldFormat[], CopyInSink)}.
+   *
+   * @param sql SQL text of the copy command.
+   * @param handler Handler to receive the sink and results.
+   * @throws IOException If an error occurs submitting the request.
+   */
+  void copyIn(String sql, CopyInHandler handler) throws IOException;
+
+
+  /**
+   * Rows received from a binary copy started with
+   * {@link #copyOut(String, CopyOutHandler)}. Rows are queued as they
+   * arrive; reading from the connection is suspended while too much
+   * data is waiting to be taken.
+   */
+  interface CopyOutRows {
+
+    /**
+     * Waits for and removes the next row. The caller owns the returned
+     * row and must release it.
+     *
+     * @param timeout Maximum time to wait in milliseconds (less than 1 waits indefinitely).
+     * @return Next row or null if the copy has completed.
+     * @throws IOException If the copy data is invalid or the timeout elapses.
+     */
+    RowData take(long timeout) throws IOException;
+
+    /**
+     * Releases all queued rows and discards any further copy data.
+     */
+    void close();
+
+  }
+
+  interface CopyOutHandler extends SynchronizedHandler {
+
+    void handleStart(CopyFormat format, FieldFormat[] fieldFormats, CopyOutRows rows) throws IOException;
+
+    void handleComplete(Long rowsAffected) throws IOException;
+
+  }
+
+  /**
+   * Starts a binary <code>COPY ... TO STDOUT</code> command whose rows are
+   * taken by the caller from the {@link CopyOutRows} provided to
+   * {@link CopyOutHandler#handleStart(CopyFormat, FieldFormat[], CopyOutRows)}.
+   *
+   * @param sql SQL text of the copy command.
+   * @param handler Handler to receive the rows and results.
+   * @throws IOException If an error occurs submitting the request.
+   */
+  void copyOut(String sql, CopyOutHandler handler) throws IOException;
 
 }
@@ -32,15 +32,23 @@ import com.impossibl.postgres.types.Type;
 
 import java.util.Objects;
 
+/**
+ * Description of a single result field.
+ *
+ * Result fields are shared (e.g. between executions of the same statement)
+ * and therefore are immutable; with the exception of resolving their
+ * type reference.
+ */
 public class ResultField implements FieldFormatRef {
 
-  private String name;
-  private int relationId;
-  private short relationAttributeNumber;
-  private TypeRef typeRef;
-  private short typeLength;
-  private int typeModifier;
-  private FieldFormat format;
+  private final String name;
+  private final int relationId;
+  private final short relationAttributeNumber;
+  private volatile TypeRef typeRef;
+  private final short typeLength;
+  private final int typeModifier;
+  private final FieldFormat format;
+  private ResultField alternateFormatField;
 
   public ResultField(String name, int relationId, short relationAttributeNumber, Type type, short typeLength, int typeModifier, FieldFormat format) {
     this.name = name;
@@ -90,8 +98,26 @@ public class ResultField implements FieldFormatRef {
     return typeModifier;
   }
 
-  public void setFormat(FieldFormat v) {
-    format = v;
+  /**
+   * Returns a result field matching this one but with the requested format.
+   *
+   * @param format Requested format
+   * @return This result field, if it matches the requested format, or a
+   *         matching result field with the requested format.
+   */
+  public ResultField withFormat(FieldFormat format) {
+    if (this.format == format) {
+      return this;
+    }
+
+    ResultField alternate = alternateFormatField;
+    if (alternate == null || alternate.format != format) {
+      alternate = new ResultField(name, relationId, relationAttributeNumber, typeRef, typeLength, typeModifier, format);
+      alternate.alternateFormatField = this;
+      alternateFormatField = alternate;
+    }
+
+    return alternate;
   }
 
   public FieldFormat getFormat() {
@@ -28,6 +28,7 @@
  */
 package com.impossibl.postgres.protocol;
 
+import com.impossibl.postgres.system.Metrics;
 import com.impossibl.postgres.system.ServerInfo;
 import com.impossibl.postgres.system.Version;
 
@@ -36,6 +37,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketAddress;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.Lock;
 
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelFuture;
@@ -90,4 +92,14 @@ public interface ServerConnection {
 
   ScheduledExecutorService getIOExecutor();
 
+  Metrics getMetrics();
+
+  /**
+   * Lock held while a request is being submitted. Holding it prevents
+   * other threads from submitting requests on the connection.
+   *
+   * @return Reentrant request submission lock
+   */
+  Lock getRequestLock();
+
 }
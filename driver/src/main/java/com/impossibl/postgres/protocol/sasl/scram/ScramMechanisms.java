@@ -32,6 +32,7 @@ import static com.impossibl.postgres.protocol.sasl.scram.util.Preconditions.gt0;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -153,6 +154,9 @@ public enum ScramMechanisms implements ScramMechanism {
     catch (NoSuchAlgorithmException e) {
       throw new RuntimeException("PBKDF Algorithm " + keyFactoryAlgorithmName + " not present in current JVM");
     }
+    finally {
+      Arrays.fill(normalizedString, '\0');
+    }
   }
 
   /**
@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.sasl.scram.client;
+
+import com.impossibl.postgres.protocol.sasl.scram.ScramFunctions;
+import com.impossibl.postgres.protocol.sasl.scram.ScramMechanism;
+import com.impossibl.postgres.protocol.sasl.scram.stringprep.StringPreparation;
+import com.impossibl.postgres.protocol.sasl.scram.util.CryptoUtil;
+import com.impossibl.postgres.utils.CacheMap;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Bounded, memory only, cache of the client &amp; server keys derived
+ * from a salted password.
+ *
+ * Salting the password runs PBKDF2 using the server's iteration count,
+ * which is intentionally expensive. Every connection authenticating the
+ * same user against the same server receives the same salt and iteration
+ * count, allowing the keys to be derived once and reused.
+ *
+ * Passwords are never stored; entries are keyed by an HMAC of the
+ * password using a random, per-process, key. Cached key material is
+ * zeroed when an entry is evicted.
+ */
+class SaltedPasswordCache {
+
+  static final int MAX_SIZE = 32;
+
+  private static final String PASSWORD_HMAC_ALGORITHM = "HmacSHA256";
+  private static final SecretKeySpec PASSWORD_HMAC_KEY;
+
+  static {
+    byte[] key = new byte[32];
+    new SecureRandom().nextBytes(key);
+    PASSWORD_HMAC_KEY = new SecretKeySpec(key, PASSWORD_HMAC_ALGORITHM);
+    Arrays.fill(key, (byte) 0);
+  }
+
+  private static final Map<Key, Keys> CACHE = new CacheMap<>(MAX_SIZE, 0.75f, true, entry -> entry.getValue().clear());
+
+  static class Keys {
+
+    final byte[] clientKey;
+    final byte[] serverKey;
+
+    Keys(byte[] clientKey, byte[] serverKey) {
+      this.clientKey = clientKey;
+      this.serverKey = serverKey;
+    }
+
+    Keys copy() {
+      return new Keys(clientKey.clone(), serverKey.clone());
+    }
+
+    void clear() {
+      Arrays.fill(clientKey, (byte) 0);
+      Arrays.fill(serverKey, (byte) 0);
+    }
+
+  }
+
+  private static class Key {
+
+    String mechanismName;
+    StringPreparation stringPreparation;
+    byte[] passwordHmac;
+    byte[] salt;
+    int iterations;
+
+    Key(String mechanismName, StringPreparation stringPreparation, byte[] passwordHmac, byte[] salt, int iterations) {
+      this.mechanismName = mechanismName;
+      this.stringPreparation = stringPreparation;
+      this.passwordHmac = passwordHmac;
+      this.salt = salt;
+      this.iterations = iterations;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key key = (Key) o;
+      return iterations == key.iterations &&
+          mechanismName.equals(key.mechanismName) &&
+          stringPreparation.equals(key.stringPreparation) &&
+          Arrays.equals(passwordHmac, key.passwordHmac) &&
+          Arrays.equals(salt, key.salt);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = Objects.hash(mechanismName, stringPreparation, iterations);
+      result = 31 * result + Arrays.hashCode(passwordHmac);
+      result = 31 * result + Arrays.hashCode(salt);
+      return result;
+    }
+
+  }
+
+  /**
+   * Retrieves the client &amp; server keys for the given password, salt &amp;
+   * iterations, deriving &amp; caching them if not already available.
+   *
+   * @return Copy of the keys owned by the caller
+   */
+  static Keys get(ScramMechanism scramMechanism, StringPreparation stringPreparation,
+                  String password, byte[] salt, int iterations) {
+
+    Key key = new Key(scramMechanism.getName(), stringPreparation, passwordHmac(password), salt, iterations);
+
+    synchronized (CACHE) {
+      Keys keys = CACHE.get(key);
+      if (keys != null) {
+        return keys.copy();
+      }
+    }
+
+    byte[] saltedPassword = ScramFunctions.saltedPassword(scramMechanism, stringPreparation, password, salt, iterations);
+    Keys keys;
+    try {
+      keys = new Keys(
+          ScramFunctions.clientKey(scramMechanism, saltedPassword),
+          ScramFunctions.serverKey(scramMechanism, saltedPassword)
+      );
+    }
+    finally {
+      Arrays.fill(saltedPassword, (byte) 0);
+    }
+
+    synchronized (CACHE) {
+      Keys previous = CACHE.put(key, keys);
+      if (previous != null) {
+        previous.clear();
+      }
+    }
+
+    return keys.copy();
+  }
+
+  private static byte[] passwordHmac(String password) {
+    try {
+      return CryptoUtil.hmac(PASSWORD_HMAC_KEY, Mac.getInstance(PASSWORD_HMAC_ALGORITHM), password.getBytes(UTF_8));
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("MAC Algorithm " + PASSWORD_HMAC_ALGORITHM + " not present in current JVM");
+    }
+  }
+
+}
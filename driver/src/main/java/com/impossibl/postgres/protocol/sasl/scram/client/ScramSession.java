@@ -274,18 +274,14 @@ public class ScramSession {
       this(nonce, clientKey, ScramFunctions.storedKey(scramMechanism, clientKey), serverKey);
     }
 
-    private ClientFinalProcessor(String nonce, byte[] saltedPassword) {
-      this(
-          nonce,
-          ScramFunctions.clientKey(scramMechanism, saltedPassword),
-          ScramFunctions.serverKey(scramMechanism, saltedPassword)
-      );
+    private ClientFinalProcessor(String nonce, SaltedPasswordCache.Keys keys) {
+      this(nonce, keys.clientKey, keys.serverKey);
     }
 
     private ClientFinalProcessor(String nonce, String password, String salt, int iteration) {
       this(
           nonce,
-          ScramFunctions.saltedPassword(
+          SaltedPasswordCache.get(
               scramMechanism, stringPreparation, password, Base64.decode(salt), iteration
           )
       );
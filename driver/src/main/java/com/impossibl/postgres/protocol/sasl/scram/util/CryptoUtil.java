@@ -100,14 +100,17 @@ public class CryptoUtil {
    * @return The bytes of the computed Hi value
    */
   public static byte[] hi(SecretKeyFactory secretKeyFactory, int keyLength, char[] value, byte[] salt, int iterations) {
+    PBEKeySpec spec = new PBEKeySpec(value, salt, iterations, keyLength);
     try {
-      PBEKeySpec spec = new PBEKeySpec(value, salt, iterations, keyLength);
       SecretKey key = secretKeyFactory.generateSecret(spec);
       return key.getEncoded();
     }
     catch (InvalidKeySpecException e) {
       throw new RuntimeException("Platform error: unsupported PBEKeySpec");
     }
+    finally {
+      spec.clearPassword();
+    }
   }
 
   /**
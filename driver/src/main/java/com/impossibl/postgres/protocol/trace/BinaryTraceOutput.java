@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.trace;
+
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DROPPED;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.FLUSH;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.MAGIC;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.RECEIVE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SEND;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.TRANSACTION;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.VERSION;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Writes records in the binary trace format (see {@link TraceRecords}),
+ * rotating to a new file when the current one exceeds the maximum size.
+ *
+ * Rotated files are renamed with an increasing numeric suffix (e.g.
+ * {@code trace.1} is the most recently rotated) and at most
+ * {@code fileCount} files, including the current one, are kept.
+ */
+class BinaryTraceOutput implements TraceOutput {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File file;
+  private final int fileSizeMax;
+  private final int fileCount;
+  private DataOutputStream out;
+  private long lastNanos;
+
+  BinaryTraceOutput(File file, int fileSizeMax, int fileCount) throws IOException {
+    this.file = file;
+    this.fileSizeMax = fileSizeMax;
+    this.fileCount = fileCount;
+    open();
+  }
+
+  private void open() throws IOException {
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false), BUFFER_SIZE));
+    lastNanos = System.nanoTime();
+    out.writeInt(MAGIC);
+    out.writeShort(VERSION);
+    out.writeLong(System.currentTimeMillis());
+    out.writeLong(lastNanos);
+  }
+
+  private void rotate() throws IOException {
+    out.close();
+
+    for (int idx = fileCount - 1; idx > 0; --idx) {
+      File source = idx > 1 ? new File(file.getPath() + "." + (idx - 1)) : file;
+      if (source.exists()) {
+        Files.move(source.toPath(), new File(file.getPath() + "." + idx).toPath(), REPLACE_EXISTING);
+      }
+    }
+
+    open();
+  }
+
+  @Override
+  public void record(long nanos, int connectionId, byte type, int code, String name, String text) throws IOException {
+
+    writeHeader(type, nanos, connectionId);
+
+    switch (type) {
+      case SEND:
+      case RECEIVE:
+      case DISPATCH:
+      case TRANSACTION:
+        out.writeByte(code);
+        break;
+
+      case FLUSH:
+        break;
+
+      default:
+        writeString(name);
+        writeString(text);
+        break;
+    }
+
+    if (out.size() >= fileSizeMax) {
+      rotate();
+    }
+  }
+
+  @Override
+  public void dropped(long nanos, long count) throws IOException {
+    writeHeader(DROPPED, nanos, 0);
+    writeVarLong(count);
+  }
+
+  private void writeHeader(byte type, long nanos, int connectionId) throws IOException {
+    long delta = nanos - lastNanos;
+    lastNanos = nanos;
+
+    out.writeByte(type);
+    writeVarLong((delta << 1) ^ (delta >> 63));
+    writeVarLong(connectionId);
+  }
+
+  private void writeString(String value) throws IOException {
+    if (value == null) {
+      writeVarLong(0);
+      return;
+    }
+    byte[] bytes = value.getBytes(UTF_8);
+    writeVarLong(bytes.length + 1L);
+    out.write(bytes);
+  }
+
+  private void writeVarLong(long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.trace;
+
+import com.impossibl.postgres.utils.CacheMap;
+
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.FLUSH;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.RECEIVE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SEND;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_CLOSE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_EXECUTE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_PREPARE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_QUERY;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.TRANSACTION;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Formats records as readable text lines.
+ *
+ * Protocol records are collected per connection and written as a single
+ * line when the connection flushes; e.g. {@code <P<B<E<S} for a sent batch
+ * of messages or {@code >1.>2.>D.>C.>Z*} for received messages &amp; their
+ * dispatch results. SQL records are written immediately.
+ */
+class TextTraceOutput implements TraceOutput {
+
+  private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSSSSS").withZone(ZoneId.systemDefault());
+  // Indexed by TraceRecords.DISPATCH_* code
+  private static final String[] DISPATCH_CODES = {".", ".^", "*", "*^", "$"};
+  private static final int MAX_PREPARED_TEXTS = 4096;
+
+  private final Writer out;
+  private final long baseMillis;
+  private final long baseNanos;
+  private final Map<Integer, StringBuilder> lines = new HashMap<>();
+  // Bounded as connections can end without closing their statements
+  private final Map<String, String> preparedText = new CacheMap<>(MAX_PREPARED_TEXTS, 1.1f, true);
+
+  TextTraceOutput(Writer out, long baseMillis, long baseNanos) {
+    this.out = out;
+    this.baseMillis = baseMillis;
+    this.baseNanos = baseNanos;
+  }
+
+  @Override
+  public void record(long nanos, int connectionId, byte type, int code, String name, String text) throws IOException {
+
+    switch (type) {
+      case SEND:
+        line(nanos, connectionId).append('<').append((char) code);
+        break;
+
+      case RECEIVE:
+        line(nanos, connectionId).append('>').append((char) code);
+        break;
+
+      case DISPATCH:
+        line(nanos, connectionId).append(code >= 0 && code < DISPATCH_CODES.length ? DISPATCH_CODES[code] : "?");
+        break;
+
+      case TRANSACTION:
+        line(nanos, connectionId).append((char) code);
+        break;
+
+      case FLUSH:
+        StringBuilder line = lines.remove(connectionId);
+        if (line != null) {
+          out.append(line).append('\n');
+        }
+        break;
+
+      case SQL_PREPARE:
+        preparedText.put(connectionId + ":" + name, text);
+        prefix(nanos, connectionId).append("P: ").append(name).append(" = ").append(text).append('\n');
+        break;
+
+      case SQL_QUERY:
+        prefix(nanos, connectionId).append("Q: ").append(text).append('\n');
+        break;
+
+      case SQL_EXECUTE:
+        prefix(nanos, connectionId).append("Q (").append(name).append("): ").append(preparedText.getOrDefault(connectionId + ":" + name, "?")).append('\n');
+        break;
+
+      case SQL_CLOSE:
+        preparedText.remove(connectionId + ":" + name);
+        prefix(nanos, connectionId).append("C: ").append(name).append('\n');
+        break;
+
+      default:
+        prefix(nanos, connectionId).append("Unknown record: ").append(Integer.toString(type)).append('\n');
+        break;
+    }
+
+  }
+
+  @Override
+  public void dropped(long nanos, long count) throws IOException {
+    out.append(time(nanos)).append(" !! ").append(Long.toString(count)).append(" records dropped\n");
+  }
+
+  private StringBuilder line(long nanos, int connectionId) {
+    return lines.computeIfAbsent(connectionId, id -> new StringBuilder(time(nanos)).append(" [").append(id).append("] "));
+  }
+
+  private Writer prefix(long nanos, int connectionId) throws IOException {
+    return out.append(time(nanos)).append(" [").append(Integer.toString(connectionId)).append("] ");
+  }
+
+  private String time(long nanos) {
+    long offsetNanos = nanos - baseNanos;
+    Instant instant = Instant.ofEpochMilli(baseMillis).plusNanos(offsetNanos);
+    return TIME_FORMAT.format(instant);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (StringBuilder line : lines.values()) {
+      out.append(line).append('\n');
+    }
+    lines.clear();
+    out.flush();
+  }
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.trace;
+
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DROPPED;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.FLUSH;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.MAGIC;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.RECEIVE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SEND;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.TRANSACTION;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.VERSION;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Converts binary trace files into readable text.
+ *
+ * Usage: {@code java -cp pgjdbc-ng.jar com.impossibl.postgres.protocol.trace.TraceDecoder <trace-file>...}
+ */
+public final class TraceDecoder {
+
+  private TraceDecoder() {
+  }
+
+  public static void main(String[] args) throws IOException {
+
+    if (args.length == 0) {
+      System.err.println("Usage: " + TraceDecoder.class.getName() + " <trace-file>...");
+      System.exit(1);
+    }
+
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8));
+
+    for (String arg : args) {
+      try (InputStream in = new BufferedInputStream(new FileInputStream(arg))) {
+        decode(in, out);
+      }
+    }
+
+    out.flush();
+  }
+
+  /**
+   * Decodes a binary trace, writing it as text. Decoding a truncated trace
+   * (e.g. a file that is still being written) stops at the last complete record.
+   *
+   * @param in Binary trace stream
+   * @param out Destination of text trace
+   * @throws IOException If the stream is not a supported trace or cannot be read or written
+   */
+  public static void decode(InputStream in, Writer out) throws IOException {
+
+    DataInputStream data = new DataInputStream(in);
+
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Invalid trace file");
+    }
+
+    short version = data.readShort();
+    if (version != VERSION) {
+      throw new IOException("Unsupported trace file version: " + version);
+    }
+
+    long baseMillis = data.readLong();
+    long nanos = data.readLong();
+
+    TextTraceOutput output = new TextTraceOutput(out, baseMillis, nanos);
+    try {
+
+      int type;
+      while ((type = data.read()) != -1) {
+
+        long delta = readVarLong(data);
+        nanos += (delta >>> 1) ^ -(delta & 1);
+
+        int connectionId = (int) readVarLong(data);
+
+        switch ((byte) type) {
+          case SEND:
+          case RECEIVE:
+          case DISPATCH:
+          case TRANSACTION:
+            output.record(nanos, connectionId, (byte) type, data.readUnsignedByte(), null, null);
+            break;
+
+          case FLUSH:
+            output.record(nanos, connectionId, FLUSH, 0, null, null);
+            break;
+
+          case DROPPED:
+            output.dropped(nanos, readVarLong(data));
+            break;
+
+          default:
+            String name = readString(data);
+            String text = readString(data);
+            output.record(nanos, connectionId, (byte) type, 0, name, text);
+            break;
+        }
+
+      }
+
+    }
+    catch (EOFException ignored) {
+      // Truncated trace
+    }
+
+    output.close();
+  }
+
+  private static String readString(DataInputStream data) throws IOException {
+    long length = readVarLong(data);
+    if (length == 0) {
+      return null;
+    }
+    byte[] bytes = new byte[(int) length - 1];
+    data.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static long readVarLong(DataInputStream data) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = data.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed trace record");
+  }
+
+}
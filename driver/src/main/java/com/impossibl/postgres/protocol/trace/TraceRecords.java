@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.trace;
+
+/**
+ * Record types &amp; codes of protocol and SQL traces.
+ *
+ * Binary trace files start with a header of the {@link #MAGIC} number
+ * ({@code int}), the format {@link #VERSION} ({@code short}) and the wall
+ * clock time ({@code long} epoch millis) &amp; {@link System#nanoTime()}
+ * ({@code long}) the file was started; all records are timestamped relative
+ * to this pair.
+ *
+ * Each record is its type ({@code byte}), the time elapsed since the
+ * previous record (zig-zag var-long nanoseconds), the id of the traced
+ * connection (var-int) and a type dependent payload:
+ * <ul>
+ *   <li>{@link #SEND}, {@link #RECEIVE}: message id ({@code byte})</li>
+ *   <li>{@link #DISPATCH}: dispatch action ({@code byte})</li>
+ *   <li>{@link #TRANSACTION}: transaction marker ({@code byte}), {@code [} begin, {@code !} failed, {@code ]} end</li>
+ *   <li>{@link #FLUSH}: none</li>
+ *   <li>{@link #SQL_PREPARE}, {@link #SQL_QUERY}, {@link #SQL_EXECUTE}, {@link #SQL_CLOSE}: statement name &amp; SQL text</li>
+ *   <li>{@link #DROPPED}: number of records dropped (var-long)</li>
+ * </ul>
+ * Strings are encoded as their UTF-8 length plus one (var-int, zero for
+ * {@code null}) followed by their UTF-8 bytes.
+ */
+public final class TraceRecords {
+
+  private TraceRecords() {
+  }
+
+  static final int MAGIC = 0x50475452;
+  static final short VERSION = 1;
+
+  public static final byte SEND = 1;
+  public static final byte RECEIVE = 2;
+  public static final byte DISPATCH = 3;
+  public static final byte FLUSH = 4;
+  public static final byte SQL_PREPARE = 5;
+  public static final byte SQL_QUERY = 6;
+  public static final byte SQL_EXECUTE = 7;
+  public static final byte DROPPED = 8;
+  public static final byte TRANSACTION = 9;
+  public static final byte SQL_CLOSE = 10;
+
+  public static final int DISPATCH_RESUME = 0;
+  public static final int DISPATCH_RESUME_PASSING = 1;
+  public static final int DISPATCH_COMPLETE = 2;
+  public static final int DISPATCH_COMPLETE_PASSING = 3;
+  public static final int DISPATCH_SYNC = 4;
+
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.trace;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free, multi-producer/single-consumer ring of trace records.
+ *
+ * Producers claim a sequence with a CAS and publish the record by storing
+ * the sequence in the slot; records are never blocked on, when the ring is
+ * full they are counted as dropped instead.
+ */
+class TraceRing {
+
+  private final int mask;
+  private final long[] times;
+  private final int[] connectionIds;
+  private final byte[] types;
+  private final int[] codes;
+  private final String[] names;
+  private final String[] texts;
+  private final AtomicLongArray published;
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private volatile long tail;
+
+  TraceRing(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+    this.mask = size - 1;
+    this.times = new long[size];
+    this.connectionIds = new int[size];
+    this.types = new byte[size];
+    this.codes = new int[size];
+    this.names = new String[size];
+    this.texts = new String[size];
+    this.published = new AtomicLongArray(size);
+  }
+
+  int capacity() {
+    return mask + 1;
+  }
+
+  boolean offer(long nanos, int connectionId, byte type, int code, String name, String text) {
+
+    long seq;
+    do {
+      seq = head.get();
+      if (seq - tail > mask) {
+        dropped.incrementAndGet();
+        return false;
+      }
+    }
+    while (!head.compareAndSet(seq, seq + 1));
+
+    int idx = (int) seq & mask;
+    times[idx] = nanos;
+    connectionIds[idx] = connectionId;
+    types[idx] = type;
+    codes[idx] = code;
+    names[idx] = name;
+    texts[idx] = text;
+    published.lazySet(idx, seq + 1);
+
+    return true;
+  }
+
+  /**
+   * Passes up to {@code max} published records, in order, to the output.
+   *
+   * @return Number of records drained.
+   */
+  int drain(TraceOutput output, int max) throws IOException {
+
+    long seq = tail;
+    int count = 0;
+    try {
+      while (count < max) {
+        int idx = (int) seq & mask;
+        if (published.get(idx) != seq + 1) {
+          break;
+        }
+
+        long nanos = times[idx];
+        int connectionId = connectionIds[idx];
+        byte type = types[idx];
+        int code = codes[idx];
+        String name = names[idx];
+        String text = texts[idx];
+        names[idx] = null;
+        texts[idx] = null;
+
+        ++seq;
+        ++count;
+
+        output.record(nanos, connectionId, type, code, name, text);
+      }
+    }
+    finally {
+      tail = seq;
+    }
+
+    return count;
+  }
+
+  /**
+   * Tests whether no records have been claimed since the last drain. Records
+   * that are claimed but not yet published do not count as empty.
+   */
+  boolean isEmpty() {
+    return head.get() == tail;
+  }
+
+  long takeDropped() {
+    return dropped.get() != 0 ? dropped.getAndSet(0) : 0;
+  }
+
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.trace;
+
+import com.impossibl.postgres.system.Configuration;
+
+import static com.impossibl.postgres.system.SystemSettings.TRACE_BUFFER_SIZE;
+import static com.impossibl.postgres.system.SystemSettings.TRACE_FILE_COUNT;
+import static com.impossibl.postgres.system.SystemSettings.TRACE_FILE_SIZE_MAX;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous destination for protocol &amp; SQL traces.
+ *
+ * Recording a trace event only timestamps it and publishes it to a lock-free
+ * ring buffer; a background thread drains the ring and writes the records
+ * to the sink's output, parking while the ring is empty. Trace files are written in the compact binary
+ * format (see {@link TraceRecords} &amp; {@link TraceDecoder}) and rotated
+ * based on size, standard output receives text. When the writer cannot keep
+ * up, records are dropped (and the number of dropped records traced) rather
+ * than stalling the traced thread.
+ *
+ * A single sink is shared by all connections tracing to the same destination,
+ * it is created using the settings of the first connection.
+ */
+public final class TraceSink {
+
+  private static final Logger logger = Logger.getLogger(TraceSink.class.getName());
+
+  private static final String STANDARD_OUTPUT = "-";
+  private static final int DRAIN_BATCH_SIZE = 1024;
+  private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+  private static final Map<String, TraceSink> sinks = new HashMap<>();
+  private static final AtomicInteger connectionIds = new AtomicInteger();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(TraceSink::closeAll, "PG-JDBC Trace Shutdown"));
+  }
+
+  private static final TraceOutput DISCARD = new TraceOutput() {
+
+    @Override
+    public void record(long nanos, int connectionId, byte type, int code, String name, String text) {
+    }
+
+    @Override
+    public void dropped(long nanos, long count) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+  };
+
+  private final String name;
+  private final TraceRing ring;
+  private final Thread writer;
+  private TraceOutput output;
+  private volatile boolean closed;
+  private volatile boolean idle;
+
+  TraceSink(String name, TraceOutput output, int bufferSize) {
+    this.name = name;
+    this.ring = new TraceRing(bufferSize);
+    this.output = output;
+    this.writer = new Thread(this::write, "PG-JDBC Trace Writer (" + name + ")");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Retrieves the shared sink for the given trace file, creating it if necessary.
+   *
+   * @param filePath Path of the trace file or {@code null} to trace to standard output.
+   * @param config Configuration providing the {@code trace.*} settings.
+   * @return Shared trace sink.
+   */
+  public static TraceSink get(String filePath, Configuration config) {
+
+    String key = filePath != null ? new File(filePath).getAbsolutePath() : STANDARD_OUTPUT;
+
+    synchronized (sinks) {
+
+      TraceSink sink = sinks.get(key);
+      if (sink == null) {
+        sink = new TraceSink(key, openOutput(filePath, config), config.getSetting(TRACE_BUFFER_SIZE));
+        sinks.put(key, sink);
+      }
+
+      return sink;
+    }
+  }
+
+  private static TraceOutput openOutput(String filePath, Configuration config) {
+
+    if (filePath != null) {
+      try {
+        return new BinaryTraceOutput(new File(filePath), config.getSetting(TRACE_FILE_SIZE_MAX), config.getSetting(TRACE_FILE_COUNT));
+      }
+      catch (IOException e) {
+        logger.log(Level.WARNING, "Unable to open trace file, tracing to standard output: " + filePath, e);
+      }
+    }
+
+    return new TextTraceOutput(new BufferedWriter(new OutputStreamWriter(System.out)), System.currentTimeMillis(), System.nanoTime());
+  }
+
+  private static void closeAll() {
+
+    List<TraceSink> all;
+    synchronized (sinks) {
+      all = new ArrayList<>(sinks.values());
+      sinks.clear();
+    }
+
+    for (TraceSink sink : all) {
+      sink.close();
+    }
+  }
+
+  /**
+   * Allocates a new id used to distinguish the records of a connection.
+   */
+  public int newConnectionId() {
+    return connectionIds.incrementAndGet();
+  }
+
+  public void record(int connectionId, byte type, int code) {
+    ring.offer(System.nanoTime(), connectionId, type, code, null, null);
+    wakeWriter();
+  }
+
+  public void record(int connectionId, byte type, String name, String text) {
+    ring.offer(System.nanoTime(), connectionId, type, 0, name, text);
+    wakeWriter();
+  }
+
+  /**
+   * Unparks the writer if it is idle. The writer flags itself idle before
+   * checking the ring for records, and offering a record claims its slot
+   * before checking the flag; so either the writer sees the record or it
+   * is unparked here.
+   */
+  private void wakeWriter() {
+    if (idle) {
+      LockSupport.unpark(writer);
+    }
+  }
+
+  /**
+   * Writes all outstanding records &amp; stops the writer.
+   */
+  void close() {
+    closed = true;
+    LockSupport.unpark(writer);
+    try {
+      writer.join(CLOSE_TIMEOUT_MILLIS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void write() {
+
+    boolean unflushed = false;
+
+    while (true) {
+
+      boolean closing = closed;
+
+      try {
+
+        long dropped = ring.takeDropped();
+        if (dropped != 0) {
+          output.dropped(System.nanoTime(), dropped);
+          unflushed = true;
+        }
+
+        if (ring.drain(output, DRAIN_BATCH_SIZE) != 0) {
+          unflushed = true;
+          continue;
+        }
+
+        if (unflushed) {
+          output.flush();
+          unflushed = false;
+        }
+
+      }
+      catch (IOException e) {
+        logger.log(Level.WARNING, "Error writing trace, tracing disabled: " + name, e);
+        output = DISCARD;
+      }
+
+      if (closing) {
+        break;
+      }
+
+      idle = true;
+      if (ring.isEmpty() && !closed) {
+        LockSupport.park(this);
+      }
+      idle = false;
+    }
+
+    try {
+      output.close();
+    }
+    catch (IOException ignored) {
+    }
+  }
+
+}
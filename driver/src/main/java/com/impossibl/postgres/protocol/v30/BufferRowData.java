@@ -34,7 +34,9 @@ import com.impossibl.postgres.protocol.RowData;
 import com.impossibl.postgres.protocol.UpdatableRowData;
 import com.impossibl.postgres.system.Context;
 import com.impossibl.postgres.types.Type;
+import com.impossibl.postgres.utils.StringCache;
 
+import static com.impossibl.postgres.utils.ByteBufs.decodeString;
 import static com.impossibl.postgres.utils.ByteBufs.lengthEncode;
 
 import java.io.IOException;
@@ -139,14 +141,15 @@ public class BufferRowData extends DefaultByteBufHolder implements RowData, Refe
       case Text: {
         Type.Codec.Decoder<CharSequence> decoder = type.getTextCodec().getDecoder();
 
-        ByteBuf fieldBuffer = buffer.retainedSlice(offset + 4, length);
-        try {
-          String fieldString = fieldBuffer.toString(UTF_8);
-          return decoder.decode(context, type, field.getTypeLength(), field.getTypeModifier(), fieldString, targetClass, targetContext);
+        String fieldString;
+        if (targetContext instanceof StringCache) {
+          fieldString = ((StringCache) targetContext).get(buffer, offset + 4, length, UTF_8);
         }
-        finally {
-          fieldBuffer.release();
+        else {
+          fieldString = decodeString(buffer, offset + 4, length, UTF_8);
         }
+
+        return decoder.decode(context, type, field.getTypeLength(), field.getTypeModifier(), fieldString, targetClass, targetContext);
       }
 
       case Binary: {
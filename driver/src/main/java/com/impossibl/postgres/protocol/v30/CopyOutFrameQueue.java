@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.protocol.RequestExecutor.CopyOutData;
+import com.impossibl.postgres.utils.BlockingReadTimeoutException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Queues copy data frames between the I/O thread, which offers them
+ * as they are received, and a single consumer thread that takes them.
+ *
+ * Reading from the connection is suspended when the queued frames
+ * exceed a high water mark and resumed once they drop below a low
+ * water mark, bounding memory use when the consumer is slower than
+ * the server.
+ */
+class CopyOutFrameQueue implements CopyOutData {
+
+  private static final int HIGH_WATER_MARK = 0x100000;
+  private static final int LOW_WATER_MARK = 0x40000;
+
+  private ProtocolChannel channel;
+  private ReentrantLock lock = new ReentrantLock();
+  private Condition available = lock.newCondition();
+  private Queue<ByteBuf> frames = new ArrayDeque<>();
+  private int queuedSize;
+  private boolean readSuspended;
+  private boolean ended;
+  private boolean closed;
+
+  CopyOutFrameQueue(ProtocolChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Queues a received frame. Called from the I/O thread.
+   */
+  void offer(ByteBuf frame) {
+    lock.lock();
+    try {
+
+      if (closed) {
+        return;
+      }
+
+      frames.add(frame.retain());
+      queuedSize += frame.readableBytes();
+
+      if (!readSuspended && queuedSize > HIGH_WATER_MARK) {
+        readSuspended = true;
+        channel.setAutoRead(false);
+      }
+
+      available.signal();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Marks the end of the copy data. Called from the I/O thread.
+   */
+  void end() {
+    lock.lock();
+    try {
+      ended = true;
+      available.signal();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  private void resumeReadIfNeeded() {
+    if (readSuspended && (closed || queuedSize < LOW_WATER_MARK)) {
+      readSuspended = false;
+      channel.setAutoRead(true);
+    }
+  }
+
+  @Override
+  public ByteBuf take(long timeout) throws IOException {
+    lock.lock();
+    try {
+
+      long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+
+      while (frames.isEmpty() && !ended) {
+
+        if (timeout < 1) {
+          available.awaitUninterruptibly();
+          continue;
+        }
+
+        if (remaining <= 0) {
+          throw new BlockingReadTimeoutException();
+        }
+
+        try {
+          remaining = available.awaitNanos(remaining);
+        }
+        catch (InterruptedException e) {
+          // Ignore
+        }
+      }
+
+      ByteBuf frame = frames.poll();
+      if (frame != null) {
+        queuedSize -= frame.readableBytes();
+        resumeReadIfNeeded();
+      }
+
+      return frame;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+
+      closed = true;
+
+      ByteBuf frame;
+      while ((frame = frames.poll()) != null) {
+        frame.release();
+      }
+      queuedSize = 0;
+
+      resumeReadIfNeeded();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+}
@@ -47,22 +47,25 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.RowDescription;
 import com.impossibl.postgres.system.NoticeException;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import io.netty.buffer.ByteBuf;
 
+/**
+ * Copy-Out request whose data is taken, and written to its destination,
+ * by the requester via the {@link CopyOutFrameQueue} handed to its
+ * handler; keeping potentially slow writes off the I/O thread.
+ */
 public class CopyOutRequest implements ServerRequest {
 
   private String sql;
-  private OutputStream stream;
   private CopyToHandler handler;
   private List<Notice> notices;
+  private CopyOutFrameQueue data;
 
-  CopyOutRequest(String sql, OutputStream stream, CopyToHandler handler) {
+  CopyOutRequest(String sql, CopyToHandler handler) {
     this.sql = sql;
-    this.stream = stream;
     this.handler = handler;
     this.notices = new ArrayList<>();
   }
@@ -78,8 +81,8 @@ public class CopyOutRequest implements ServerRequest {
     }
 
     @Override
-    public void copyData(ByteBuf data) throws IOException {
-      data.readBytes(stream, data.readableBytes());
+    public void copyData(ByteBuf frame) {
+      data.offer(frame);
     }
 
     @Override
@@ -127,12 +130,14 @@ public class CopyOutRequest implements ServerRequest {
     @Override
     public Action readyForQuery(TransactionStatus txnStatus) throws IOException {
       handler.handleReady(txnStatus);
+      data.end();
       return Action.Complete;
     }
 
     @Override
     public void exception(Throwable cause) throws IOException {
       handler.handleError(cause, notices);
+      data.end();
     }
 
   }
@@ -145,6 +150,9 @@ public class CopyOutRequest implements ServerRequest {
   @Override
   public void execute(ProtocolChannel channel) throws IOException {
 
+    data = new CopyOutFrameQueue(channel);
+    handler.handleStart(data);
+
     channel.writeQuery(sql).flush();
 
   }
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.protocol.RequestExecutor.CopyOutRows;
+import com.impossibl.postgres.protocol.RowData;
+
+import java.io.IOException;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Queues binary copy data frames between the I/O thread and a single
+ * consumer thread that takes them as rows.
+ *
+ * @see CopyOutFrameQueue
+ */
+class CopyOutRowQueue implements CopyOutRows {
+
+  private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
+  private static final int OIDS_FLAG = 1 << 16;
+
+  private CopyOutFrameQueue frames;
+  private boolean headerRead;
+
+  CopyOutRowQueue(ProtocolChannel channel) {
+    this.frames = new CopyOutFrameQueue(channel);
+  }
+
+  /**
+   * Queues a received frame. Called from the I/O thread.
+   */
+  void offer(ByteBuf frame) {
+    frames.offer(frame);
+  }
+
+  /**
+   * Marks the end of the copy data. Called from the I/O thread.
+   */
+  void end() {
+    frames.end();
+  }
+
+  private static void readHeader(ByteBuf frame) throws IOException {
+
+    if (frame.readableBytes() < SIGNATURE.length + 8) {
+      throw new IOException("Invalid binary copy header");
+    }
+
+    for (byte signatureByte : SIGNATURE) {
+      if (frame.readByte() != signatureByte) {
+        throw new IOException("Invalid binary copy header");
+      }
+    }
+
+    int flags = frame.readInt();
+    if ((flags & OIDS_FLAG) != 0) {
+      throw new IOException("Binary copy with OIDs is not supported");
+    }
+
+    frame.skipBytes(frame.readInt());
+  }
+
+  @Override
+  public RowData take(long timeout) throws IOException {
+
+    while (true) {
+
+      ByteBuf frame = frames.take(timeout);
+      if (frame == null) {
+        return null;
+      }
+
+      try {
+
+        if (!headerRead) {
+          readHeader(frame);
+          headerRead = true;
+        }
+
+        // Skip the trailer (and any frame emptied by the header)
+        if (!frame.isReadable() || frame.getShort(frame.readerIndex()) == -1) {
+          continue;
+        }
+
+        // Backends send each tuple in its own frame
+        return new BufferRowData(frame.retain());
+      }
+      finally {
+        frame.release();
+      }
+    }
+
+  }
+
+  @Override
+  public void close() {
+    frames.close();
+  }
+
+}
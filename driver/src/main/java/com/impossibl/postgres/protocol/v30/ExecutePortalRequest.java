@@ -28,7 +28,6 @@
  */
 package com.impossibl.postgres.protocol.v30;
 
-import com.impossibl.postgres.protocol.FieldFormat;
 import com.impossibl.postgres.protocol.FieldFormatRef;
 import com.impossibl.postgres.protocol.Notice;
 import com.impossibl.postgres.protocol.RequestExecutor.ExtendedQueryHandler;
@@ -55,8 +54,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import static java.lang.Integer.min;
-
 import io.netty.buffer.ByteBuf;
 
 import static io.netty.util.ReferenceCountUtil.release;
@@ -98,19 +95,14 @@ class ExecutePortalRequest implements ServerRequest {
     }
 
     @Override
-    public Action rowDescription(ResultField[] fields) {
-      describedResultFields = fields;
-
+    public FieldFormatRef[] resultFieldFormats() {
       // Fix formats to match what was sent in the execute request
+      return REQUEST_ALL_TEXT;
+    }
 
-      FieldFormatRef[] effectiveFormats = REQUEST_ALL_TEXT;
-
-      for (int idx = 0; idx < describedResultFields.length; ++idx) {
-        FieldFormat format = effectiveFormats[min(idx, effectiveFormats.length - 1)].getFormat();
-        describedResultFields[idx].setFormat(format);
-      }
-
-
+    @Override
+    public Action rowDescription(ResultField[] fields) {
+      describedResultFields = fields;
       return Action.Resume;
     }
 
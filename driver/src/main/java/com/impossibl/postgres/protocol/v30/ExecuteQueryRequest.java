@@ -28,7 +28,6 @@
  */
 package com.impossibl.postgres.protocol.v30;
 
-import com.impossibl.postgres.protocol.FieldFormat;
 import com.impossibl.postgres.protocol.FieldFormatRef;
 import com.impossibl.postgres.protocol.Notice;
 import com.impossibl.postgres.protocol.RequestExecutor.ExtendedQueryHandler;
@@ -59,8 +58,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import static java.lang.Integer.min;
-
 import io.netty.buffer.ByteBuf;
 
 import static io.netty.util.ReferenceCountUtil.release;
@@ -69,6 +66,8 @@ import static io.netty.util.ReferenceCountUtil.release;
 class ExecuteQueryRequest implements ServerRequest {
 
   private String sql;
+  private String statementName;
+  private TypeRef[] parameterTypes;
   private String portalName;
   private FieldFormatRef[] parameterFormats;
   private ByteBuf[] parameterBuffers;
@@ -80,13 +79,15 @@ class ExecuteQueryRequest implements ServerRequest {
   private RowDataSet rows;
   private List<Notice> notices;
 
-  ExecuteQueryRequest(String sql, String portalName,
+  ExecuteQueryRequest(String sql, String statementName, TypeRef[] parameterTypes, String portalName,
                       FieldFormatRef[] parameterFormats,
                       ByteBuf[] parameterBuffers,
                       FieldFormatRef[] resultFieldFormats,
                       int maxRows,
                       ExtendedQueryHandler handler) {
     this.sql = sql;
+    this.statementName = statementName;
+    this.parameterTypes = parameterTypes;
     this.portalName = portalName;
     this.parameterFormats = parameterFormats;
     this.parameterBuffers = parameterBuffers;
@@ -128,20 +129,14 @@ class ExecuteQueryRequest implements ServerRequest {
     }
 
     @Override
-    public Action rowDescription(ResultField[] fields) {
-      describedResultFields = fields;
-
+    public FieldFormatRef[] resultFieldFormats() {
       // Fix formats to match what was sent in the execute request
+      return resultFieldFormats == null || resultFieldFormats.length == 0 ? REQUEST_ALL_BINARY : resultFieldFormats;
+    }
 
-      FieldFormatRef[] effectiveFormats =
-          resultFieldFormats == null || resultFieldFormats.length == 0 ? REQUEST_ALL_BINARY : resultFieldFormats;
-
-      for (int idx = 0; idx < describedResultFields.length; ++idx) {
-        FieldFormat format = effectiveFormats[min(idx, effectiveFormats.length - 1)].getFormat();
-        describedResultFields[idx].setFormat(format);
-      }
-
-
+    @Override
+    public Action rowDescription(ResultField[] fields) {
+      describedResultFields = fields;
       return Action.Resume;
     }
 
@@ -233,9 +228,9 @@ class ExecuteQueryRequest implements ServerRequest {
   public void execute(ProtocolChannel channel) throws IOException {
 
     channel
-        .writeParse(null, sql, EMPTY_TYPES)
-        .writeDescribe(Statement, null)
-        .writeBind(portalName, null, parameterFormats, parameterBuffers, resultFieldFormats)
+        .writeParse(statementName, sql, parameterTypes)
+        .writeDescribe(Statement, statementName)
+        .writeBind(portalName, statementName, parameterFormats, parameterBuffers, resultFieldFormats)
         .writeExecute(portalName, maxRows);
 
     if (!isSynchronized()) {
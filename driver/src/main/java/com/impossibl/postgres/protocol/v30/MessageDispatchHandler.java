@@ -36,19 +36,31 @@ import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.protocol.TypeOid;
 import com.impossibl.postgres.protocol.TypeRef;
+import com.impossibl.postgres.protocol.trace.TraceSink;
+import com.impossibl.postgres.system.Metrics;
 
 import static com.impossibl.postgres.protocol.TransactionStatus.Active;
 import static com.impossibl.postgres.protocol.TransactionStatus.Failed;
 import static com.impossibl.postgres.protocol.TransactionStatus.Idle;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH_COMPLETE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH_COMPLETE_PASSING;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH_RESUME;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH_RESUME_PASSING;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH_SYNC;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.FLUSH;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.RECEIVE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SEND;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.TRANSACTION;
 import static com.impossibl.postgres.protocol.v30.ProtocolHandlers.SYNC;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_MESSAGE_SIZE_MAX;
 import static com.impossibl.postgres.utils.ByteBufs.readCString;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.Writer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.concurrent.ConcurrentLinkedDeque;
 
@@ -64,17 +76,40 @@ import io.netty.util.ReferenceCountUtil;
 
 public class MessageDispatchHandler extends ChannelDuplexHandler {
 
+  private static class PendingRequest {
+
+    ProtocolHandler handler;
+    long startNanos;
+
+    PendingRequest(ProtocolHandler handler, long startNanos) {
+      this.handler = handler;
+      this.startNanos = startNanos;
+    }
+
+  }
+
   private TransactionStatus transactionStatus;
   private Deque<ProtocolHandler> protocolHandlers;
   private ProtocolHandler defaultHandler;
   private Charset charset;
-  private Writer traceWriter;
+  private RowDescriptionCache rowDescriptions;
+  private TraceSink traceSink;
+  private int traceId;
   private boolean requiresFlush = false;
+  private Metrics metrics;
+  private Deque<PendingRequest> pendingRequests;
 
-  MessageDispatchHandler(Charset charset, Writer traceWriter) {
+  MessageDispatchHandler(Charset charset, TraceSink traceSink, Metrics metrics) {
     this.protocolHandlers = new ConcurrentLinkedDeque<>();
     this.charset = charset;
-    this.traceWriter = traceWriter;
+    this.rowDescriptions = new RowDescriptionCache(charset);
+    this.traceSink = traceSink;
+    this.traceId = traceSink != null ? traceSink.newConnectionId() : 0;
+    if (metrics.isEnabled()) {
+      // Only accessed from the channel's event loop
+      this.metrics = metrics;
+      this.pendingRequests = new ArrayDeque<>();
+    }
   }
 
   void setDefaultHandler(ProtocolHandler defaultHandler) {
@@ -92,6 +127,8 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
       ServerRequest request = (ServerRequest) msg;
 
+      long startNanos = metrics != null ? System.nanoTime() : 0;
+
       // Add handler to queue (if request produces one)
 
       ProtocolHandler requestProtocolHandler = request.createHandler();
@@ -99,12 +136,20 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
         protocolHandlers.offer(requestProtocolHandler);
 
+        if (metrics != null) {
+          pendingRequests.offer(new PendingRequest(requestProtocolHandler, startNanos));
+        }
+
       }
 
       // Execute the request
 
       request.execute(new ProtocolChannel(ctx.channel(), ctx, charset));
 
+      if (metrics != null) {
+        metrics.ioBusy(System.nanoTime() - startNanos);
+      }
+
       promise.setSuccess();
     }
     else if (msg instanceof ByteBuf) {
@@ -113,7 +158,11 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
       ByteBuf buf = (ByteBuf) msg;
 
-      trace('<', (char) buf.getByte(0));
+      trace(SEND, buf.getByte(0));
+
+      if (metrics != null) {
+        metrics.bytesSent(buf.readableBytes());
+      }
 
       ctx.write(msg,  promise);
 
@@ -124,8 +173,7 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
   @Override
   public void flush(ChannelHandlerContext ctx) throws Exception {
-    trace("\n");
-    flushTrace();
+    trace(FLUSH, 0);
     if (requiresFlush) {
       super.flush(ctx);
       requiresFlush = false;
@@ -135,15 +183,21 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object message) throws IOException {
 
+    long startNanos = metrics != null ? System.nanoTime() : 0;
+
     ByteBuf msg = (ByteBuf) message;
     try {
+      if (metrics != null) {
+        metrics.bytesReceived(msg.readableBytes());
+      }
+
       // Parse message header
 
       byte id = msg.readByte();
       int length = msg.readInt() - 4;
       ByteBuf data = msg.readSlice(length);
 
-      trace('>', (char) id);
+      trace(RECEIVE, id);
 
       // Dispatch to current request handler
 
@@ -154,20 +208,30 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
     }
     finally {
       ReferenceCountUtil.release(msg);
+
+      if (metrics != null) {
+        metrics.ioBusy(System.nanoTime() - startNanos);
+      }
     }
   }
 
   @Override
   public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
-    trace("\n");
-    flushTrace();
+    trace(FLUSH, 0);
     super.channelReadComplete(ctx);
   }
 
   @Override
   public void channelInactive(ChannelHandlerContext ctx) {
 
-    exceptionCaught(ctx, new ClosedChannelException());
+    // Fail every pending request, when pipelined any number
+    // of them can be awaiting responses that will never arrive
+
+    ClosedChannelException cause = new ClosedChannelException();
+    do {
+      exceptionCaught(ctx, cause);
+    }
+    while (!protocolHandlers.isEmpty());
   }
 
   @Override
@@ -184,6 +248,7 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
     // Dispatch to current request handler (if any)
 
     ProtocolHandler handler = protocolHandlers.poll();
+    requestCompleted(handler);
     handler = handler != null ? handler : defaultHandler;
 
     if (handler == null) return;
@@ -230,11 +295,11 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
     switch (action) {
       case Resume:
-        trace(".");
+        trace(DISPATCH, DISPATCH_RESUME);
         break;
 
       case ResumePassing:
-        trace(".^");
+        trace(DISPATCH, DISPATCH_RESUME_PASSING);
         ProtocolHandler resume = protocolHandlers.pop();
         try {
           dispatch(ctx, id, data.resetReaderIndex(), protocolHandlers.peek());
@@ -245,24 +310,38 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
         break;
 
       case Complete:
-        trace("*");
-        protocolHandlers.pop();
+        trace(DISPATCH, DISPATCH_COMPLETE);
+        requestCompleted(protocolHandlers.pop());
         break;
 
       case CompletePassing:
-        trace("*^");
-        protocolHandlers.pop();
+        trace(DISPATCH, DISPATCH_COMPLETE_PASSING);
+        requestCompleted(protocolHandlers.pop());
         dispatch(ctx, id, data.resetReaderIndex(), protocolHandlers.peek());
         break;
 
       case Sync:
-        trace("$");
-        protocolHandlers.pop();
+        trace(DISPATCH, DISPATCH_SYNC);
+        requestCompleted(protocolHandlers.pop());
         protocolHandlers.addFirst(SYNC);
         break;
     }
   }
 
+  /**
+   * Reports the round trip of a request when its handler is removed; handlers
+   * of sub-protocols (e.g. COPY) are not tracked and are ignored.
+   */
+  private void requestCompleted(ProtocolHandler handler) {
+    if (metrics == null) return;
+
+    PendingRequest pending = pendingRequests.peek();
+    if (pending != null && pending.handler == handler) {
+      pendingRequests.poll();
+      metrics.requestCompleted(System.nanoTime() - pending.startNanos);
+    }
+  }
+
   // Backend messages
   private static final byte NEGOTIATE_PROTOCOL_VERSION_ID = 'B';
   private static final byte AUTHENTICATION_MSG_ID = 'R';
@@ -379,6 +458,9 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
         return receiveReadyForQuery(data, (ProtocolHandler.ReadyForQuery) handler);
 
       case COPY_IN_RESPONSE_MSG_ID:
+        if (handler instanceof ProtocolHandler.CopyInChannelResponse) {
+          return receiveCopyInResponse(ctx, data, (ProtocolHandler.CopyInChannelResponse) handler);
+        }
         if (!(handler instanceof ProtocolHandler.CopyInResponse)) return null;
         return receiveCopyInResponse(ctx, data, (ProtocolHandler.CopyInResponse) handler);
 
@@ -563,22 +645,7 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
   private ProtocolHandler.Action receiveRowDescription(ByteBuf buffer, ProtocolHandler.RowDescription handler) throws IOException {
 
-    int fieldCount = buffer.readUnsignedShort();
-
-    ResultField[] fields = new ResultField[fieldCount];
-
-    for (int c = 0; c < fieldCount; ++c) {
-
-      ResultField field = new ResultField(readCString(buffer, charset),
-          buffer.readInt(),
-          (short) buffer.readUnsignedShort(),
-          TypeOid.valueOf(buffer.readInt()),
-          buffer.readShort(),
-          buffer.readInt(),
-          FieldFormat.values()[buffer.readUnsignedShort()]);
-
-      fields[c] = field;
-    }
+    ResultField[] fields = rowDescriptions.decode(buffer, handler.resultFieldFormats());
 
     return handler.rowDescription(fields);
   }
@@ -644,6 +711,20 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
     return ProtocolHandler.Action.Resume;
   }
 
+  private ProtocolHandler.Action receiveCopyInResponse(ChannelHandlerContext ctx, ByteBuf buffer, ProtocolHandler.CopyInChannelResponse handler) throws IOException {
+
+    CopyFormat copyFormat = buffer.readByte() == 0 ? CopyFormat.Text : CopyFormat.Binary;
+
+    FieldFormat[] fieldFormats = new FieldFormat[buffer.readUnsignedShort()];
+    for (int fieldFormatIdx = 0; fieldFormatIdx < fieldFormats.length; ++fieldFormatIdx) {
+      fieldFormats[fieldFormatIdx] = buffer.readUnsignedShort() == 0 ? FieldFormat.Text : FieldFormat.Binary;
+    }
+
+    handler.copyIn(copyFormat, fieldFormats, new ProtocolChannel(ctx.channel(), charset));
+
+    return ProtocolHandler.Action.Resume;
+  }
+
   private ProtocolHandler.Action receiveCopyOutResponse(ByteBuf buffer, ProtocolHandler.CopyOutResponse handler) throws IOException {
 
     CopyFormat copyFormat = buffer.readByte() == 0 ? CopyFormat.Text : CopyFormat.Binary;
@@ -746,16 +827,16 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
     switch (buffer.readByte()) {
       case 'T':
         transactionStatus = Active;
-        trace("[");
+        trace(TRANSACTION, '[');
         break;
       case 'E':
         transactionStatus = Failed;
-        trace("!");
+        trace(TRANSACTION, '!');
         break;
       case 'I':
         transactionStatus = Idle;
         if (previousTransactionStatus != Idle) {
-          trace("]");
+          trace(TRANSACTION, ']');
         }
         break;
       default:
@@ -845,32 +926,9 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
     return notice;
   }
 
-  private void flushTrace() {
-    if (traceWriter == null) return;
-    try {
-      traceWriter.flush();
-    }
-    catch (IOException ignored) {
-    }
-  }
-
-  private void trace(char dir, char id) {
-    if (traceWriter == null) return;
-    try {
-      traceWriter.append(dir);
-      traceWriter.append(id);
-    }
-    catch (IOException ignored) {
-    }
-  }
-
-  private void trace(CharSequence code) {
-    if (traceWriter == null) return;
-    try {
-      traceWriter.append(code);
-    }
-    catch (IOException ignored) {
-    }
+  private void trace(byte type, int code) {
+    if (traceSink == null) return;
+    traceSink.record(traceId, type, code);
   }
 
 }
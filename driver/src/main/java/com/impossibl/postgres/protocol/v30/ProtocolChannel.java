@@ -34,7 +34,7 @@ import com.impossibl.postgres.protocol.ServerObjectType;
 import com.impossibl.postgres.protocol.TypeRef;
 
 import static com.impossibl.postgres.protocol.FieldFormat.Text;
-import static com.impossibl.postgres.utils.ByteBufs.lengthEncode;
+import static com.impossibl.postgres.utils.Await.awaitUninterruptibly;
 import static com.impossibl.postgres.utils.ByteBufs.writeCString;
 import static com.impossibl.postgres.utils.guava.Strings.nullToEmpty;
 
@@ -49,6 +49,8 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOutboundInvoker;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
 
 public class ProtocolChannel {
 
@@ -72,6 +74,7 @@ public class ProtocolChannel {
   private ChannelOutboundInvoker flusher;
   private ByteBufAllocator alloc;
   private Charset charset;
+  private volatile Throwable copyDataFailure;
 
   public ProtocolChannel(Channel channel, Charset charset) {
     this(channel, channel, charset);
@@ -88,11 +91,22 @@ public class ProtocolChannel {
     return channel.pipeline();
   }
 
+  EventLoop eventLoop() {
+    return channel.eventLoop();
+  }
+
   ProtocolChannel flush() {
     flusher.flush();
     return this;
   }
 
+  /**
+   * Suspends or resumes reading from the connection.
+   */
+  void setAutoRead(boolean autoRead) {
+    channel.config().setAutoRead(autoRead);
+  }
+
   ProtocolChannel writeSSLRequest() {
 
     ByteBuf msg = alloc.buffer();
@@ -195,7 +209,7 @@ public class ProtocolChannel {
     byte[] portalNameBytes = nullToEmpty(portalName).getBytes(charset);
     byte[] stmtNameBytes = nullToEmpty(stmtName).getBytes(charset);
 
-    ByteBuf msg = beginMessage(BIND_MSG_ID);
+    ByteBuf msg = beginMessage(BIND_MSG_ID, 32 + portalNameBytes.length + stmtNameBytes.length + paramsSize(parameterFormats, parameterBuffers));
 
     writeCString(msg, portalNameBytes);
     writeCString(msg, stmtNameBytes);
@@ -304,8 +318,57 @@ public class ProtocolChannel {
     return this;
   }
 
+  /**
+   * Writes and flushes copy data. When the channel stops being writable the
+   * caller is blocked until the data has been written to the connection,
+   * limiting the amount of copy data buffered in memory.
+   *
+   * Writes that are not waited for can fail later; their failure is
+   * recorded and thrown by the next call or by {@link #writeCopyDone()}.
+   *
+   * Must not be called from the channel's event loop.
+   */
+  ProtocolChannel writeCopyDataAndWait(ByteBuf data) throws IOException {
+
+    checkCopyDataFailure();
+
+    ByteBuf msg = beginMessage(COPY_DATA_MSG_ID, data.readableBytes() + 5);
+
+    msg.writeBytes(data);
+
+    ChannelPromise promise = channel.newPromise();
+    promise.addListener(written -> {
+      if (!written.isSuccess() && copyDataFailure == null) {
+        copyDataFailure = written.cause();
+      }
+    });
+
+    endMessage(msg, promise);
+
+    flush();
+
+    if (!channel.isWritable()) {
+      awaitUninterruptibly(promise);
+    }
+
+    checkCopyDataFailure();
+
+    return this;
+  }
+
+  private void checkCopyDataFailure() throws IOException {
+
+    Throwable cause = copyDataFailure;
+    if (cause != null) {
+      copyDataFailure = null;
+      throw new IOException("Error writing copy data", cause);
+    }
+  }
+
   ProtocolChannel writeCopyDone() throws IOException {
 
+    checkCopyDataFailure();
+
     writeMessage(COPY_DONE_MSG_ID);
 
     return this;
@@ -315,7 +378,9 @@ public class ProtocolChannel {
 
     ByteBuf msg = beginMessage(COPY_FAIL_MSG_ID);
 
-    msg.writeCharSequence(message, charset);
+    writeCString(msg, nullToEmpty(message), charset);
+
+    endMessage(msg);
 
     return this;
   }
@@ -367,8 +432,12 @@ public class ProtocolChannel {
   }
 
   private ByteBuf beginMessage(byte msgId) {
+    return beginMessage(msgId, 0);
+  }
 
-    ByteBuf msg = alloc.buffer();
+  private ByteBuf beginMessage(byte msgId, int sizeHint) {
+
+    ByteBuf msg = sizeHint > 0 ? alloc.buffer(sizeHint) : alloc.buffer();
 
     if (msgId != 0)
       msg.writeByte(msgId);
@@ -381,6 +450,10 @@ public class ProtocolChannel {
   }
 
   private void endMessage(ByteBuf msg) {
+    endMessage(msg, channel.voidPromise());
+  }
+
+  private void endMessage(ByteBuf msg, ChannelPromise promise) {
 
     int endPos = msg.writerIndex();
 
@@ -392,7 +465,7 @@ public class ProtocolChannel {
 
     msg.writerIndex(endPos);
 
-    channel.write(msg, channel.voidPromise());
+    channel.write(msg, promise);
   }
 
   private void loadParams(ByteBuf msg, FieldFormatRef[] fieldFormats, ByteBuf[] paramBuffers) throws IOException {
@@ -417,13 +490,30 @@ public class ProtocolChannel {
     else {
       msg.writeShort(paramBuffers.length);
       for (ByteBuf paramBuffer : paramBuffers) {
-        lengthEncode(msg, paramBuffer, () -> {
-          msg.writeBytes(paramBuffer);
-          paramBuffer.resetReaderIndex();
-        });
+        if (paramBuffer == null) {
+          msg.writeInt(-1);
+        }
+        else {
+          // Absolute copy leaves the (possibly shared) parameter buffer untouched
+          msg.writeInt(paramBuffer.readableBytes());
+          msg.writeBytes(paramBuffer, paramBuffer.readerIndex(), paramBuffer.readableBytes());
+        }
+      }
+    }
+
+  }
+
+  private static int paramsSize(FieldFormatRef[] fieldFormats, ByteBuf[] paramBuffers) {
+
+    int size = fieldFormats != null ? fieldFormats.length * 2 : 0;
+
+    if (paramBuffers != null) {
+      for (ByteBuf paramBuffer : paramBuffers) {
+        size += 4 + (paramBuffer != null ? paramBuffer.readableBytes() : 0);
       }
     }
 
+    return size;
   }
 
 }
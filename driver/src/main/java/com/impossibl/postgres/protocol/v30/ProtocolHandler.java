@@ -30,6 +30,7 @@ package com.impossibl.postgres.protocol.v30;
 
 import com.impossibl.postgres.protocol.CopyFormat;
 import com.impossibl.postgres.protocol.FieldFormat;
+import com.impossibl.postgres.protocol.FieldFormatRef;
 import com.impossibl.postgres.protocol.Notice;
 import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.TransactionStatus;
@@ -101,6 +102,16 @@ public interface ProtocolHandler {
 
   interface RowDescription extends ProtocolHandler {
 
+    /**
+     * Formats the described fields are fixed to before they are passed
+     * to {@link #rowDescription(ResultField[])}.
+     *
+     * @return Requested result field formats, or {@code null} to keep the described formats
+     */
+    default FieldFormatRef[] resultFieldFormats() {
+      return null;
+    }
+
     Action rowDescription(ResultField[] fields) throws IOException;
 
   }
@@ -189,6 +200,16 @@ public interface ProtocolHandler {
 
   }
 
+  /**
+   * Alternative to {@link CopyInResponse} for handlers that write
+   * the copy data themselves, using the provided channel.
+   */
+  interface CopyInChannelResponse extends ProtocolHandler {
+
+    void copyIn(CopyFormat format, FieldFormat[] fieldFormats, ProtocolChannel channel) throws IOException;
+
+  }
+
   interface CopyOutResponse extends ProtocolHandler {
 
     ProtocolHandler copyOut(CopyFormat format, FieldFormat[] fieldFormats) throws IOException;
@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.protocol.FieldFormat;
+import com.impossibl.postgres.protocol.FieldFormatRef;
+import com.impossibl.postgres.protocol.ResultField;
+import com.impossibl.postgres.protocol.TypeOid;
+import com.impossibl.postgres.utils.CacheMap;
+
+import static com.impossibl.postgres.utils.ByteBufs.readCString;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.Integer.min;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Interns decoded "RowDescription" messages.
+ *
+ * Byte-identical message payloads (e.g. those received when re-preparing
+ * or re-describing the same statement) are decoded once and the canonical
+ * {@link ResultField} array is returned for each subsequent payload.
+ * Copies with their formats fixed to those requested by the executing
+ * request are interned alongside each description, so repeated executions
+ * of the same statement receive the identical array. The returned arrays
+ * are shared and must not be modified.
+ *
+ * Instances are not thread-safe; each is owned by a single channel's
+ * dispatch handler.
+ */
+class RowDescriptionCache {
+
+  private static final int MAX_SIZE = 64;
+  private static final int MAX_PAYLOAD_SIZE = 8 * 1024;
+  private static final FieldFormat[] FORMATS = FieldFormat.values();
+
+  private Map<ByteBuf, Description> descriptions;
+  private Charset charset;
+
+  RowDescriptionCache(Charset charset) {
+    this.descriptions = new CacheMap<>(MAX_SIZE, 1.1f, true);
+    this.charset = charset;
+  }
+
+  /**
+   * Decodes the "RowDescription" contained in the buffer, returning the
+   * canonical result fields when an identical description was previously
+   * decoded.
+   *
+   * @param buffer Buffer containing the message payload, its readable bytes are consumed
+   * @param formats Formats the fields will be delivered in, or {@code null} to keep the described formats
+   * @return Decoded (possibly shared) result fields
+   */
+  ResultField[] decode(ByteBuf buffer, FieldFormatRef[] formats) {
+
+    int payloadSize = buffer.readableBytes();
+    if (payloadSize > MAX_PAYLOAD_SIZE) {
+      ResultField[] fields = decodeFields(buffer);
+      return formats != null ? applyFormats(fields, resolveFormats(fields.length, formats)) : fields;
+    }
+
+    // ByteBuf equality & hashing are based on readable content
+    Description description = descriptions.get(buffer);
+    if (description != null) {
+      buffer.skipBytes(payloadSize);
+    }
+    else {
+      ByteBuf key = Unpooled.wrappedBuffer(ByteBufUtil.getBytes(buffer));
+
+      description = new Description(decodeFields(buffer));
+
+      descriptions.put(key, description);
+    }
+
+    return description.withFormats(formats);
+  }
+
+  private static class Description {
+
+    private ResultField[] fields;
+    private Map<List<FieldFormat>, ResultField[]> formatted;
+
+    Description(ResultField[] fields) {
+      this.fields = fields;
+    }
+
+    ResultField[] withFormats(FieldFormatRef[] formats) {
+
+      if (formats == null) {
+        return fields;
+      }
+
+      if (formatted == null) {
+        formatted = new HashMap<>(4);
+      }
+
+      return formatted.computeIfAbsent(resolveFormats(fields.length, formats), key -> applyFormats(fields, key));
+    }
+
+  }
+
+  private static List<FieldFormat> resolveFormats(int fieldCount, FieldFormatRef[] formats) {
+
+    FieldFormat[] resolved = new FieldFormat[fieldCount];
+    for (int idx = 0; idx < fieldCount; ++idx) {
+      resolved[idx] = formats[min(idx, formats.length - 1)].getFormat();
+    }
+
+    return Arrays.asList(resolved);
+  }
+
+  private static ResultField[] applyFormats(ResultField[] fields, List<FieldFormat> formats) {
+
+    ResultField[] formatted = null;
+    for (int idx = 0; idx < fields.length; ++idx) {
+      ResultField field = fields[idx].withFormat(formats.get(idx));
+      if (field != fields[idx]) {
+        if (formatted == null) {
+          formatted = fields.clone();
+        }
+        formatted[idx] = field;
+      }
+    }
+
+    // Keep the interned description when no format changed
+    return formatted != null ? formatted : fields;
+  }
+
+  private ResultField[] decodeFields(ByteBuf buffer) {
+
+    int fieldCount = buffer.readUnsignedShort();
+
+    ResultField[] fields = new ResultField[fieldCount];
+
+    for (int c = 0; c < fieldCount; ++c) {
+
+      ResultField field = new ResultField(readCString(buffer, charset),
+          buffer.readInt(),
+          (short) buffer.readUnsignedShort(),
+          TypeOid.valueOf(buffer.readInt()),
+          buffer.readShort(),
+          buffer.readInt(),
+          FORMATS[buffer.readUnsignedShort()]);
+
+      fields[c] = field;
+    }
+
+    return fields;
+  }
+
+}
@@ -33,26 +33,29 @@ import com.impossibl.postgres.protocol.RequestExecutor;
 import com.impossibl.postgres.protocol.ServerObjectType;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.protocol.TypeRef;
+import com.impossibl.postgres.protocol.trace.TraceSink;
 import com.impossibl.postgres.system.Configuration;
+import com.impossibl.postgres.system.Metrics;
 import com.impossibl.postgres.system.ServerInfo;
 import com.impossibl.postgres.system.Version;
 
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_CLOSE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_EXECUTE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_PREPARE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_QUERY;
+import static com.impossibl.postgres.system.Empty.EMPTY_TYPES;
 import static com.impossibl.postgres.system.SystemSettings.SQL_TRACE;
 import static com.impossibl.postgres.system.SystemSettings.SQL_TRACE_FILE;
+import static com.impossibl.postgres.utils.Await.awaitUninterruptibly;
 
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.net.SocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
@@ -70,25 +73,24 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
   private KeyData keyData;
   private ServerConnectionShared.Ref sharedRef;
   private SQLTrace sqlTrace;
+  private Metrics metrics;
+  private ReentrantLock requestLock = new ReentrantLock();
 
-  ServerConnection(Configuration config, Channel channel, ServerInfo serverInfo, Version protocolVersion, KeyData keyData, ServerConnectionShared.Ref sharedRef) {
+  ServerConnection(Configuration config, Channel channel, ServerInfo serverInfo, Version protocolVersion, KeyData keyData, ServerConnectionShared.Ref sharedRef, Metrics metrics) {
     this.channel = channel;
     this.serverInfo = serverInfo;
     this.protocolVersion = protocolVersion;
     this.keyData = keyData;
     this.sharedRef = sharedRef;
+    this.metrics = metrics;
+
+    if (metrics.isEnabled()) {
+      metrics.connectionOpened();
+      channel.closeFuture().addListener(closed -> metrics.connectionClosed());
+    }
 
     if (config.getSetting(SQL_TRACE)) {
-      OutputStream out = System.out;
-      String filePath = config.getSetting(SQL_TRACE_FILE);
-      if (filePath != null) {
-        try {
-          out = new FileOutputStream(filePath, false);
-        }
-        catch (FileNotFoundException ignore) {
-        }
-      }
-      sqlTrace = new SQLTrace(new OutputStreamWriter(out));
+      sqlTrace = new SQLTrace(TraceSink.get(config.getSetting(SQL_TRACE_FILE), config));
     }
   }
 
@@ -170,6 +172,11 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     return channel.eventLoop();
   }
 
+  @Override
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
   @Override
   public TransactionStatus getTransactionStatus() throws IOException {
     if (!channel.isActive()) {
@@ -188,6 +195,11 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     return this;
   }
 
+  @Override
+  public Lock getRequestLock() {
+    return requestLock;
+  }
+
   @Override
   public void sync(SynchronizedHandler handler) throws IOException {
     submit(new SynchronizeRequest(handler));
@@ -206,7 +218,20 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     if (sqlTrace != null) {
       sqlTrace.query(sql);
     }
-    submit(new ExecuteQueryRequest(sql, portalName, parameterFormats, parameterBuffers, resultFieldFormats, maxRows, handler));
+    submit(new ExecuteQueryRequest(sql, null, EMPTY_TYPES, portalName, parameterFormats, parameterBuffers, resultFieldFormats, maxRows, handler));
+  }
+
+  @Override
+  public void query(String sql, String statementName, TypeRef[] parameterTypes, String portalName, FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers, FieldFormatRef[] resultFieldFormats, int maxRows, ExtendedQueryHandler handler) throws IOException {
+    if (sqlTrace != null) {
+      if (statementName != null) {
+        sqlTrace.prepare(statementName, sql);
+      }
+      else {
+        sqlTrace.query(sql);
+      }
+    }
+    submit(new ExecuteQueryRequest(sql, statementName, parameterTypes, portalName, parameterFormats, parameterBuffers, resultFieldFormats, maxRows, handler));
   }
 
   @Override
@@ -268,22 +293,72 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
   }
 
   @Override
-  public void copyTo(String sql, OutputStream stream, CopyToHandler handler) throws IOException {
+  public void copyIn(String sql, CopyInHandler handler) throws IOException {
+    if (sqlTrace != null) {
+      sqlTrace.query("COPY-IN: " + sql);
+    }
+    submit(new CopyInSinkRequest(sql, handler));
+  }
+
+  @Override
+  public void copyOut(String sql, CopyOutHandler handler) throws IOException {
+    if (sqlTrace != null) {
+      sqlTrace.query("COPY-OUT: " + sql);
+    }
+    submit(new CopyOutRowsRequest(sql, handler));
+  }
+
+  @Override
+  public void copyTo(String sql, CopyToHandler handler) throws IOException {
     if (sqlTrace != null) {
       sqlTrace.query("COPY-OUT: " + sql);
     }
-    submit(new CopyOutRequest(sql, stream, handler));
+    submit(new CopyOutRequest(sql, handler));
   }
 
   @Override
   public void close(ServerObjectType objectType, String objectName) throws IOException {
+    if (sqlTrace != null && objectType == ServerObjectType.Statement) {
+      sqlTrace.close(objectName);
+    }
     submit(new CloseRequest(objectType, objectName, null));
   }
 
+  private void submit(ServerRequest request) throws IOException {
+
+    if (!metrics.isEnabled()) {
+      write(request);
+      return;
+    }
+
+    long startNanos = System.nanoTime();
+
+    write(request);
+
+    metrics.requestQueued(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Writes a request. Requests are handed to the channel, in submission
+   * order, while holding the request lock but waiting for the write happens
+   * after releasing it; allowing requests from any number of threads to be
+   * pipelined. The lock is explicit, and waiting avoids the future's
+   * monitor, so virtual threads are not pinned while writing.
+   */
   @SuppressWarnings("RedundantThrows")
-  private synchronized void submit(ServerRequest request) throws IOException {
+  private void write(ServerRequest request) throws IOException {
+
+    ChannelFuture written;
+
+    requestLock.lock();
+    try {
+      written = channel.writeAndFlush(request);
+    }
+    finally {
+      requestLock.unlock();
+    }
 
-    channel.writeAndFlush(request).syncUninterruptibly();
+    awaitUninterruptibly(written).syncUninterruptibly();
   }
 
 }
@@ -291,37 +366,28 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
 
 class SQLTrace {
 
-  private Writer out;
-  private Map<String, String> preparedText;
+  private TraceSink sink;
+  private int id;
 
-  SQLTrace(Writer out) {
-    this.out = out;
-    this.preparedText = new HashMap<>();
+  SQLTrace(TraceSink sink) {
+    this.sink = sink;
+    this.id = sink.newConnectionId();
   }
 
   void prepare(String statement, String text) {
-    preparedText.put(statement, text);
-    try {
-      out.append("P: ").append(statement).append(" = ").append(text).append('\n').flush();
-    }
-    catch (IOException ignore) {
-    }
+    sink.record(id, SQL_PREPARE, statement, text);
   }
 
   void query(String text) {
-    try {
-      out.append("Q: ").append(text).append('\n').flush();
-    }
-    catch (IOException ignore) {
-    }
+    sink.record(id, SQL_QUERY, null, text);
   }
 
   void execute(String statement) {
-    try {
-      out.append("Q (").append(statement).append("): ").append(preparedText.get(statement)).append('\n').flush();
-    }
-    catch (IOException ignore) {
-    }
+    sink.record(id, SQL_EXECUTE, statement, null);
+  }
+
+  void close(String statement) {
+    sink.record(id, SQL_CLOSE, statement, null);
   }
 
 }
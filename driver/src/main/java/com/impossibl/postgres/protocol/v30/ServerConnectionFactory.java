@@ -33,6 +33,7 @@ import com.impossibl.postgres.protocol.FieldFormat;
 import com.impossibl.postgres.protocol.Notice;
 import com.impossibl.postgres.protocol.ssl.SSLEngineFactory;
 import com.impossibl.postgres.protocol.ssl.SSLMode;
+import com.impossibl.postgres.protocol.trace.TraceSink;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandError;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CopyData;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CopyDone;
@@ -43,6 +44,7 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.Notification;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ParameterStatus;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
 import com.impossibl.postgres.system.Configuration;
+import com.impossibl.postgres.system.Metrics;
 import com.impossibl.postgres.system.NoticeException;
 import com.impossibl.postgres.system.ParameterNames;
 import com.impossibl.postgres.system.ServerInfo;
@@ -68,14 +70,9 @@ import static com.impossibl.postgres.system.SystemSettings.SSL_MODE;
 import static com.impossibl.postgres.utils.Await.awaitUninterruptibly;
 import static com.impossibl.postgres.utils.Nulls.firstNonNull;
 
-import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.lang.ref.WeakReference;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
@@ -145,19 +142,21 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
   private ServerConnection connect(Configuration config, SSLMode sslMode, SocketAddress address, ServerConnection.Listener listener) throws IOException {
 
+    Metrics metrics = Metrics.lookup(config);
+
     try {
 
-      CreatedChannel createdChannel = createChannel(address, config);
+      CreatedChannel createdChannel = createChannel(address, config, metrics);
 
       ServerConnectionShared.Ref sharedRef = createdChannel.sharedRef;
-      Channel channel = createdChannel.channelFuture.syncUninterruptibly().channel();
+      Channel channel = awaitUninterruptibly(createdChannel.channelFuture).syncUninterruptibly().channel();
 
       if (sslMode != SSLMode.Disable && sslMode != SSLMode.Allow) {
 
         // Execute SSL query command
 
         SSLQueryRequest sslQueryRequest = new SSLQueryRequest();
-        channel.writeAndFlush(sslQueryRequest).syncUninterruptibly();
+        awaitUninterruptibly(channel.writeAndFlush(sslQueryRequest)).syncUninterruptibly();
 
         boolean sslQueryCompleted = awaitUninterruptibly(DEFAULT_SSL_TIMEOUT, SECONDS, sslQueryRequest::await);
 
@@ -197,7 +196,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
       try {
 
         Map<String, String> parameterStatuses = new HashMap<>();
-        ServerConnection serverConnection = startup(config, channel, parameterStatuses, sharedRef);
+        ServerConnection serverConnection = startup(config, channel, parameterStatuses, sharedRef, metrics);
 
         if (sslMode == SSLMode.VerifyFull) {
 
@@ -253,13 +252,13 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
   }
 
-  private CreatedChannel createChannel(SocketAddress address, Configuration config) {
+  private CreatedChannel createChannel(SocketAddress address, Configuration config, Metrics metrics) {
 
     if (address instanceof InetSocketAddress) {
-      return createInetSocketChannel((InetSocketAddress) address, config);
+      return createInetSocketChannel((InetSocketAddress) address, config, metrics);
     }
     else if (address instanceof DomainSocketAddress) {
-      return createDomainSocketChannel((DomainSocketAddress) address, config);
+      return createDomainSocketChannel((DomainSocketAddress) address, config, metrics);
     }
     else {
       throw new IllegalArgumentException("Unsupported socket address: " + address.getClass().getSimpleName());
@@ -267,7 +266,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
   }
 
   @SuppressWarnings("deprecation")
-  private CreatedChannel createInetSocketChannel(InetSocketAddress address, Configuration config) {
+  private CreatedChannel createInetSocketChannel(InetSocketAddress address, Configuration config, Metrics metrics) {
 
     int maxMessageSize = config.getSetting(PROTOCOL_MESSAGE_SIZE_MAX);
     Charset clientEncoding = config.getSetting(PROTOCOL_ENCODING);
@@ -315,7 +314,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
     ServerConnectionShared.Ref sharedRef = ServerConnectionShared.acquire(groupType, maxThreads);
 
-    Writer protocolTraceWriter = createProtocolTracer(config);
+    TraceSink protocolTraceSink = createProtocolTracer(config);
 
     Bootstrap bootstrap = new Bootstrap()
         .group(sharedRef.get().getEventLoopGroup())
@@ -325,7 +324,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
           protected void initChannel(SocketChannel ch) {
             ch.pipeline().addLast(
                 new LengthFieldBasedFrameDecoder(maxMessageSize, 1, 4, -4, 0),
-                new MessageDispatchHandler(clientEncoding, protocolTraceWriter)
+                new MessageDispatchHandler(clientEncoding, protocolTraceSink, metrics)
             );
           }
         })
@@ -338,7 +337,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
     return new CreatedChannel(sharedRef, channelFuture);
   }
 
-  private CreatedChannel createDomainSocketChannel(DomainSocketAddress address, Configuration config) {
+  private CreatedChannel createDomainSocketChannel(DomainSocketAddress address, Configuration config, Metrics metrics) {
 
     int maxMessageSize = config.getSetting(PROTOCOL_MESSAGE_SIZE_MAX);
     Charset clientEncoding = config.getSetting(PROTOCOL_ENCODING);
@@ -361,7 +360,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
     ServerConnectionShared.Ref sharedRef = ServerConnectionShared.acquire(groupType, maxThreads);
 
-    Writer protocolTraceWriter = createProtocolTracer(config);
+    TraceSink protocolTraceSink = createProtocolTracer(config);
 
     Bootstrap bootstrap = new Bootstrap()
         .group(sharedRef.get().getEventLoopGroup())
@@ -371,7 +370,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
           protected void initChannel(DomainSocketChannel ch) {
             ch.pipeline().addLast(
                 new LengthFieldBasedFrameDecoder(maxMessageSize, 1, 4, -4, 0),
-                new MessageDispatchHandler(clientEncoding, protocolTraceWriter)
+                new MessageDispatchHandler(clientEncoding, protocolTraceSink, metrics)
             );
           }
         });
@@ -399,23 +398,14 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
     bootstrap.option(ChannelOption.ALLOCATOR, usePooledAllocator ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT);
   }
 
-  private Writer createProtocolTracer(Configuration config) {
+  private TraceSink createProtocolTracer(Configuration config) {
     if (config.getSetting(PROTOCOL_TRACE)) {
-      OutputStream out = System.out;
-      String filePath = config.getSetting(PROTOCOL_TRACE_FILE);
-      if (filePath != null) {
-        try {
-          out = new FileOutputStream(filePath, false);
-        }
-        catch (FileNotFoundException ignored) {
-        }
-      }
-      return new BufferedWriter(new OutputStreamWriter(out));
+      return TraceSink.get(config.getSetting(PROTOCOL_TRACE_FILE), config);
     }
     return null;
   }
 
-  private static ServerConnection startup(Configuration config, Channel channel, Map<String, String> startupParameterStatuses, ServerConnectionShared.Ref sharedRef) throws IOException {
+  private static ServerConnection startup(Configuration config, Channel channel, Map<String, String> startupParameterStatuses, ServerConnectionShared.Ref sharedRef, Metrics metrics) throws IOException {
 
     Map<String, Object> params = new HashMap<>();
     params.put(ParameterNames.APPLICATION_NAME, config.getSetting(APPLICATION_NAME));
@@ -453,7 +443,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
       }
 
     });
-    channel.writeAndFlush(startupRequest).syncUninterruptibly();
+    awaitUninterruptibly(channel.writeAndFlush(startupRequest)).syncUninterruptibly();
 
     if (!awaitUninterruptibly(DEFAULT_STARTUP_TIMEOUT, SECONDS, startupCompleted::await)) {
       throw new IOException("Timeout starting connection");
@@ -475,7 +465,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
     protocolVersion = startupProtocolVersion.get() != null ? startupProtocolVersion.get() : protocolVersion;
 
-    return new ServerConnection(config, channel, serverInfo, protocolVersion, startupKeyData.get(), sharedRef);
+    return new ServerConnection(config, channel, serverInfo, protocolVersion, startupKeyData.get(), sharedRef, metrics);
   }
 
   private static IOException translateConnectionException(Exception e) {
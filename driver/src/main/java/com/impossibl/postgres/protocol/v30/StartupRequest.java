@@ -47,6 +47,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -54,6 +56,9 @@ import io.netty.buffer.ByteBuf;
 
 public class StartupRequest implements ServerRequest {
 
+  // Bounded and shared with other CPU bound work, unlike the I/O event loops
+  private static final Executor SASL_EXECUTOR = ForkJoinPool.commonPool();
+
   interface CompletionHandler {
 
     String authenticateClear() throws IOException;
@@ -227,14 +232,41 @@ public class StartupRequest implements ServerRequest {
 
       String serverFirstMessage = data.readCharSequence(data.readableBytes(), UTF_8).toString();
 
-      ByteBuf response = handler.authenticateSASLContinue(serverFirstMessage);
+      // Generating the response requires salting the password (PBKDF2), which is
+      // intentionally expensive; generate it off the I/O thread and send it, or
+      // report the failure, back on the channel's event loop.
+      SASL_EXECUTOR.execute(() -> {
+        ByteBuf response;
+        try {
+          response = handler.authenticateSASLContinue(serverFirstMessage);
+        }
+        catch (Throwable t) {
+          channel.eventLoop().execute(() -> failed(t));
+          return;
+        }
+
+        channel.eventLoop().execute(() -> {
+          try {
+            channel
+                .writePassword(response)
+                .flush();
+          }
+          catch (Throwable t) {
+            failed(t);
+          }
+          finally {
+            response.release();
+          }
+        });
+      });
+    }
+
+    private void failed(Throwable cause) {
       try {
-        channel
-            .writePassword(response)
-            .flush();
+        exception(cause);
       }
-      finally {
-        response.release();
+      catch (IOException ignored) {
+        // Nothing more can be reported
       }
     }
 
@@ -178,6 +178,8 @@ public class BasicContext extends AbstractContext {
   protected Map<String, Class<?>> typeMap;
   protected Charset charset;
   protected Settings settings;
+  private SettingsSnapshot settingsSnapshot;
+  private int settingsSnapshotModificationCount;
   private TimeZone timeZone;
   private ZoneId timeZoneId;
   private DateTimeFormat clientDateFormat;
@@ -260,6 +262,16 @@ public class BasicContext extends AbstractContext {
     return super.getSetting(setting);
   }
 
+  @Override
+  public SettingsSnapshot getSettingsSnapshot() {
+    int modificationCount = settings.getModificationCount();
+    if (settingsSnapshot == null || settingsSnapshotModificationCount != modificationCount) {
+      settingsSnapshot = new SettingsSnapshot(this);
+      settingsSnapshotModificationCount = modificationCount;
+    }
+    return settingsSnapshot;
+  }
+
   @Override
   public Map<String, Class<?>> getCustomTypeMap() {
     return typeMap;
@@ -80,6 +80,15 @@ public interface Context extends Configuration {
 
   Map<String, Class<?>> getCustomTypeMap();
 
+  /**
+   * Typed snapshot of the context's current settings. Intended for
+   * hot paths that would otherwise look up &amp; parse a setting
+   * for every value.
+   *
+   * @return Snapshot of current settings.
+   */
+  SettingsSnapshot getSettingsSnapshot();
+
   Context unwrap();
 
 }
@@ -152,6 +152,11 @@ class DecoratorContext extends AbstractContext {
     return base.getSetting(setting);
   }
 
+  @Override
+  public SettingsSnapshot getSettingsSnapshot() {
+    return base.getSettingsSnapshot();
+  }
+
   @Override
   public RequestExecutor getRequestExecutor() {
     return base.getRequestExecutor();
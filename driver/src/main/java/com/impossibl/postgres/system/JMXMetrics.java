@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@link Metrics} implementation that accumulates measurements in
+ * {@link LongAdder}s and publishes them as a platform MBean named
+ * {@code com.impossibl.postgres:type=Metrics,name=<metrics.name>}.
+ */
+public class JMXMetrics implements Metrics, JMXMetricsMBean {
+
+  private static final Logger logger = Logger.getLogger(JMXMetrics.class.getName());
+
+  private final LongAdder roundTrips = new LongAdder();
+  private final LongAdder bytesSent = new LongAdder();
+  private final LongAdder bytesReceived = new LongAdder();
+  private final LongAdder rowsRead = new LongAdder();
+  private final LongAdder valuesDecoded = new LongAdder();
+  private final LongAdder queuedNanos = new LongAdder();
+  private final LongAdder wireNanos = new LongAdder();
+  private final LongAdder decodeNanos = new LongAdder();
+  private final LongAdder ioBusyNanos = new LongAdder();
+  private final LongAdder[] cacheHits = newAdders(Cache.values().length);
+  private final LongAdder[] cacheMisses = newAdders(Cache.values().length);
+  private final LongAdder connectionsOpen = new LongAdder();
+  private final LongAdder connectionsCheckedOut = new LongAdder();
+  private volatile long startNanos = System.nanoTime();
+
+  public JMXMetrics(String name) {
+    register(name);
+  }
+
+  private void register(String name) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      server.registerMBean(this, new ObjectName("com.impossibl.postgres:type=Metrics,name=" + ObjectName.quote(name)));
+    }
+    catch (JMException | SecurityException e) {
+      logger.log(Level.WARNING, "Unable to register metrics MBean: " + name, e);
+    }
+  }
+
+  private static LongAdder[] newAdders(int count) {
+    LongAdder[] adders = new LongAdder[count];
+    for (int c = 0; c < count; ++c) {
+      adders[c] = new LongAdder();
+    }
+    return adders;
+  }
+
+  private static double millis(LongAdder nanos) {
+    return nanos.sum() / (double) MILLISECONDS.toNanos(1);
+  }
+
+  private static double ratio(long part, long total) {
+    return total != 0 ? part / (double) total : 0.0;
+  }
+
+  /*
+   * Metrics
+   */
+
+  @Override
+  public void requestQueued(long nanos) {
+    queuedNanos.add(nanos);
+  }
+
+  @Override
+  public void requestCompleted(long nanos) {
+    roundTrips.increment();
+    wireNanos.add(nanos);
+  }
+
+  @Override
+  public void bytesSent(long count) {
+    bytesSent.add(count);
+  }
+
+  @Override
+  public void bytesReceived(long count) {
+    bytesReceived.add(count);
+  }
+
+  @Override
+  public void ioBusy(long nanos) {
+    ioBusyNanos.add(nanos);
+  }
+
+  @Override
+  public void rowRead() {
+    rowsRead.increment();
+  }
+
+  @Override
+  public void valueDecoded(long nanos) {
+    valuesDecoded.increment();
+    decodeNanos.add(nanos);
+  }
+
+  @Override
+  public void cacheAccessed(Cache cache, boolean hit) {
+    (hit ? cacheHits : cacheMisses)[cache.ordinal()].increment();
+  }
+
+  @Override
+  public void connectionOpened() {
+    connectionsOpen.increment();
+  }
+
+  @Override
+  public void connectionClosed() {
+    connectionsOpen.decrement();
+  }
+
+  @Override
+  public void connectionCheckedOut() {
+    connectionsCheckedOut.increment();
+  }
+
+  @Override
+  public void connectionCheckedIn() {
+    connectionsCheckedOut.decrement();
+  }
+
+  /*
+   * MBean
+   */
+
+  @Override
+  public long getRoundTrips() {
+    return roundTrips.sum();
+  }
+
+  @Override
+  public long getBytesSent() {
+    return bytesSent.sum();
+  }
+
+  @Override
+  public long getBytesReceived() {
+    return bytesReceived.sum();
+  }
+
+  @Override
+  public long getRowsRead() {
+    return rowsRead.sum();
+  }
+
+  @Override
+  public long getValuesDecoded() {
+    return valuesDecoded.sum();
+  }
+
+  @Override
+  public double getQueuedTime() {
+    return millis(queuedNanos);
+  }
+
+  @Override
+  public double getWireTime() {
+    return millis(wireNanos);
+  }
+
+  @Override
+  public double getDecodeTime() {
+    return millis(decodeNanos);
+  }
+
+  @Override
+  public double getIOBusyTime() {
+    return millis(ioBusyNanos);
+  }
+
+  @Override
+  public double getIOUtilization() {
+    return ratio(ioBusyNanos.sum(), System.nanoTime() - startNanos);
+  }
+
+  public double getCacheHitRatio(Cache cache) {
+    long hits = cacheHits[cache.ordinal()].sum();
+    long misses = cacheMisses[cache.ordinal()].sum();
+    return ratio(hits, hits + misses);
+  }
+
+  @Override
+  public double getParsedSQLCacheHitRatio() {
+    return getCacheHitRatio(Cache.ParsedSQL);
+  }
+
+  @Override
+  public double getDescriptionCacheHitRatio() {
+    return getCacheHitRatio(Cache.Description);
+  }
+
+  @Override
+  public double getPreparedStatementCacheHitRatio() {
+    return getCacheHitRatio(Cache.PreparedStatement);
+  }
+
+  @Override
+  public long getConnectionsOpen() {
+    return connectionsOpen.sum();
+  }
+
+  @Override
+  public long getConnectionsCheckedOut() {
+    return connectionsCheckedOut.sum();
+  }
+
+  @Override
+  public double getPoolUtilization() {
+    return ratio(connectionsCheckedOut.sum(), connectionsOpen.sum());
+  }
+
+  /**
+   * Resets all accumulated counters &amp; timings. Gauges (open &amp;
+   * checked out connections) are left unchanged.
+   */
+  @Override
+  public void reset() {
+    roundTrips.reset();
+    bytesSent.reset();
+    bytesReceived.reset();
+    rowsRead.reset();
+    valuesDecoded.reset();
+    queuedNanos.reset();
+    wireNanos.reset();
+    decodeNanos.reset();
+    ioBusyNanos.reset();
+    for (int c = 0; c < cacheHits.length; ++c) {
+      cacheHits[c].reset();
+      cacheMisses[c].reset();
+    }
+    startNanos = System.nanoTime();
+  }
+
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system;
+
+import static com.impossibl.postgres.system.SystemSettings.METRICS;
+import static com.impossibl.postgres.system.SystemSettings.METRICS_NAME;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receives low level execution measurements from the driver.
+ *
+ * Implementations are called directly from the driver's hot paths (including
+ * the I/O threads) and must be non-blocking and cheap; all methods default to
+ * doing nothing. A single instance is shared by every connection configured with
+ * the same metrics class &amp; name (see {@link SystemSettings#METRICS}).
+ *
+ * Components check {@link #isEnabled()} once and skip timing entirely when
+ * metrics are disabled, so the default {@link None} implementation costs nothing.
+ */
+public interface Metrics {
+
+  enum Cache {
+    ParsedSQL,
+    Description,
+    PreparedStatement
+  }
+
+  /**
+   * No-op implementation.
+   */
+  final class None implements Metrics {
+
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+
+  }
+
+  Metrics NONE = new None();
+
+  /**
+   * Resolves the (shared) metrics instance for the given configuration.
+   *
+   * The configured class is instantiated using a public constructor accepting the
+   * configured name as a {@code String} or, if there is none, a public no-arg constructor.
+   *
+   * @param config Configuration specifying the {@link SystemSettings#METRICS} class and
+   *               {@link SystemSettings#METRICS_NAME} name.
+   * @return Metrics instance for the configuration.
+   * @throws IOException If the configured class cannot be instantiated.
+   */
+  static Metrics lookup(Configuration config) throws IOException {
+
+    @SuppressWarnings("unchecked")
+    Class<? extends Metrics> metricsClass = (Class<? extends Metrics>) config.getSetting(METRICS);
+    if (metricsClass == null || metricsClass == None.class) {
+      return NONE;
+    }
+
+    String name = config.getSetting(METRICS_NAME);
+
+    return Instances.get(metricsClass, name);
+  }
+
+  /**
+   * Reports if this implementation records anything. Instrumented code
+   * avoids gathering timings when this returns {@code false}.
+   */
+  default boolean isEnabled() {
+    return true;
+  }
+
+  /**
+   * A request waited {@code nanos} to be written to its connection; this
+   * includes time waiting for other requests on the same connection and
+   * for the connection's I/O thread.
+   */
+  default void requestQueued(long nanos) {
+  }
+
+  /**
+   * A request completed a round trip {@code nanos} after being written
+   * to the connection.
+   */
+  default void requestCompleted(long nanos) {
+  }
+
+  default void bytesSent(long count) {
+  }
+
+  default void bytesReceived(long count) {
+  }
+
+  /**
+   * An I/O thread spent {@code nanos} processing received messages.
+   */
+  default void ioBusy(long nanos) {
+  }
+
+  default void rowRead() {
+  }
+
+  /**
+   * A result set column value was decoded in {@code nanos}.
+   */
+  default void valueDecoded(long nanos) {
+  }
+
+  default void cacheAccessed(Cache cache, boolean hit) {
+  }
+
+  default void connectionOpened() {
+  }
+
+  default void connectionClosed() {
+  }
+
+  /**
+   * A pooled connection was handed out to a client.
+   */
+  default void connectionCheckedOut() {
+  }
+
+  /**
+   * A client returned a pooled connection.
+   */
+  default void connectionCheckedIn() {
+  }
+
+  class Instances {
+
+    private static final Map<String, Metrics> INSTANCES = new ConcurrentHashMap<>();
+
+    private Instances() {
+    }
+
+    static Metrics get(Class<? extends Metrics> metricsClass, String name) throws IOException {
+
+      String key = metricsClass.getName() + "/" + name;
+
+      Metrics metrics = INSTANCES.get(key);
+      if (metrics != null) {
+        return metrics;
+      }
+
+      synchronized (INSTANCES) {
+
+        metrics = INSTANCES.get(key);
+        if (metrics == null) {
+          metrics = create(metricsClass, name);
+          INSTANCES.put(key, metrics);
+        }
+
+        return metrics;
+      }
+    }
+
+    private static Metrics create(Class<? extends Metrics> metricsClass, String name) throws IOException {
+      try {
+        try {
+          return metricsClass.getConstructor(String.class).newInstance(name);
+        }
+        catch (NoSuchMethodException e) {
+          return metricsClass.getConstructor().newInstance();
+        }
+      }
+      catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+        throw new IOException("Cannot instantiate provided metrics: " + metricsClass.getName(), e);
+      }
+    }
+
+  }
+
+}
@@ -32,6 +32,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -59,6 +60,7 @@ public class Settings {
 
   private Map<String, Setting<?>> known = new HashMap<>();
   private Map<String, String> values = new HashMap<>();
+  private int modificationCount;
 
   /**
    * Creates a bag of settings that recognizes any global setting defined.
@@ -111,6 +113,16 @@ public class Settings {
     return new HashSet<>(known.values());
   }
 
+  /**
+   * Number of modifications made to the stored values. Used
+   * to detect when a {@link SettingsSnapshot} is out of date.
+   *
+   * @return Count of modifications made to the stored values.
+   */
+  public int getModificationCount() {
+    return modificationCount;
+  }
+
   /**
    * Check if settings has a stored value stored
    * for the  setting.
@@ -190,12 +202,7 @@ public class Settings {
     if (!known.containsKey(setting.getName())) {
       logger.warning("Applying unknown setting: " + setting.getName());
     }
-    if (value == null) {
-      values.remove(setting.getName());
-    }
-    else {
-      values.put(setting.getName(), setting.toString(value));
-    }
+    store(setting.getName(), value != null ? setting.toString(value) : null);
   }
 
   /**
@@ -217,12 +224,7 @@ public class Settings {
       logger.severe("Setting '" + value + "' to an invalid value: " + value);
     }
 
-    if (value == null) {
-      values.remove(setting.getName());
-    }
-    else {
-      values.put(setting.getName(), value);
-    }
+    store(setting.getName(), value);
   }
 
   /**
@@ -242,18 +244,20 @@ public class Settings {
     Setting<?> setting = known.get(name);
     if (setting == null) {
       logger.warning("Applying unknown setting: " + name);
-      if (text == null) {
-        values.remove(name);
-      }
-      else {
-        values.put(name, text);
-      }
+      store(name, text);
       return;
     }
 
     setText(setting, text);
   }
 
+  private void store(String name, String text) {
+    String previous = text != null ? values.put(name, text) : values.remove(name);
+    if (!Objects.equals(previous, text)) {
+      modificationCount++;
+    }
+  }
+
   /**
    * Transfers all settings from given settings bag
    * into this instance.
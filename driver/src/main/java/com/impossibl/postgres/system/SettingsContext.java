@@ -34,6 +34,9 @@ public class SettingsContext extends DecoratorContext {
 
   private Settings settings;
   private Map<String, Class<?>> typeMap;
+  private SettingsSnapshot settingsSnapshot;
+  private SettingsSnapshot baseSettingsSnapshot;
+  private int settingsSnapshotModificationCount;
 
   public SettingsContext(Context context, Map<String, Class<?>> typeMap) {
     super(context);
@@ -54,6 +57,22 @@ public class SettingsContext extends DecoratorContext {
     return super.getSetting(setting);
   }
 
+  @Override
+  public SettingsSnapshot getSettingsSnapshot() {
+    SettingsSnapshot baseSnapshot = super.getSettingsSnapshot();
+    int modificationCount = settings.getModificationCount();
+    if (modificationCount == 0) {
+      return baseSnapshot;
+    }
+    if (settingsSnapshot == null || baseSettingsSnapshot != baseSnapshot ||
+        settingsSnapshotModificationCount != modificationCount) {
+      settingsSnapshot = new SettingsSnapshot(baseSnapshot, this, settings);
+      baseSettingsSnapshot = baseSnapshot;
+      settingsSnapshotModificationCount = modificationCount;
+    }
+    return settingsSnapshot;
+  }
+
   public <T> void setSetting(Setting<T> setting, T value) {
     settings.set(setting, value);
   }
@@ -208,12 +208,68 @@ public class SystemSettings {
   @Setting.Info(
       desc =
           "File destination of SQL trace output.\n\n" +
+          "Trace files are written in a compact binary format, use \n" +
+          "`com.impossibl.postgres.protocol.trace.TraceDecoder` to convert them to text. When no file is \n" +
+          "specified, text is written to standard output.\n\n" +
           "NOTE: `sql.trace` must be `true` to generate trace output",
       name = "sql.trace.file",
       group = "system"
   )
   public static final Setting<String> SQL_TRACE_FILE = Setting.declare();
 
+  @Setting.Info(
+      desc =
+          "Number of trace records buffered for each trace destination.\n\n" +
+          "Records are written asynchronously; when the buffer is full records are dropped instead of \n" +
+          "delaying the traced connection.",
+      def = "65536",
+      min = 1,
+      name = "trace.buffer-size",
+      group = "system"
+  )
+  public static final Setting<Integer> TRACE_BUFFER_SIZE = Setting.declare();
+
+  @Setting.Info(
+      desc = "Maximum size (in bytes) of a trace file before it is rotated.",
+      def = "67108864",
+      min = 1024,
+      name = "trace.file.size-max",
+      group = "system"
+  )
+  public static final Setting<Integer> TRACE_FILE_SIZE_MAX = Setting.declare();
+
+  @Setting.Info(
+      desc =
+          "Number of trace files kept when rotating, including the file currently being written.\n\n" +
+          "Rotated files are named by appending an increasing number to the trace file name \n" +
+          "(e.g. `trace.1` is the most recently rotated file).",
+      def = "5",
+      min = 1,
+      name = "trace.file.count",
+      group = "system"
+  )
+  public static final Setting<Integer> TRACE_FILE_COUNT = Setting.declare();
+
+  @Setting.Info(
+      desc =
+          "Metrics implementation class name.\n\n" +
+          "Use `com.impossibl.postgres.system.JMXMetrics` to publish round trips, byte counts, timings, cache \n" +
+          "hit ratios and pool utilization as a platform MBean. Connections with the same `metrics` and \n" +
+          "`metrics.name` share a single instance.",
+      def = "com.impossibl.postgres.system.Metrics$None",
+      name = "metrics",
+      group = "system"
+  )
+  public static final Setting<Class> METRICS = Setting.declare();
+
+  @Setting.Info(
+      desc = "Name of the metrics instance (e.g. the JMX MBean name) connections will report to.",
+      def = "default",
+      name = "metrics.name",
+      group = "system"
+  )
+  public static final Setting<String> METRICS_NAME = Setting.declare();
+
 
 
 
@@ -333,6 +389,9 @@ public class SystemSettings {
   @Setting.Info(
       desc =
           "File destination of message trace output\n\n" +
+          "Trace files are written in a compact binary format, use \n" +
+          "`com.impossibl.postgres.protocol.trace.TraceDecoder` to convert them to text. When no file is \n" +
+          "specified, text is written to standard output.\n\n" +
           "NOTE: `protocol.trace` must be `true` to generate trace output",
       name = "protocol.trace.file",
       group = "protocol"
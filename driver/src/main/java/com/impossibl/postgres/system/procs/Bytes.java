@@ -35,8 +35,6 @@ import com.impossibl.postgres.system.ConversionException;
 import com.impossibl.postgres.types.Type;
 import com.impossibl.postgres.utils.guava.ByteStreams;
 
-import static com.impossibl.postgres.system.SystemSettings.FIELD_LENGTH_MAX;
-
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Blob;
@@ -124,7 +122,7 @@ public class Bytes extends SimpleProcProvider {
 
       int length = buffer.readableBytes();
       int readLength;
-      Integer maxLength = context.getSetting(FIELD_LENGTH_MAX);
+      Integer maxLength = context.getSettingsSnapshot().fieldLengthMax;
       if (maxLength != null) {
         readLength = min(maxLength, length);
       }
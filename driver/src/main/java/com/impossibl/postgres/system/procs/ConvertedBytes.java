@@ -31,8 +31,6 @@ package com.impossibl.postgres.system.procs;
 import com.impossibl.postgres.system.Context;
 import com.impossibl.postgres.types.Type;
 
-import static com.impossibl.postgres.system.SystemSettings.FIELD_LENGTH_MAX;
-
 import java.io.IOException;
 
 import static java.lang.Math.min;
@@ -58,7 +56,7 @@ public class ConvertedBytes extends SimpleProcProvider {
       int length = buffer.readableBytes();
       byte[] bytes;
 
-      Integer maxLength = context.getSetting(FIELD_LENGTH_MAX);
+      Integer maxLength = context.getSettingsSnapshot().fieldLengthMax;
       if (maxLength != null) {
         bytes = new byte[min(maxLength, length)];
       }
@@ -31,7 +31,6 @@ package com.impossibl.postgres.system.procs;
 import com.impossibl.postgres.system.Context;
 import com.impossibl.postgres.types.Type;
 
-import static com.impossibl.postgres.system.SystemSettings.FIELD_LENGTH_MAX;
 import static com.impossibl.postgres.system.procs.Strings.TEXT_DECODER;
 import static com.impossibl.postgres.system.procs.Strings.TEXT_ENCODER;
 
@@ -72,7 +71,7 @@ public class Jsons extends SimpleProcProvider {
 
       byte[] bytes;
 
-      Integer maxLength = context.getSetting(FIELD_LENGTH_MAX);
+      Integer maxLength = context.getSettingsSnapshot().fieldLengthMax;
       if (maxLength != null) {
         bytes = new byte[min(maxLength, length)];
       }
@@ -31,6 +31,8 @@ package com.impossibl.postgres.system.procs;
 import com.impossibl.postgres.system.Context;
 import com.impossibl.postgres.types.Type;
 
+import static com.impossibl.postgres.utils.ByteBufs.readString;
+
 import java.io.IOException;
 import java.text.ParseException;
 
@@ -52,10 +54,7 @@ public class Names extends SimpleProcProvider {
     @Override
     protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
-      byte[] bytes = new byte[buffer.readableBytes()];
-      buffer.readBytes(bytes);
-
-      return new String(bytes, context.getCharset());
+      return readString(buffer, context.getCharset());
     }
 
   }
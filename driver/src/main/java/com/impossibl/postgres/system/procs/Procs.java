@@ -36,7 +36,9 @@ import com.impossibl.postgres.types.Type.Codec;
 import static com.impossibl.postgres.utils.guava.Strings.isNullOrEmpty;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
 
 import io.netty.buffer.ByteBuf;
@@ -45,6 +47,8 @@ public class Procs {
 
   private static final int MIN_PROC_PROVIDER_SERVICES = 47;
 
+  private static final String[] PROC_NAME_SUFFIXES = {"recv", "send", "in", "out", "typmodin", "typmodout"};
+
   public static final Type.Codec.Decoder<CharSequence> DEFAULT_TEXT_DECODER = new Unknowns.TxtDecoder();
   public static final Type.Codec.Decoder<ByteBuf> DEFAULT_BINARY_DECODER = new Unknowns.BinDecoder();
 
@@ -55,6 +59,8 @@ public class Procs {
 
   private ServerInfo serverInfo;
   private List<ProcProvider> providers;
+  private List<ProcProvider> unnamedProviders;
+  private Map<String, List<ProcProvider>> namedProviders;
 
   public Procs(ServerInfo serverInfo, ClassLoader classLoader) {
     this.serverInfo = serverInfo;
@@ -64,6 +70,56 @@ public class Procs {
     catch (Exception e) {
       providers = load(ServiceLoader.load(ProcProvider.class, Procs.class.getClassLoader()));
     }
+    index();
+  }
+
+  /**
+   * Indexes providers by the proc names they can supply.
+   *
+   * Providers derived from {@link BaseProcProvider} only match names built
+   * from their base names, so lookups consult just the providers indexed
+   * under the requested name. Other providers are checked for every name,
+   * in their original order relative to the indexed providers.
+   */
+  private void index() {
+
+    unnamedProviders = new ArrayList<>();
+    namedProviders = new HashMap<>();
+
+    for (ProcProvider pp : providers) {
+      if (!(pp instanceof BaseProcProvider)) {
+        unnamedProviders.add(pp);
+        continue;
+      }
+      for (String baseName : ((BaseProcProvider) pp).baseNames) {
+        for (String suffix : PROC_NAME_SUFFIXES) {
+          namedProviders.computeIfAbsent(baseName + suffix, key -> new ArrayList<>());
+        }
+      }
+    }
+
+    for (Map.Entry<String, List<ProcProvider>> entry : namedProviders.entrySet()) {
+      for (ProcProvider pp : providers) {
+        if (!(pp instanceof BaseProcProvider) || hasProcName((BaseProcProvider) pp, entry.getKey())) {
+          entry.getValue().add(pp);
+        }
+      }
+    }
+  }
+
+  private static boolean hasProcName(BaseProcProvider pp, String name) {
+    for (String baseName : pp.baseNames) {
+      for (String suffix : PROC_NAME_SUFFIXES) {
+        if (name.length() == baseName.length() + suffix.length() && name.startsWith(baseName) && name.endsWith(suffix)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private List<ProcProvider> findProviders(String name) {
+    return namedProviders.getOrDefault(name, unnamedProviders);
   }
 
   private static List<ProcProvider> load(ServiceLoader<ProcProvider> services) {
@@ -104,7 +160,7 @@ public class Procs {
     if (!name.isEmpty() && !name.equals("-")) {
       Codec.Encoder<Buffer> h;
 
-      for (ProcProvider pp : providers) {
+      for (ProcProvider pp : findProviders(name)) {
         if ((h = pp.findEncoder(name, serverInfo, bufferType)) != null)
           return h;
       }
@@ -118,7 +174,7 @@ public class Procs {
     if (!name.isEmpty() && !name.equals("-")) {
       Codec.Decoder<Buffer> h;
 
-      for (ProcProvider pp : providers) {
+      for (ProcProvider pp : findProviders(name)) {
         if ((h = pp.findDecoder(name, serverInfo, bufferType)) != null)
           return h;
       }
@@ -132,7 +188,7 @@ public class Procs {
     if (!isNullOrEmpty(name) && !name.equals("-")) {
       Modifiers.Parser p;
 
-      for (ProcProvider pp : providers) {
+      for (ProcProvider pp : findProviders(name)) {
         if ((p = pp.findModifierParser(name, serverInfo)) != null)
           return p;
       }
@@ -28,6 +28,7 @@
  */
 package com.impossibl.postgres.system.procs;
 
+import com.impossibl.postgres.api.data.BinaryRecordData;
 import com.impossibl.postgres.jdbc.PGBuffersStruct;
 import com.impossibl.postgres.jdbc.PGSQLInput;
 import com.impossibl.postgres.jdbc.PGSQLOutput;
@@ -35,7 +36,7 @@ import com.impossibl.postgres.jdbc.PGStruct;
 import com.impossibl.postgres.jdbc.PGValuesStruct;
 import com.impossibl.postgres.system.Context;
 import com.impossibl.postgres.system.ConversionException;
-import com.impossibl.postgres.types.Registry;
+import com.impossibl.postgres.types.CompositeType;
 import com.impossibl.postgres.types.Type;
 
 import static com.impossibl.postgres.system.CustomTypes.lookupCustomType;
@@ -61,6 +62,96 @@ public class Records extends SimpleProcProvider {
     super(new TxtEncoder(), new TxtDecoder(), new BinEncoder(), new BinDecoder(), "record_");
   }
 
+  /**
+   * Receives attributes decoded from a binary record.
+   */
+  public interface AttributeSink {
+
+    void attribute(int attributeIdx, Type attributeType, Object value) throws IOException;
+
+  }
+
+  static Type resolveAttributeType(Context context, Type type, int attributeIdx, int attributeTypeId) throws IOException {
+
+    if (type instanceof CompositeType) {
+      return ((CompositeType) type).resolveAttributeType(attributeIdx, attributeTypeId, context.getRegistry());
+    }
+
+    return context.getRegistry().loadType(attributeTypeId);
+  }
+
+  /**
+   * Decodes the value of a single attribute, from a binary record, in place.
+   *
+   * The attribute is decoded directly from the record buffer; the buffer's
+   * reader index is left at the start of the next attribute.
+   */
+  static Object decodeAttribute(Context context, Type attributeType, int attributeLen, ByteBuf buffer, Class<?> targetClass) throws IOException {
+
+    int attributeEnd = buffer.readerIndex() + attributeLen;
+    int writerIndex = buffer.writerIndex();
+
+    buffer.writerIndex(attributeEnd);
+    try {
+      return attributeType.getBinaryCodec().getDecoder()
+          .decode(context, attributeType, attributeType.getLength(), null, buffer, targetClass, null);
+    }
+    finally {
+      buffer.writerIndex(writerIndex);
+      buffer.readerIndex(attributeEnd);
+    }
+  }
+
+  /**
+   * Decodes all attributes of a binary record in a single pass, passing each
+   * decoded value to the provided sink.
+   *
+   * Attributes are decoded to their default class or, for custom types, the
+   * class mapped in the context's custom type map.
+   *
+   * @param context Context used for decoding
+   * @param type Type of the record
+   * @param buffer Buffer containing the binary record
+   * @param sink Receiver of decoded attribute values
+   * @return Number of attributes decoded
+   * @throws IOException If an error occurs decoding an attribute
+   */
+  public static int decodeAttributes(Context context, Type type, ByteBuf buffer, AttributeSink sink) throws IOException {
+
+    int itemCount = buffer.readInt();
+
+    for (int c = 0; c < itemCount; ++c) {
+
+      Type attributeType = resolveAttributeType(context, type, c, buffer.readInt());
+
+      Object value = null;
+
+      int attributeLen = buffer.readInt();
+      if (attributeLen != -1) {
+        Class<?> targetClass = lookupCustomType(attributeType, context.getCustomTypeMap(), null);
+        value = decodeAttribute(context, attributeType, attributeLen, buffer, targetClass);
+      }
+
+      sink.attribute(c, attributeType, value);
+    }
+
+    return itemCount;
+  }
+
+  /**
+   * Decodes all attributes of a binary record in a single pass.
+   *
+   * @see #decodeAttributes(Context, Type, ByteBuf, AttributeSink)
+   */
+  public static Object[] decodeAttributes(Context context, Type type, ByteBuf buffer) throws IOException {
+
+    Object[] values = new Object[buffer.getInt(buffer.readerIndex())];
+
+    decodeAttributes(context, type, buffer, (attributeIdx, attributeType, value) -> values[attributeIdx] = value);
+
+    return values;
+  }
+
   static PGStruct convertInput(Context context, Type type, Object value) throws IOException {
 
     PGStruct struct;
@@ -87,6 +178,15 @@ public class Records extends SimpleProcProvider {
     return struct;
   }
 
+  private static SQLData instantiateCustomType(Class<?> targetClass) throws IOException {
+    try {
+      return (SQLData) targetClass.getConstructor().newInstance();
+    }
+    catch (Exception e) {
+      throw new IOException("Unable to instantiate custom type; an accessible no-arg constructor is required", e);
+    }
+  }
+
   static <Buffer> Object convertOutput(Context context, Type type, Type[] attributeTypes, Buffer[] attributeBuffers, Class<?> targetClass, InputFactory<Buffer> inputFactory, StructFactory<Buffer> structFactory) throws IOException {
 
     if (Struct.class.isAssignableFrom(targetClass)) {
@@ -96,13 +196,7 @@ public class Records extends SimpleProcProvider {
     Object result;
 
     if (SQLData.class.isAssignableFrom(targetClass)) {
-      SQLData data;
-      try {
-        data = (SQLData) targetClass.getConstructor().newInstance();
-      }
-      catch (Exception e) {
-        throw new IOException("Unable to instantiate custom type; an accessible no-arg constructor is required", e);
-      }
+      SQLData data = instantiateCustomType(targetClass);
 
       try {
         PGSQLInput<Buffer> input = inputFactory.create(context, attributeTypes, attributeBuffers);
@@ -124,6 +218,75 @@ public class Records extends SimpleProcProvider {
     return result;
   }
 
+  /**
+   * Reads attributes from a binary record for {@link BinaryRecordData}.
+   */
+  static class BinaryRecordReader implements BinaryRecordData.Reader {
+
+    private Context context;
+    private Type type;
+    private ByteBuf buffer;
+    private int attributeIdx;
+
+    BinaryRecordReader(Context context, Type type, ByteBuf buffer) {
+      this.context = context;
+      this.type = type;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int readAttributeCount() {
+      return buffer.readInt();
+    }
+
+    @Override
+    public <T> T readAttribute(Class<T> targetClass) throws IOException {
+
+      Type attributeType = resolveAttributeType(context, type, attributeIdx++, buffer.readInt());
+
+      int attributeLen = buffer.readInt();
+      if (attributeLen == -1) {
+        return null;
+      }
+
+      return targetClass.cast(decodeAttribute(context, attributeType, attributeLen, buffer, targetClass));
+    }
+
+  }
+
+  /**
+   * Writes attributes to a binary record for {@link BinaryRecordData}.
+   */
+  static class BinaryRecordWriter implements BinaryRecordData.Writer {
+
+    private Context context;
+    private ByteBuf buffer;
+
+    BinaryRecordWriter(Context context, ByteBuf buffer) {
+      this.context = context;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void writeAttributeCount(int count) {
+      buffer.writeInt(count);
+    }
+
+    @Override
+    public void writeAttribute(String typeName, Object value) throws IOException {
+
+      Type attributeType = context.getRegistry().loadStableType(typeName);
+      if (attributeType == null) {
+        throw new IOException("Unable to find attribute type: " + typeName);
+      }
+
+      buffer.writeInt(attributeType.getId());
+
+      lengthEncodeBinary(attributeType.getBinaryCodec().getEncoder(), context, attributeType, value, null, buffer);
+    }
+
+  }
+
   static class BinDecoder extends BaseBinaryDecoder {
 
     @Override
@@ -134,10 +297,28 @@ public class Records extends SimpleProcProvider {
     @Override
     protected Object decodeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
-      Registry registry = context.getRegistry();
+      Class<?> customClass = targetClass;
+      if (Struct.class.isAssignableFrom(customClass)) {
+        customClass = lookupCustomType(type, context.getCustomTypeMap(), customClass);
+      }
+
+      if (BinaryRecordData.class.isAssignableFrom(customClass)) {
+        BinaryRecordData data = (BinaryRecordData) instantiateCustomType(customClass);
+        data.readRecord(new BinaryRecordReader(context, type, buffer));
+        return data;
+      }
+
+      if (targetClass == Object[].class) {
+        return decodeAttributes(context, type, buffer);
+      }
 
       int length = buffer.readableBytes();
-      long readStart = buffer.readerIndex();
+      int readStart = buffer.readerIndex();
+
+      // Attribute buffers outlive the source buffer; copy the record
+      // once and share it between the attributes
+      ByteBuf recordBuffer = PGBuffersStruct.Binary.ALLOC.buffer(length);
+      buffer.getBytes(readStart, recordBuffer, length);
 
       int itemCount = buffer.readInt();
 
@@ -146,14 +327,13 @@ public class Records extends SimpleProcProvider {
 
       for (int c = 0; c < itemCount; ++c) {
 
-        Type attributeType = registry.loadType(buffer.readInt());
+        Type attributeType = resolveAttributeType(context, type, c, buffer.readInt());
         attributeTypes[c] = attributeType;
 
         int attributeLen = buffer.readInt();
         if (attributeLen != -1) {
-          ByteBuf attributeBuffer = PGBuffersStruct.Binary.ALLOC.buffer(attributeLen);
-          buffer.readBytes(attributeBuffer, attributeLen);
-          attributeBuffers[c] = attributeBuffer;
+          attributeBuffers[c] = recordBuffer.slice(buffer.readerIndex() - readStart, attributeLen);
+          buffer.skipBytes(attributeLen);
         }
       }
 
@@ -171,6 +351,11 @@ public class Records extends SimpleProcProvider {
     @Override
     protected void encodeValue(Context context, Type type, Object value, Object sourceContext, ByteBuf buffer) throws IOException {
 
+      if (value instanceof BinaryRecordData) {
+        ((BinaryRecordData) value).writeRecord(new BinaryRecordWriter(context, buffer));
+        return;
+      }
+
       PGStruct struct = convertInput(context, type, value);
       Type[] attributeTypes = struct.getAttributeTypes();
       Object[] attributeValues = struct.getAttributes(context);
@@ -28,13 +28,15 @@
  */
 package com.impossibl.postgres.system.procs;
 
+import com.impossibl.postgres.protocol.FieldFormat;
 import com.impossibl.postgres.system.Context;
 import com.impossibl.postgres.system.JavaTypeMapping;
 import com.impossibl.postgres.types.Modifiers;
 import com.impossibl.postgres.types.Type;
+import com.impossibl.postgres.utils.StringCache;
 
-import static com.impossibl.postgres.system.SystemSettings.FIELD_LENGTH_MAX;
 import static com.impossibl.postgres.types.Modifiers.LENGTH;
+import static com.impossibl.postgres.utils.ByteBufs.readString;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -178,6 +180,26 @@ public class Strings extends SimpleProcProvider {
     }
   }
 
+  /**
+   * Checks if the type's values, received in the given format, are decoded
+   * by this provider; which allows a {@link StringCache} to be used as the
+   * target context when decoding them as strings.
+   *
+   * @param type Type of values
+   * @param format Format values are received in
+   * @return {@code true} if values are decoded by this provider
+   */
+  public static boolean isDecodedAsString(Type type, FieldFormat format) {
+    switch (format) {
+      case Text:
+        return type.getTextCodec().getDecoder() instanceof TxtDecoder;
+      case Binary:
+        return type.getBinaryCodec().getDecoder() instanceof BinDecoder;
+      default:
+        return false;
+    }
+  }
+
   public static class BinDecoder extends AutoConvertingBinaryDecoder<String> {
 
     public BinDecoder() {
@@ -193,14 +215,17 @@ public class Strings extends SimpleProcProvider {
     @Override
     protected String decodeNativeValue(Context context, Type type, Short typeLength, Integer typeModifier, ByteBuf buffer, Class<?> targetClass, Object targetContext) throws IOException {
 
-      int length = buffer.readableBytes();
-      byte[] bytes = new byte[length];
-
-      buffer.readBytes(bytes);
-      buffer.skipBytes(length - bytes.length);
+      CharSequence value;
+      if (targetContext instanceof StringCache) {
+        int length = buffer.readableBytes();
+        value = ((StringCache) targetContext).get(buffer, buffer.readerIndex(), length, context.getCharset());
+        buffer.skipBytes(length);
+      }
+      else {
+        value = readString(buffer, context.getCharset());
+      }
 
-      CharSequence value = new String(bytes, context.getCharset());
-      Integer maxLength = context.getSetting(FIELD_LENGTH_MAX);
+      Integer maxLength = context.getSettingsSnapshot().fieldLengthMax;
       if (maxLength != null) {
         value = value.subSequence(0, min(maxLength, value.length()));
       }
@@ -237,7 +262,7 @@ public class Strings extends SimpleProcProvider {
 
       CharSequence value = buffer;
 
-      Integer maxLength = context.getSetting(FIELD_LENGTH_MAX);
+      Integer maxLength = context.getSettingsSnapshot().fieldLengthMax;
       if (maxLength != null) {
         value = value.subSequence(0, min(maxLength, value.length()));
       }
@@ -28,6 +28,9 @@
  */
 package com.impossibl.postgres.types;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 /**
  * A database composite type.
  *
@@ -35,4 +38,42 @@ package com.impossibl.postgres.types;
  *
  */
 public class CompositeType extends Type {
+
+  private static final Type[] NO_ATTRIBUTE_TYPES = {};
+
+  private volatile Type[] attributeTypes = NO_ATTRIBUTE_TYPES;
+
+  /**
+   * Resolves the type of an attribute, as reported in a binary record of
+   * this type.
+   *
+   * Resolved types are cached by attribute index so records decoded after
+   * the first avoid looking each attribute's type up in the registry.
+   *
+   * @param attributeIdx Index of the attribute in the record
+   * @param typeId Type id reported for the attribute
+   * @param registry Registry used to load uncached types
+   * @return Type object or null, if none found
+   * @throws IOException If an error occurs loading the type
+   */
+  public Type resolveAttributeType(int attributeIdx, int typeId, Registry registry) throws IOException {
+
+    Type[] types = attributeTypes;
+    if (attributeIdx < types.length) {
+      Type type = types[attributeIdx];
+      if (type != null && type.getId() == typeId) {
+        return type;
+      }
+    }
+
+    Type type = registry.loadType(typeId);
+    if (type != null) {
+      types = Arrays.copyOf(types, Math.max(types.length, attributeIdx + 1));
+      types[attributeIdx] = type;
+      attributeTypes = types;
+    }
+
+    return type;
+  }
+
 }
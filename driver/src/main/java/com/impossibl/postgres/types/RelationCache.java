@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.types;
+
+/**
+ * Cache of data loaded for relations, owned by a {@link SharedRegistry}.
+ *
+ * Entries are keyed by relation id & relation version, any change in
+ * the relation's version (see {@link SharedRegistry#getRelationVersion(int)})
+ * makes the cached data stale.
+ *
+ * Versions only advance for DDL executed through connections using the
+ * owning registry; relations altered by other clients are not detected.
+ *
+ * @param <T> Type of data cached for each relation
+ */
+public interface RelationCache<T> {
+
+  /**
+   * Finds the data for a relation if cached for the requested version.
+   *
+   * @param relationId Relation ID
+   * @param version Current version of the relation
+   * @return Data of the relation or null if not available
+   */
+  T find(int relationId, long version);
+
+  /**
+   * Stores the data of a relation
+   *
+   * @param relationId Relation ID
+   * @param version Version of the relation the data was loaded for
+   * @param data Data of the relation
+   */
+  void put(int relationId, long version, T data);
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.types;
+
+import com.impossibl.postgres.utils.CacheMap;
+
+import java.util.Map;
+
+/**
+ * {@link RelationCache} holding the data of a bounded number of
+ * relations, evicting the least recently used.
+ */
+class RelationCacheMap<T> implements RelationCache<T> {
+
+  private static final int MAX_SIZE = 512;
+
+  private static class Entry<T> {
+
+    long version;
+    T data;
+
+    Entry(long version, T data) {
+      this.version = version;
+      this.data = data;
+    }
+
+  }
+
+  private Map<Integer, Entry<T>> entries;
+
+  RelationCacheMap() {
+    this.entries = new CacheMap<>(MAX_SIZE, 1.1f, true);
+  }
+
+  @Override
+  public synchronized T find(int relationId, long version) {
+
+    Entry<T> entry = entries.get(relationId);
+    if (entry == null || entry.version != version) {
+      return null;
+    }
+
+    return entry.data;
+  }
+
+  @Override
+  public synchronized void put(int relationId, long version, T data) {
+    entries.put(relationId, new Entry<>(version, data));
+  }
+
+}
@@ -104,7 +104,10 @@ public class SharedRegistry {
   private final TreeMap<Integer, Type> oidMap;
   private final Map<QualifiedName, Type> nameMap;
   private final TreeMap<Integer, Type> relIdMap;
+  private final Map<Integer, Integer> relVersionMap;
+  private final RelationCache<?> relationCache;
   private final Procs procs;
+  private int catalogVersion;
 
   private boolean seeded = false;
   private final ReadWriteLock lock = new ReentrantReadWriteLock();
@@ -169,12 +172,27 @@ public class SharedRegistry {
     oidMap.values().forEach(type -> nameMap.put(type.getQualifiedName(), type));
 
     relIdMap = new TreeMap<>();
+    relVersionMap = new HashMap<>();
+    relationCache = new RelationCacheMap<>();
   }
 
   public Version getServerVersion() {
     return serverVersion;
   }
 
+  /**
+   * Cache of relation data shared by all connections using this
+   * registry. It holds a single kind of data, the column data loaded
+   * for result set metadata.
+   *
+   * @param <T> Type of data cached for each relation
+   * @return Relation data cache
+   */
+  @SuppressWarnings("unchecked")
+  public <T> RelationCache<T> getRelationCache() {
+    return (RelationCache<T>) relationCache;
+  }
+
   public boolean hasTypeDefined(Integer typeId) {
     return oidMap.containsKey(typeId);
   }
@@ -304,6 +322,53 @@ public class SharedRegistry {
 
 
 
+  /**
+   * Returns the current version of a relation. The version changes
+   * each time the relation's type is reloaded (e.g. by a refresh after
+   * invalidation) or the catalog as a whole is invalidated; it can be
+   * used to key data derived from the relation's catalog entries.
+   *
+   * @param relationId Relation ID of the relation
+   * @return Current version of the relation
+   */
+  public long getRelationVersion(int relationId) {
+
+    lock.readLock().lock();
+    try {
+
+      return ((long) catalogVersion << 32) | relVersionMap.getOrDefault(relationId, 0);
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+
+  }
+
+  /**
+   * Invalidates all loaded relation types, forcing them to be refreshed
+   * on their next use, and advances the version of every relation.
+   *
+   * Called when DDL that may alter relations has been detected. Command
+   * tags do not identify the altered relation so every relation is
+   * invalidated. Only DDL executed through connections using this
+   * registry is detected; changes made by other clients are not.
+   */
+  public void invalidateRelations() {
+
+    lock.writeLock().lock();
+    try {
+
+      relIdMap.clear();
+      catalogVersion += 1;
+
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+
+  }
+
+
   public interface Seeder {
 
     void seed(SharedRegistry registry) throws IOException;
@@ -360,7 +425,9 @@ public class SharedRegistry {
     oidMap.put(type.getId(), type);
     nameMap.put(type.getQualifiedName(), type);
     if (type.getRelationId() != 0) {
-      relIdMap.put(type.getRelationId(), type);
+      if (relIdMap.put(type.getRelationId(), type) != null) {
+        relVersionMap.merge(type.getRelationId(), 1, Integer::sum);
+      }
     }
   }
 
@@ -28,10 +28,13 @@
  */
 package com.impossibl.postgres.utils;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import io.netty.channel.ChannelFuture;
+
 public class Await {
 
   public interface InterruptibleTimeoutFunction {
@@ -86,4 +89,31 @@ public class Await {
 
   }
 
+  /**
+   * Waits for a channel future to complete.
+   *
+   * Unlike {@link ChannelFuture#awaitUninterruptibly()}, which waits on the
+   * future's monitor, the caller is parked using {@code java.util.concurrent}
+   * primitives; this doesn't pin virtual threads to their carrier thread.
+   * When called from the channel's event loop the future's own wait is used
+   * so that the usual deadlock detection applies.
+   *
+   * @param future Future to wait for
+   * @param <F> Type of future
+   * @return The completed future
+   */
+  public static <F extends ChannelFuture> F awaitUninterruptibly(F future) {
+
+    if (future.isDone() || future.channel().eventLoop().inEventLoop()) {
+      future.awaitUninterruptibly();
+      return future;
+    }
+
+    CompletableFuture<Void> completed = new CompletableFuture<>();
+    future.addListener(done -> completed.complete(null));
+    completed.join();
+
+    return future;
+  }
+
 }
@@ -34,13 +34,20 @@ import com.impossibl.postgres.types.Type;
 import java.io.IOException;
 import java.nio.charset.Charset;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.util.ByteProcessor;
 import io.netty.util.ReferenceCountUtil;
 
 public class ByteBufs {
 
+  private static final ByteProcessor IS_ASCII = value -> value >= 0;
+
   public static ByteBuf[] allocAll(ByteBufAllocator alloc, int count) {
     ByteBuf[] buffers = new ByteBuf[count];
     for (int c = 0; c < count; ++c)
@@ -133,11 +140,60 @@ public class ByteBufs {
   public static String readCString(ByteBuf buffer, Charset charset) {
 
     int strLen = buffer.bytesBefore((byte) 0);
-    byte[] bytes = new byte[strLen];
-    buffer.readBytes(bytes);
-    buffer.skipBytes(1);
+    String value = decodeString(buffer, buffer.readerIndex(), strLen, charset);
+    buffer.skipBytes(strLen + 1);
+
+    return value;
+  }
+
+  /**
+   * Reads all readable bytes of the buffer as a string.
+   *
+   * @see #decodeString(ByteBuf, int, int, Charset)
+   */
+  public static String readString(ByteBuf buffer, Charset charset) {
+
+    int length = buffer.readableBytes();
+    String value = decodeString(buffer, buffer.readerIndex(), length, charset);
+    buffer.skipBytes(length);
+
+    return value;
+  }
+
+  /**
+   * Decodes a string directly from the buffer's memory, without
+   * copying into an intermediate array.
+   *
+   * When {@code charset} is ASCII compatible and all the bytes are
+   * ASCII, the string is built with a plain byte to char widening
+   * instead of running the charset's decoder.
+   *
+   * @param buffer Buffer to decode from.
+   * @param index Index of first byte to decode.
+   * @param length Number of bytes to decode.
+   * @param charset Charset of the encoded bytes.
+   * @return Decoded string.
+   */
+  public static String decodeString(ByteBuf buffer, int index, int length, Charset charset) {
+
+    if (length == 0) {
+      return "";
+    }
+
+    if (isAsciiCompatible(charset) && isAscii(buffer, index, length)) {
+      // Netty special cases US-ASCII with the widening String constructor
+      charset = US_ASCII;
+    }
+
+    return buffer.toString(index, length, charset);
+  }
+
+  public static boolean isAscii(ByteBuf buffer, int index, int length) {
+    return buffer.forEachByte(index, length, IS_ASCII) == -1;
+  }
 
-    return new String(bytes, 0, bytes.length, charset);
+  private static boolean isAsciiCompatible(Charset charset) {
+    return UTF_8.equals(charset) || US_ASCII.equals(charset) || ISO_8859_1.equals(charset);
   }
 
   public static void writeCString(ByteBuf buffer, String val, Charset charset) {
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.utils;
+
+import static com.impossibl.postgres.utils.ByteBufs.decodeString;
+
+import java.nio.charset.Charset;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Small, fixed size cache that deduplicates strings decoded from
+ * buffers.
+ *
+ * Lookups are keyed by the encoded bytes so a cache hit returns the
+ * previously decoded instance without decoding, or allocating, anything.
+ * Intended for low-cardinality values (e.g. status codes or country names);
+ * values longer than {@link #MAX_VALUE_LENGTH} bytes bypass the cache.
+ *
+ * The table is open-addressed with a short probe sequence, when no free
+ * slot is found the entry at the home slot is replaced. Entries are
+ * immutable, which allows concurrent use without locking; racing
+ * insertions only cost a cache miss.
+ */
+public final class StringCache {
+
+  public static final int MAX_VALUE_LENGTH = 64;
+
+  private static final int DEFAULT_CAPACITY = 256;
+  private static final int MAX_PROBES = 4;
+
+  private static final class Entry {
+
+    final int hash;
+    final byte[] bytes;
+    final String value;
+
+    Entry(int hash, byte[] bytes, String value) {
+      this.hash = hash;
+      this.bytes = bytes;
+      this.value = value;
+    }
+
+    boolean matches(int hash, ByteBuf buffer, int index, int length) {
+      if (this.hash != hash || bytes.length != length) {
+        return false;
+      }
+      for (int c = 0; c < length; ++c) {
+        if (bytes[c] != buffer.getByte(index + c)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+  private final Entry[] table;
+  private final int mask;
+
+  public StringCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a cache with room for (at least) {@code capacity} strings.
+   *
+   * @param capacity Number of table slots; rounded up to a power of two.
+   */
+  public StringCache(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, MAX_PROBES) - 1) << 1;
+    this.table = new Entry[size];
+    this.mask = size - 1;
+  }
+
+  /**
+   * Retrieves the string for the given bytes, decoding and caching
+   * it if it was not previously seen.
+   *
+   * @param buffer Buffer to decode from.
+   * @param index Index of first byte to decode.
+   * @param length Number of bytes to decode.
+   * @param charset Charset of the encoded bytes.
+   * @return Cached or newly decoded string.
+   */
+  public String get(ByteBuf buffer, int index, int length, Charset charset) {
+
+    if (length > MAX_VALUE_LENGTH) {
+      return decodeString(buffer, index, length, charset);
+    }
+
+    int hash = hash(buffer, index, length);
+
+    Entry[] table = this.table;
+    int home = hash & mask;
+    for (int probe = 0; probe < MAX_PROBES; ++probe) {
+
+      int slot = (home + probe) & mask;
+      Entry entry = table[slot];
+
+      if (entry == null) {
+        return insert(slot, hash, buffer, index, length, charset);
+      }
+
+      if (entry.matches(hash, buffer, index, length)) {
+        return entry.value;
+      }
+    }
+
+    return insert(home, hash, buffer, index, length, charset);
+  }
+
+  private String insert(int slot, int hash, ByteBuf buffer, int index, int length, Charset charset) {
+
+    byte[] bytes = new byte[length];
+    buffer.getBytes(index, bytes);
+
+    String value = decodeString(buffer, index, length, charset);
+
+    table[slot] = new Entry(hash, bytes, value);
+
+    return value;
+  }
+
+  private static int hash(ByteBuf buffer, int index, int length) {
+    int hash = length;
+    for (int c = 0; c < length; ++c) {
+      hash = 31 * hash + buffer.getByte(index + c);
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+}
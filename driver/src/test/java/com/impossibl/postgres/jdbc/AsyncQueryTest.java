@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGResultSet;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AsyncQueryTest {
+
+  private Connection con;
+  private PGConnection pgCon;
+
+  @Before
+  public void setup() throws SQLException {
+    con = TestUtil.openDB();
+    pgCon = con.unwrap(PGConnection.class);
+    TestUtil.createTable(con, "asynctbl", "id int4, name text");
+  }
+
+  @After
+  public void teardown() throws SQLException {
+    TestUtil.dropTable(con, "asynctbl");
+    TestUtil.closeDB(con);
+  }
+
+  @Test
+  public void testQuery() throws Exception {
+
+    try (ResultSet rs = get(pgCon.queryAsync("SELECT ?::int4 + 1, ? || 'b', ?", 41, "a", null))) {
+      assertThat(rs.next(), equalTo(true));
+      assertThat(rs.getInt(1), equalTo(42));
+      assertThat(rs.getString(2), equalTo("ab"));
+      assertThat(rs.getObject(3), equalTo(null));
+      assertThat(rs.next(), equalTo(false));
+    }
+
+  }
+
+  @Test
+  public void testExecute() throws Exception {
+
+    assertThat(get(pgCon.executeAsync("INSERT INTO asynctbl VALUES (?, ?), (?, ?)", 1, "one", 2, "two")), equalTo(2L));
+    assertThat(get(pgCon.executeAsync("UPDATE asynctbl SET name = upper(name) WHERE id > ?", 1)), equalTo(1L));
+
+    try (ResultSet rs = con.createStatement().executeQuery("SELECT name FROM asynctbl ORDER BY id")) {
+      assertThat(rs.next(), equalTo(true));
+      assertThat(rs.getString(1), equalTo("one"));
+      assertThat(rs.next(), equalTo(true));
+      assertThat(rs.getString(1), equalTo("TWO"));
+    }
+
+  }
+
+  @Test
+  public void testPipelined() throws Exception {
+
+    List<CompletableFuture<PGResultSet>> results = new ArrayList<>();
+    for (int c = 0; c < 50; ++c) {
+      results.add(pgCon.queryAsync("SELECT ?::int4", c).toCompletableFuture());
+    }
+
+    for (int c = 0; c < results.size(); ++c) {
+      try (ResultSet rs = get(results.get(c))) {
+        assertThat(rs.next(), equalTo(true));
+        assertThat(rs.getInt(1), equalTo(c));
+      }
+    }
+
+    // Connection remains usable synchronously
+    try (ResultSet rs = con.createStatement().executeQuery("SELECT 1")) {
+      assertThat(rs.next(), equalTo(true));
+    }
+
+  }
+
+  @Test
+  public void testError() throws Exception {
+
+    CompletionStage<PGResultSet> bad = pgCon.queryAsync("SELECT * FROM nonexistent_async_table");
+    CompletionStage<PGResultSet> good = pgCon.queryAsync("SELECT 1");
+
+    try {
+      get(bad);
+      fail("Expected query to fail");
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(SQLException.class));
+    }
+
+    try (ResultSet rs = get(good)) {
+      assertThat(rs.next(), equalTo(true));
+      assertThat(rs.getInt(1), equalTo(1));
+    }
+
+  }
+
+  @Test
+  public void testParameterCount() throws Exception {
+
+    try {
+      get(pgCon.queryAsync("SELECT ?", 1, 2));
+      fail("Expected parameter count error");
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(SQLException.class));
+    }
+
+  }
+
+  private static <T> T get(CompletionStage<T> stage) throws Exception {
+    return stage.toCompletableFuture().get(30, TimeUnit.SECONDS);
+  }
+
+}
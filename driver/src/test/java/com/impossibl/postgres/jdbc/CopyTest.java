@@ -29,6 +29,8 @@
 package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGCopyReader;
+import com.impossibl.postgres.api.jdbc.PGCopyWriter;
 
 import static com.impossibl.postgres.jdbc.util.Asserts.assertThrows;
 
@@ -36,11 +38,14 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.channels.Channels;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collections;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -161,6 +166,227 @@ public class CopyTest {
 
   }
 
+  @Test
+  public void testCopyToChannel() throws SQLException, IOException {
+
+    try (Statement statement = con.createStatement()) {
+
+      statement.executeUpdate("INSERT INTO copytbl VALUES ('ab', 1)");
+      statement.executeUpdate("INSERT INTO copytbl VALUES ('bc', 20)");
+      statement.executeUpdate("INSERT INTO copytbl VALUES ('cd', 300)");
+
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+      con.unwrap(PGConnection.class).copyTo("COPY copytbl TO STDOUT", Channels.newChannel(os));
+
+      assertThat(os.toByteArray(), equalTo("ab\t1\nbc\t20\ncd\t300\n".getBytes(UTF_8)));
+    }
+
+  }
+
+  @Test
+  public void testCopyToLarge() throws SQLException, IOException {
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+    con.unwrap(PGConnection.class).copyTo("COPY (SELECT repeat('x', 100) || g FROM generate_series(1, 50000) AS g) TO STDOUT", os);
+
+    String[] lines = new String(os.toByteArray(), UTF_8).split("\n");
+    assertThat(lines.length, equalTo(50000));
+    assertThat(lines[49999], equalTo(String.join("", Collections.nCopies(100, "x")) + "50000"));
+
+    try (Statement statement = con.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SELECT 1")) {
+        assertThat(rs.next(), equalTo(true));
+      }
+    }
+  }
+
+  @Test
+  public void testCopyToFailingStream() throws SQLException {
+
+    OutputStream os = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Disk full");
+      }
+    };
+
+    assertThrows(SQLException.class, () -> {
+      con.unwrap(PGConnection.class).copyTo("COPY (SELECT g FROM generate_series(1, 50000) AS g) TO STDOUT", os);
+    });
+
+    try (Statement statement = con.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SELECT 1")) {
+        assertThat(rs.next(), equalTo(true));
+      }
+    }
+  }
+
+  @Test
+  public void testCopyInWriter() throws SQLException {
+
+    try (PGCopyWriter writer = con.unwrap(PGConnection.class).copyIn("copytbl", "name", "value")) {
+
+      writer.writeString("ab").writeInt(1);
+      writer.writeString("bc").writeLong(20);
+      writer.writeNull().writeObject("300");
+
+      assertThat(writer.finish(), equalTo(3L));
+    }
+
+    try (Statement statement = con.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SELECT * FROM copytbl")) {
+
+        assertThat(rs.next(), equalTo(true));
+        assertThat(rs.getString(1), equalTo("ab"));
+        assertThat(rs.getInt(2), equalTo(1));
+
+        assertThat(rs.next(), equalTo(true));
+        assertThat(rs.getString(1), equalTo("bc"));
+        assertThat(rs.getInt(2), equalTo(20));
+
+        assertThat(rs.next(), equalTo(true));
+        assertThat(rs.getString(1), equalTo(null));
+        assertThat(rs.getInt(2), equalTo(300));
+
+        assertThat(rs.next(), equalTo(false));
+      }
+    }
+
+  }
+
+  @Test
+  public void testCopyInWriterLarge() throws SQLException {
+
+    try (PGCopyWriter writer = con.unwrap(PGConnection.class).copyIn("copytbl")) {
+
+      for (int c = 0; c < 100000; ++c) {
+        writer.writeString("row " + c).writeInt(c);
+      }
+
+      assertThat(writer.finish(), equalTo(100000L));
+    }
+
+    try (Statement statement = con.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SELECT count(*), sum(value) FROM copytbl")) {
+        assertThat(rs.next(), equalTo(true));
+        assertThat(rs.getLong(1), equalTo(100000L));
+        assertThat(rs.getLong(2), equalTo(4999950000L));
+      }
+    }
+
+  }
+
+  @Test
+  public void testCopyInWriterAbort() throws SQLException {
+
+    try (PGCopyWriter writer = con.unwrap(PGConnection.class).copyIn("copytbl", "name", "value")) {
+
+      writer.writeString("ab").writeInt(1);
+
+      assertThrows(SQLException.class, () -> con.createStatement().executeQuery("SELECT * FROM copytbl"));
+    }
+
+    try (Statement statement = con.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SELECT * FROM copytbl")) {
+        assertThat(rs.next(), equalTo(false));
+      }
+    }
+
+  }
+
+  @Test
+  public void testCopyInWriterIncompleteRow() throws SQLException {
+
+    try (PGCopyWriter writer = con.unwrap(PGConnection.class).copyIn("copytbl", "name", "value")) {
+
+      writer.writeString("ab");
+
+      assertThrows(SQLException.class, writer::finish);
+    }
+
+  }
+
+  @Test
+  public void testCopyOutReader() throws SQLException {
+
+    try (Statement statement = con.createStatement()) {
+      statement.executeUpdate("INSERT INTO copytbl VALUES ('ab', 1)");
+      statement.executeUpdate("INSERT INTO copytbl VALUES (NULL, 20)");
+      statement.executeUpdate("INSERT INTO copytbl VALUES ('cd', NULL)");
+    }
+
+    try (PGCopyReader reader = con.unwrap(PGConnection.class).copyOut("SELECT name, value FROM copytbl")) {
+
+      assertThat(reader.getColumnCount(), equalTo(2));
+      assertThat(reader.getColumnName(2), equalTo("value"));
+
+      assertThat(reader.next(), equalTo(true));
+      assertThat(reader.getString(1), equalTo("ab"));
+      assertThat(reader.getInt(2), equalTo(1));
+      assertThat(reader.wasNull(), equalTo(false));
+
+      assertThat(reader.next(), equalTo(true));
+      assertThat(reader.getString(1), equalTo(null));
+      assertThat(reader.wasNull(), equalTo(true));
+      assertThat(reader.getLong(2), equalTo(20L));
+
+      assertThat(reader.next(), equalTo(true));
+      assertThat(reader.getObject(1), equalTo("cd"));
+      assertThat(reader.getInt(2), equalTo(0));
+      assertThat(reader.wasNull(), equalTo(true));
+
+      assertThat(reader.next(), equalTo(false));
+      assertThat(reader.getRowCount(), equalTo(3L));
+    }
+
+  }
+
+  @Test
+  public void testCopyOutReaderLarge() throws SQLException {
+
+    try (Statement statement = con.createStatement()) {
+      statement.executeUpdate("INSERT INTO copytbl SELECT 'row ' || i, i FROM generate_series(1, 100000) AS i");
+    }
+
+    long sum = 0;
+
+    try (PGCopyReader reader = con.unwrap(PGConnection.class).copyOut("SELECT value FROM copytbl")) {
+
+      while (reader.next()) {
+        sum += reader.getInt(1);
+      }
+
+      assertThat(reader.getRowCount(), equalTo(100000L));
+    }
+
+    assertThat(sum, equalTo(5000050000L));
+  }
+
+  @Test
+  public void testCopyOutReaderClose() throws SQLException {
+
+    try (Statement statement = con.createStatement()) {
+      statement.executeUpdate("INSERT INTO copytbl SELECT 'row ' || i, i FROM generate_series(1, 100000) AS i");
+    }
+
+    try (PGCopyReader reader = con.unwrap(PGConnection.class).copyOut("SELECT * FROM copytbl")) {
+
+      assertThat(reader.next(), equalTo(true));
+
+      assertThrows(SQLException.class, () -> con.createStatement().executeQuery("SELECT * FROM copytbl"));
+    }
+
+    try (Statement statement = con.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SELECT count(*) FROM copytbl")) {
+        assertThat(rs.next(), equalTo(true));
+        assertThat(rs.getLong(1), equalTo(100000L));
+      }
+    }
+
+  }
+
   @Test
   public void testCopyInInvalid() {
 
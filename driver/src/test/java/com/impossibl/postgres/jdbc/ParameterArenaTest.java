@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class ParameterArenaTest {
+
+  private ParameterArena arena;
+  private ByteBuf[] views;
+
+  @Before
+  public void before() {
+    arena = new ParameterArena(new UnpooledByteBufAllocator(false), 3);
+    views = new ByteBuf[3];
+  }
+
+  @After
+  public void after() {
+    arena.release();
+  }
+
+  private void set(int parameterIdx, String value) {
+    ByteBuf out = arena.begin(parameterIdx);
+    out.writeCharSequence(value, UTF_8);
+    views[parameterIdx] = arena.end(parameterIdx);
+  }
+
+  private String get(int parameterIdx) {
+    return views[parameterIdx].toString(UTF_8);
+  }
+
+  @Test
+  public void testReplaceAll() {
+
+    set(0, "a");
+    set(1, "bb");
+    set(2, "ccc");
+    ByteBuf first = views[0].unwrap();
+
+    arena.reset(views);
+
+    set(0, "dddd");
+    set(1, "e");
+    set(2, "ff");
+    ByteBuf second = views[0].unwrap();
+    assertNotSame(first, second);
+
+    arena.reset(views);
+
+    // Every value was replaced, the first buffer is recycled
+    set(0, "g");
+    assertSame(first, views[0].unwrap());
+    assertEquals("g", get(0));
+    assertEquals("e", get(1));
+    assertEquals("ff", get(2));
+  }
+
+  @Test
+  public void testReplaceSome() {
+
+    set(0, "a");
+    set(1, "bb");
+    set(2, "ccc");
+
+    arena.reset(views);
+
+    set(0, "dddddd");
+
+    arena.reset(views);
+
+    set(0, "h");
+    assertEquals("h", get(0));
+    assertEquals("bb", get(1));
+    assertEquals("ccc", get(2));
+
+    arena.reset(views);
+    arena.reset(views);
+
+    assertEquals("h", get(0));
+    assertEquals("bb", get(1));
+    assertEquals("ccc", get(2));
+  }
+
+  @Test
+  public void testRetainedNotRecycled() {
+
+    set(0, "a");
+    ByteBuf retained = views[0].retainedDuplicate();
+
+    arena.reset(views);
+    set(0, "b");
+    arena.reset(views);
+    set(0, "c");
+
+    assertNotSame(retained.unwrap(), views[0].unwrap());
+    assertEquals("a", retained.toString(UTF_8));
+    assertEquals("c", get(0));
+
+    retained.release();
+  }
+
+  @Test
+  public void testAbort() {
+
+    set(0, "a");
+
+    arena.begin(1).writeCharSequence("partial", UTF_8);
+    arena.abort();
+
+    set(1, "b");
+    assertEquals("a", get(0));
+    assertEquals("b", get(1));
+    assertEquals(2, views[1].unwrap().writerIndex());
+  }
+
+}
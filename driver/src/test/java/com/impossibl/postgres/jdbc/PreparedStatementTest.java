@@ -538,6 +538,108 @@ public class PreparedStatementTest {
 
   }
 
+  @Test
+  public void testInferredParameterTypes() throws SQLException {
+    PreparedStatement pstmt = conn.prepareStatement("CREATE TEMP TABLE infer_tab (id bigint, name text)");
+    pstmt.executeUpdate();
+    pstmt.close();
+
+    // Inferred types are accepted by the server
+    pstmt = conn.prepareStatement("INSERT INTO infer_tab VALUES (?, ?)");
+    pstmt.setInt(1, 1);
+    pstmt.setString(2, "one");
+    assertEquals(1, pstmt.executeUpdate());
+    pstmt.setLong(1, 1L << 40);
+    pstmt.setNull(2, Types.VARCHAR);
+    assertEquals(1, pstmt.executeUpdate());
+    pstmt.close();
+
+    // Inferred types are rejected by the server, requiring a fallback
+    pstmt = conn.prepareStatement("SELECT substring(name from ?) FROM infer_tab WHERE id = ?");
+    pstmt.setLong(1, 2);
+    pstmt.setInt(2, 1);
+    ResultSet rs = pstmt.executeQuery();
+    assertTrue(rs.next());
+    assertEquals("ne", rs.getString(1));
+    assertFalse(rs.next());
+    rs.close();
+
+    pstmt.setLong(2, 1L << 40);
+    rs = pstmt.executeQuery();
+    assertTrue(rs.next());
+    assertNull(rs.getString(1));
+    rs.close();
+    pstmt.close();
+  }
+
+  @Test
+  public void testInferredExecuteFailure() throws SQLException {
+
+    // First (hot) execution prepares a named statement but fails while executing it
+    PreparedStatement pstmt = conn.prepareStatement("SELECT 10 / ?");
+    pstmt.setInt(1, 0);
+    try {
+      pstmt.executeQuery();
+      fail("Expected division by zero");
+    }
+    catch (SQLException e) {
+      assertEquals("22012", e.getSQLState());
+    }
+    pstmt.close();
+
+    // Re-executing the same SQL must not collide with the failed statement
+    pstmt = conn.prepareStatement("SELECT 10 / ?");
+    pstmt.setInt(1, 2);
+    ResultSet rs = pstmt.executeQuery();
+    assertTrue(rs.next());
+    assertEquals(5, rs.getInt(1));
+    rs.close();
+    pstmt.close();
+  }
+
+  @Test
+  public void testPrimitiveParameters() throws SQLException {
+    PreparedStatement pstmt = conn.prepareStatement("CREATE TEMP TABLE prim_tab (s smallint, i int, b bigint, d float8)");
+    pstmt.executeUpdate();
+    pstmt.close();
+
+    pstmt = conn.prepareStatement("INSERT INTO prim_tab VALUES (?, ?, ?, ?)");
+    for (int c = 0; c < 3; ++c) {
+      pstmt.setShort(1, (short) c);
+      pstmt.setInt(2, c * 10);
+      pstmt.setLong(3, (1L << 40) + c);
+      pstmt.setDouble(4, c + .5);
+      pstmt.addBatch();
+    }
+    pstmt.executeBatch();
+
+    // Different JDBC type than the parameter's previous value
+    pstmt.setInt(1, 3);
+    pstmt.setLong(2, 30);
+    pstmt.setInt(3, 3);
+    pstmt.setInt(4, 3);
+    assertEquals(1, pstmt.executeUpdate());
+    pstmt.close();
+
+    pstmt = conn.prepareStatement("SELECT s, i, b, d FROM prim_tab ORDER BY s");
+    ResultSet rs = pstmt.executeQuery();
+    for (int c = 0; c < 3; ++c) {
+      assertTrue(rs.next());
+      assertEquals(c, rs.getShort(1));
+      assertEquals(c * 10, rs.getInt(2));
+      assertEquals((1L << 40) + c, rs.getLong(3));
+      assertEquals(c + .5, rs.getDouble(4), 0);
+    }
+    assertTrue(rs.next());
+    assertEquals(3, rs.getShort(1));
+    assertEquals(30, rs.getInt(2));
+    assertEquals(3, rs.getLong(3));
+    assertEquals(3, rs.getDouble(4), 0);
+    assertFalse(rs.next());
+    rs.close();
+    pstmt.close();
+  }
+
   @Test
   public void testSetDecimalIntObject() throws SQLException {
     PreparedStatement pstmt = conn.prepareStatement("CREATE temp TABLE dec_tab (max_val decimal, min_val decimal, null_val decimal)");
@@ -233,6 +233,37 @@ public class ResultSetMetaDataTest {
     stmt.close();
   }
 
+  @Test
+  public void testMultipleRelations() throws SQLException {
+    Statement stmt = conn.createStatement();
+    ResultSet rs = stmt.executeQuery("SELECT r.b, s.c, s.a FROM rsmd1 r, serialtest s");
+    ResultSetMetaData rsmd = rs.getMetaData();
+
+    assertEquals(ResultSetMetaData.columnNullable, rsmd.isNullable(1));
+    assertEquals("rsmd1", rsmd.getTableName(1));
+    assertTrue(!rsmd.isAutoIncrement(2));
+    assertTrue(rsmd.isAutoIncrement(3));
+    assertEquals("serialtest", rsmd.getTableName(3));
+
+    rs.close();
+    stmt.close();
+  }
+
+  @Test
+  public void testRelationChanges() throws SQLException {
+    Statement stmt = conn.createStatement();
+    ResultSet rs = stmt.executeQuery("SELECT b FROM rsmd1");
+    assertEquals(ResultSetMetaData.columnNullable, rs.getMetaData().isNullable(1));
+    rs.close();
+
+    stmt.executeUpdate("ALTER TABLE rsmd1 ALTER COLUMN b SET NOT NULL");
+
+    rs = stmt.executeQuery("SELECT b FROM rsmd1");
+    assertEquals(ResultSetMetaData.columnNoNulls, rs.getMetaData().isNullable(1));
+    rs.close();
+    stmt.close();
+  }
+
   @Test
   public void testClassesMatch() throws SQLException, ClassNotFoundException {
     Statement stmt = conn.createStatement();
@@ -35,6 +35,9 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.api.jdbc.PGPreparedStatement;
+import com.impossibl.postgres.api.jdbc.PGResultSet;
+import com.impossibl.postgres.api.jdbc.PGStatement;
 import com.impossibl.postgres.utils.guava.CharStreams;
 
 import static com.impossibl.postgres.jdbc.util.Asserts.assertThrows;
@@ -50,7 +53,15 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -66,6 +77,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -1082,4 +1094,112 @@ public class ResultSetTest {
 
   }
 
+  @Test
+  public void testParallelSpliterator() throws SQLException {
+
+    try (Statement stmt = con.createStatement()) {
+      try (ResultSet rs = stmt.executeQuery("SELECT g, g::text FROM generate_series(1, 10000) AS g")) {
+        assertTrue(rs.next());
+
+        Spliterator<String> rows = rs.unwrap(PGResultSet.class).spliterator((row, rowNumber) -> {
+          assertEquals(rowNumber, row.getInt(1));
+          return row.getString(2);
+        });
+        assertEquals(9999, rows.estimateSize());
+
+        List<String> values = StreamSupport.stream(rows, true).collect(Collectors.toList());
+        assertEquals(9999, values.size());
+        for (int c = 0; c < values.size(); ++c) {
+          assertEquals(Integer.toString(c + 2), values.get(c));
+        }
+
+        assertFalse(rs.next());
+      }
+    }
+
+  }
+
+  @Test
+  public void testFetchSizeSpliterator() throws SQLException {
+
+    con.setAutoCommit(false);
+    try (Statement stmt = con.createStatement()) {
+      stmt.setFetchSize(100);
+      try (ResultSet rs = stmt.executeQuery("SELECT g FROM generate_series(1, 1000) AS g")) {
+
+        Spliterator<Integer> rows = rs.unwrap(PGResultSet.class).spliterator((row, rowNumber) -> row.getInt(1));
+
+        List<Integer> values = StreamSupport.stream(rows, true).collect(Collectors.toList());
+        assertEquals(1000, values.size());
+        for (int c = 0; c < values.size(); ++c) {
+          assertEquals(c + 1, (int) values.get(c));
+        }
+      }
+    }
+    finally {
+      con.setAutoCommit(true);
+    }
+
+  }
+
+  @Test
+  public void testStream() throws SQLException {
+
+    con.setAutoCommit(false);
+    try (Statement stmt = con.createStatement()) {
+      stmt.setFetchSize(10);
+
+      ResultSet rs;
+      try (Stream<Integer> rows = stmt.unwrap(PGStatement.class).stream("SELECT g FROM generate_series(1, 1000) AS g", (row, rowNumber) -> row.getInt(1))) {
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), rows.limit(5).collect(Collectors.toList()));
+        rs = stmt.getResultSet();
+      }
+      assertTrue(rs == null || rs.isClosed());
+    }
+    finally {
+      con.setAutoCommit(true);
+    }
+
+    try (PreparedStatement stmt = con.prepareStatement("SELECT g FROM generate_series(1, ?) AS g")) {
+      stmt.setInt(1, 5000);
+
+      try (Stream<Integer> rows = stmt.unwrap(PGPreparedStatement.class).stream((row, rowNumber) -> row.getInt(1))) {
+        assertEquals(12502500L, rows.parallel().mapToLong(Integer::longValue).sum());
+      }
+    }
+
+  }
+
+  @Test
+  public void testDeduplicateStrings() throws SQLException {
+
+    try (Statement stmt = con.createStatement()) {
+      try (ResultSet rs = stmt.executeQuery("SELECT (ARRAY['active', 'inactive', 'pending'])[g % 3 + 1], g, 'caf\u00e9 ' || (g % 2) FROM generate_series(1, 100) AS g")) {
+        PGResultSet pgRs = rs.unwrap(PGResultSet.class);
+        pgRs.deduplicateStrings(1);
+        pgRs.deduplicateStrings(2);
+        pgRs.deduplicateStrings(3);
+
+        String[] statuses = {"active", "inactive", "pending"};
+        Map<String, String> seen = new HashMap<>();
+        int row = 0;
+        while (rs.next()) {
+          row++;
+
+          String status = rs.getString(1);
+          assertEquals(statuses[row % 3], status);
+          assertSame(seen.computeIfAbsent(status, key -> status), status);
+
+          assertEquals(Integer.toString(row), rs.getString(2));
+
+          String accented = rs.getString(3);
+          assertEquals("caf\u00e9 " + (row % 2), accented);
+          assertSame(seen.computeIfAbsent(accented, key -> accented), accented);
+        }
+        assertEquals(100, row);
+      }
+    }
+
+  }
+
 }
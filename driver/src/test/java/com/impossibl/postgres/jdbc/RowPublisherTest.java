@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGFlow;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RowPublisherTest {
+
+  private Connection con;
+  private PGConnection pgCon;
+
+  @Before
+  public void setup() throws SQLException {
+    con = TestUtil.openDB();
+    pgCon = con.unwrap(PGConnection.class);
+  }
+
+  @After
+  public void teardown() throws SQLException {
+    TestUtil.closeDB(con);
+  }
+
+  /**
+   * Requests a fixed number of items at a time, cancelling after a limit.
+   */
+  static class TestSubscriber<T> implements PGFlow.Subscriber<T> {
+
+    final int batchSize;
+    final int limit;
+    final List<T> items = new ArrayList<>();
+    final CompletableFuture<List<T>> done = new CompletableFuture<>();
+    PGFlow.Subscription subscription;
+    int outstanding;
+
+    TestSubscriber(int batchSize, int limit) {
+      this.batchSize = batchSize;
+      this.limit = limit;
+    }
+
+    @Override
+    public void onSubscribe(PGFlow.Subscription subscription) {
+      this.subscription = subscription;
+      outstanding = batchSize;
+      subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(T item) {
+      items.add(item);
+      if (items.size() == limit) {
+        subscription.cancel();
+        done.complete(items);
+        return;
+      }
+      if (--outstanding == 0) {
+        outstanding = batchSize;
+        subscription.request(batchSize);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      done.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      done.complete(items);
+    }
+
+    List<T> await() throws Exception {
+      return done.get(30, TimeUnit.SECONDS);
+    }
+
+  }
+
+  private static int first(ResultSet rs, int rowNumber) throws SQLException {
+    return rs.getInt(1);
+  }
+
+  private void assertUsable() throws SQLException {
+    try (ResultSet rs = con.createStatement().executeQuery("SELECT 1")) {
+      assertThat(rs.next(), equalTo(true));
+    }
+  }
+
+  @Test
+  public void testPublishAll() throws Exception {
+
+    TestSubscriber<Integer> subscriber = new TestSubscriber<>(7, Integer.MAX_VALUE);
+    pgCon.publish("SELECT generate_series(1, ?)", RowPublisherTest::first, 100).subscribe(subscriber);
+
+    List<Integer> items = subscriber.await();
+    assertThat(items.size(), equalTo(100));
+    for (int c = 0; c < items.size(); ++c) {
+      assertThat(items.get(c), equalTo(c + 1));
+    }
+
+    assertUsable();
+  }
+
+  @Test
+  public void testPublishEmpty() throws Exception {
+
+    TestSubscriber<Integer> subscriber = new TestSubscriber<>(10, Integer.MAX_VALUE);
+    pgCon.publish("SELECT 1 WHERE false", RowPublisherTest::first).subscribe(subscriber);
+
+    assertThat(subscriber.await().size(), equalTo(0));
+
+    assertUsable();
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+
+    TestSubscriber<Integer> subscriber = new TestSubscriber<>(10, 25);
+    pgCon.publish("SELECT generate_series(1, 1000000)", RowPublisherTest::first).subscribe(subscriber);
+
+    List<Integer> items = subscriber.await();
+    assertThat(items.size(), equalTo(25));
+    assertThat(items.get(24), equalTo(25));
+
+    assertUsable();
+  }
+
+  @Test
+  public void testResubscribe() throws Exception {
+
+    PGFlow.Publisher<Integer> publisher = pgCon.publish("SELECT generate_series(1, 10)", RowPublisherTest::first);
+
+    TestSubscriber<Integer> first = new TestSubscriber<>(3, Integer.MAX_VALUE);
+    publisher.subscribe(first);
+    assertThat(first.await().size(), equalTo(10));
+
+    TestSubscriber<Integer> second = new TestSubscriber<>(100, Integer.MAX_VALUE);
+    publisher.subscribe(second);
+    assertThat(second.await().size(), equalTo(10));
+  }
+
+  @Test
+  public void testError() throws Exception {
+
+    TestSubscriber<Integer> subscriber = new TestSubscriber<>(10, Integer.MAX_VALUE);
+    pgCon.publish("SELECT * FROM nonexistent_publisher_table", RowPublisherTest::first).subscribe(subscriber);
+
+    try {
+      subscriber.await();
+      fail("Expected query to fail");
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(SQLException.class));
+    }
+
+    assertUsable();
+  }
+
+}
@@ -29,13 +29,17 @@
 package com.impossibl.postgres.jdbc;
 
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
 
+import static java.util.Arrays.asList;
+
 import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 public class SQLTextTests {
@@ -187,4 +191,66 @@ public class SQLTextTests {
     SQLText sqlText = new SQLText(sql);
     SQLTextEscapes.processEscapes(sqlText, null);
   }
+
+  @Test
+  public void testParsedVariants() throws SQLException, ParseException {
+
+    String sql = "select * from test where id = ? and name = {fn ucase(?)}";
+
+    ParsedSQLText parsed = ParsedSQLText.parse(sql, true);
+    assertThat(parsed.getParameterCount(), is(2));
+    assertThat(parsed.isEscapeFree(), is(false));
+
+    SQLText escaped = new SQLText(sql);
+    SQLTextEscapes.processEscapes(escaped, null);
+    assertThat(parsed.processEscapes(null).getText(), is(equalTo(escaped.toString())));
+    assertThat(parsed.processEscapes(null), is(parsed.processEscapes(null)));
+    assertThat(parsed.getText(), is(equalTo(new SQLText(sql).toString())));
+
+    SQLText returning = new SQLText(sql);
+    SQLTextUtils.appendReturningClause(returning);
+    assertThat(parsed.withReturningClause().getText(), is(equalTo(returning.toString())));
+    assertThat(parsed.withReturningClause(), is(parsed.withReturningClause()));
+
+    SQLText returningColumns = new SQLText(sql);
+    SQLTextUtils.appendReturningClause(returningColumns, asList("a", "b"));
+    assertThat(parsed.withReturningClause(asList("a", "b")).getText(), is(equalTo(returningColumns.toString())));
+
+    SQLText cursor = new SQLText(sql);
+    SQLTextUtils.prependCursorDeclaration(cursor, "c1", ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CLOSE_CURSORS_AT_COMMIT, false);
+    assertThat(parsed.getCursorDeclarationText("c1", ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CLOSE_CURSORS_AT_COMMIT, false), is(equalTo(cursor.toString())));
+
+    assertThat(parsed.getText(), is(equalTo(new SQLText(sql).toString())));
+
+    ParsedSQLText escapeFree = ParsedSQLText.parse("insert into test values(?) RETURNING id", true);
+    assertThat(escapeFree.isEscapeFree(), is(true));
+    assertThat(escapeFree.processEscapes(null), is(escapeFree));
+    assertThat(escapeFree.withReturningClause(), is(escapeFree));
+
+    ParsedSQLText multiple = ParsedSQLText.parse("select 1; select 2", true);
+    assertThat(multiple.isEscapeFree(), is(true));
+    assertThat(multiple.getParameterCount(), is(0));
+    assertThat(multiple.getText(), is(equalTo(new SQLText("select 1; select 2").toString())));
+    assertThat(multiple.withReturningClause(), is(nullValue()));
+    assertThat(multiple.getCursorDeclarationText("c1", ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CLOSE_CURSORS_AT_COMMIT, false), is(nullValue()));
+  }
+
+  @Test
+  public void testRelationChangingCommands() {
+    assertThat(SQLTextUtils.isRelationChangingCommand("ALTER TABLE"), is(true));
+    assertThat(SQLTextUtils.isRelationChangingCommand("DROP VIEW"), is(true));
+    assertThat(SQLTextUtils.isRelationChangingCommand("ALTER MATERIALIZED VIEW"), is(true));
+    assertThat(SQLTextUtils.isRelationChangingCommand("ALTER DOMAIN"), is(true));
+    assertThat(SQLTextUtils.isRelationChangingCommand("DROP OWNED"), is(true));
+    assertThat(SQLTextUtils.isRelationChangingCommand("CREATE VIEW"), is(true));
+
+    assertThat(SQLTextUtils.isRelationChangingCommand("CREATE TABLE"), is(false));
+    assertThat(SQLTextUtils.isRelationChangingCommand("CREATE INDEX"), is(false));
+    assertThat(SQLTextUtils.isRelationChangingCommand("DROP INDEX"), is(false));
+    assertThat(SQLTextUtils.isRelationChangingCommand("ALTER FUNCTION"), is(false));
+    assertThat(SQLTextUtils.isRelationChangingCommand("COMMENT"), is(false));
+    assertThat(SQLTextUtils.isRelationChangingCommand("SELECT 1"), is(false));
+    assertThat(SQLTextUtils.isRelationChangingCommand(null), is(false));
+  }
+
 }
@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGConnection;
+
+import static com.impossibl.postgres.jdbc.util.Asserts.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class SharedConnectionTest {
+
+  private Connection con;
+
+  @Before
+  public void setup() throws SQLException {
+    Properties props = new Properties();
+    props.setProperty("shared", "true");
+    con = TestUtil.openDB(props);
+  }
+
+  @After
+  public void teardown() throws SQLException {
+    TestUtil.closeDB(con);
+  }
+
+  @Test
+  public void testConcurrentStatements() throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int task = 0; task < 1000; ++task) {
+        int value = task;
+        results.add(executor.submit(() -> {
+          if (value % 2 == 0) {
+            try (PreparedStatement ps = con.prepareStatement("SELECT ?::int4")) {
+              ps.setInt(1, value);
+              try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+              }
+            }
+          }
+          else {
+            try (Statement st = con.createStatement()) {
+              try (ResultSet rs = st.executeQuery("SELECT " + value)) {
+                rs.next();
+                return rs.getInt(1);
+              }
+            }
+          }
+        }));
+      }
+
+      for (int task = 0; task < results.size(); ++task) {
+        assertThat(results.get(task).get(1, TimeUnit.MINUTES), equalTo(task));
+      }
+
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+  }
+
+  @Test
+  public void testConcurrentErrors() throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int task = 0; task < 200; ++task) {
+        int value = task;
+        results.add(executor.submit(() -> {
+          try (Statement st = con.createStatement()) {
+            if (value % 3 == 0) {
+              st.executeQuery("SELECT * FROM nonexistent_shared_table");
+              return false;
+            }
+            try (ResultSet rs = st.executeQuery("SELECT " + value)) {
+              return rs.next() && rs.getInt(1) == value;
+            }
+          }
+          catch (SQLException e) {
+            return value % 3 == 0;
+          }
+        }));
+      }
+
+      for (Future<Boolean> result : results) {
+        assertThat(result.get(1, TimeUnit.MINUTES), equalTo(true));
+      }
+
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+  }
+
+  @Test
+  public void testStatementCacheEviction() throws Exception {
+
+    Properties props = new Properties();
+    props.setProperty("shared", "true");
+    props.setProperty("prepared-statement.cache.size", "4");
+    props.setProperty("prepared-statement.cache.threshold", "0");
+
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try (Connection cachedCon = TestUtil.openDB(props)) {
+
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int task = 0; task < 1000; ++task) {
+        int value = task;
+        results.add(executor.submit(() -> {
+          // Many more distinct statements than cache entries
+          try (PreparedStatement ps = cachedCon.prepareStatement("SELECT ?::int4 + " + (value % 64))) {
+            ps.setInt(1, value);
+            try (ResultSet rs = ps.executeQuery()) {
+              rs.next();
+              return rs.getInt(1) - (value % 64);
+            }
+          }
+        }));
+      }
+
+      for (int task = 0; task < results.size(); ++task) {
+        assertThat(results.get(task).get(1, TimeUnit.MINUTES), equalTo(task));
+      }
+
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+  }
+
+  @Test
+  public void testFetchSizeIgnored() throws SQLException {
+
+    try (Statement st = con.createStatement()) {
+      st.setFetchSize(10);
+      try (ResultSet rs = st.executeQuery("SELECT generate_series(1, 100)")) {
+        int count = 0;
+        while (rs.next()) {
+          ++count;
+        }
+        assertThat(count, equalTo(100));
+      }
+    }
+
+  }
+
+  @Test
+  public void testUnsupported() throws SQLException {
+
+    assertThat(con.getAutoCommit(), equalTo(true));
+    assertThrows(SQLException.class, () -> con.setAutoCommit(false));
+    assertThrows(SQLException.class, () -> con.setNetworkTimeout(null, 1000));
+
+    try (Statement st = con.createStatement()) {
+      assertThrows(SQLException.class, () -> st.setQueryTimeout(1));
+    }
+
+    PGConnection pgCon = con.unwrap(PGConnection.class);
+    assertThrows(SQLException.class, () -> pgCon.copyFrom("COPY pg_class FROM STDIN", new ByteArrayInputStream(new byte[0])));
+    assertThrows(SQLException.class, () -> pgCon.copyOut("SELECT 1"));
+    assertThrows(SQLException.class, () -> pgCon.publish("SELECT 1", (rs, rowNumber) -> rs.getInt(1)));
+  }
+
+}
@@ -28,8 +28,11 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.api.data.BinaryRecordData;
 import com.impossibl.postgres.api.jdbc.PGType;
 
+import java.io.IOException;
+
 import java.sql.Connection;
 import java.sql.JDBCType;
 import java.sql.PreparedStatement;
@@ -112,6 +115,28 @@ public class StructTest {
 
   }
 
+  public static class TestBinaryStruct extends TestStruct implements BinaryRecordData {
+
+    @Override
+    public void readRecord(Reader in) throws IOException {
+      assertEquals(4, in.readAttributeCount());
+      str = in.readAttribute(String.class);
+      str2 = in.readAttribute(String.class);
+      id = in.readAttribute(UUID.class);
+      num = in.readAttribute(Double.class);
+    }
+
+    @Override
+    public void writeRecord(Writer out) throws IOException {
+      out.writeAttributeCount(4);
+      out.writeAttribute("varchar", str);
+      out.writeAttribute("varchar", str2);
+      out.writeAttribute("uuid", id);
+      out.writeAttribute("float8", num);
+    }
+
+  }
+
   static Connection conn;
 
 
@@ -201,6 +226,56 @@ public class StructTest {
     st.close();
   }
 
+  @Test
+  public void testBinaryRecordData() throws SQLException {
+
+    TestBinaryStruct ts = new TestBinaryStruct(), ts2;
+    ts.id = UUID.randomUUID();
+    ts.num = new Random().nextDouble();
+    ts.str = "A string";
+
+    PreparedStatement pst = conn.prepareStatement("INSERT INTO struct_test VALUES (?)");
+    pst.setObject(1, ts);
+    pst.executeUpdate();
+    pst.close();
+
+    pst = conn.prepareStatement("SELECT * FROM struct_test");
+    ResultSet rs = pst.executeQuery();
+    assertTrue(rs.next());
+    assertNotNull(ts2 = rs.getObject(1, TestBinaryStruct.class));
+    assertEquals(ts.str, ts2.str);
+    assertNull(ts2.str2);
+    assertEquals(ts.id, ts2.id);
+    assertEquals(ts.num, ts2.num, 0.00000001);
+    rs.close();
+    pst.close();
+  }
+
+  @Test
+  public void testDecodeAttributes() throws SQLException {
+
+    UUID id = UUID.randomUUID();
+
+    Statement st = conn.createStatement();
+    st.executeUpdate("INSERT INTO struct_test VALUES (ROW('a', NULL, '" + id + "', 1.5))");
+
+    PreparedStatement pst = conn.prepareStatement("SELECT val, ARRAY[val, val] FROM struct_test");
+    ResultSet rs = pst.executeQuery();
+    assertTrue(rs.next());
+
+    Object[] attrs = rs.getObject(1, Object[].class);
+    assertArrayEquals(new Object[] {"a", null, id, 1.5}, attrs);
+
+    Object[][] attrsArray = rs.getObject(2, Object[][].class);
+    assertEquals(2, attrsArray.length);
+    assertArrayEquals(attrs, attrsArray[0]);
+    assertArrayEquals(attrs, attrsArray[1]);
+
+    rs.close();
+    pst.close();
+    st.close();
+  }
+
   @Test
   public void testResultSetTypeMap() throws SQLException {
 
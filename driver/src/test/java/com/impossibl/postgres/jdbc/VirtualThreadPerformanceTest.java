@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Benchmarks thousands of concurrent queries from virtual threads over a
+ * varying number of connections. If any blocking path in the driver pins
+ * virtual threads to their carriers, throughput stops scaling with the
+ * number of connections once all carriers are pinned. Run with
+ * {@code -Djdk.tracePinnedThreads=full} to report any pinning.
+ *
+ * Like {@link PerformanceTest} it is excluded from the default test run.
+ * Virtual threads require Java 21; the test is skipped on earlier versions.
+ */
+public class VirtualThreadPerformanceTest {
+
+  private static final int TASK_COUNT = 5000;
+  private static final int[] CONNECTION_COUNTS = {1, 2, 4, 8, 16};
+
+  private ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+    catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  @Before
+  public void setUp() {
+    ExecutorService executor = newVirtualThreadExecutor();
+    assumeTrue("Virtual threads are not supported", executor != null);
+    executor.shutdown();
+  }
+
+  private void run(int connectionCount) throws Exception {
+
+    BlockingQueue<Connection> connections = new ArrayBlockingQueue<>(connectionCount);
+    for (int c = 0; c < connectionCount; ++c) {
+      connections.add(TestUtil.openDB());
+    }
+
+    try {
+
+      ExecutorService executor = newVirtualThreadExecutor();
+
+      long start = System.nanoTime();
+
+      List<Future<Integer>> results = new ArrayList<>(TASK_COUNT);
+      for (int task = 0; task < TASK_COUNT; ++task) {
+        int value = task;
+        results.add(executor.submit(() -> query(connections, value)));
+      }
+
+      for (int task = 0; task < TASK_COUNT; ++task) {
+        assertThat(results.get(task).get(2, TimeUnit.MINUTES), equalTo(task));
+      }
+
+      long elapsed = System.nanoTime() - start;
+
+      executor.shutdown();
+
+      System.out.printf("Virtual Threads: %d connections, %.0f queries/sec%n", connectionCount, TASK_COUNT / (elapsed / 1e9));
+    }
+    finally {
+      for (Connection connection : connections) {
+        TestUtil.closeDB(connection);
+      }
+    }
+  }
+
+  private static int query(BlockingQueue<Connection> connections, int value) throws InterruptedException, SQLException {
+
+    Connection connection = connections.take();
+    try (PreparedStatement ps = connection.prepareStatement("SELECT ?::int4, pg_sleep(0.002)")) {
+      ps.setInt(1, value);
+      try (ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        return rs.getInt(1);
+      }
+    }
+    finally {
+      connections.put(connection);
+    }
+  }
+
+  @Test
+  public void testThroughput() throws Exception {
+
+    for (int connectionCount : CONNECTION_COUNTS) {
+      run(connectionCount);
+    }
+
+  }
+
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.trace;
+
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH_COMPLETE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.DISPATCH_RESUME;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.FLUSH;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.RECEIVE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SEND;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_CLOSE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_EXECUTE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_PREPARE;
+import static com.impossibl.postgres.protocol.trace.TraceRecords.SQL_QUERY;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class TraceTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static class CollectingOutput implements TraceOutput {
+
+    List<String> texts = new ArrayList<>();
+
+    @Override
+    public void record(long nanos, int connectionId, byte type, int code, String name, String text) {
+      texts.add(text);
+    }
+
+    @Override
+    public void dropped(long nanos, long count) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+  }
+
+  private static String decode(File file) throws IOException {
+    StringWriter out = new StringWriter();
+    try (InputStream in = new FileInputStream(file)) {
+      TraceDecoder.decode(in, out);
+    }
+    return out.toString();
+  }
+
+  @Test
+  public void testRingDropsWhenFull() throws IOException {
+
+    TraceRing ring = new TraceRing(4);
+    assertEquals(4, ring.capacity());
+
+    for (int c = 0; c < 4; ++c) {
+      assertTrue(ring.offer(c, 1, SQL_QUERY, 0, null, "q" + c));
+    }
+    assertFalse(ring.offer(4, 1, SQL_QUERY, 0, null, "q4"));
+    assertEquals(1, ring.takeDropped());
+    assertEquals(0, ring.takeDropped());
+
+    CollectingOutput output = new CollectingOutput();
+    assertEquals(2, ring.drain(output, 2));
+    assertTrue(ring.offer(5, 1, SQL_QUERY, 0, null, "q5"));
+    assertEquals(3, ring.drain(output, 10));
+    assertEquals(0, ring.drain(output, 10));
+
+    assertEquals("[q0, q1, q2, q3, q5]", output.texts.toString());
+  }
+
+  @Test
+  public void testBinaryRoundTrip() throws IOException {
+
+    File file = folder.newFile("trace");
+
+    BinaryTraceOutput output = new BinaryTraceOutput(file, Integer.MAX_VALUE, 1);
+    long nanos = System.nanoTime();
+    output.record(nanos, 1, SEND, 'P', null, null);
+    output.record(nanos + 1, 1, SEND, 'S', null, null);
+    output.record(nanos + 2, 2, SQL_PREPARE, 0, "s1", "SELECT 1");
+    output.record(nanos + 3, 1, FLUSH, 0, null, null);
+    output.record(nanos + 4, 1, RECEIVE, '1', null, null);
+    output.record(nanos + 5, 1, DISPATCH, DISPATCH_RESUME, null, null);
+    output.record(nanos + 6, 1, RECEIVE, 'Z', null, null);
+    output.record(nanos + 7, 1, DISPATCH, DISPATCH_COMPLETE, null, null);
+    output.record(nanos + 8, 1, FLUSH, 0, null, null);
+    output.record(nanos + 9, 2, SQL_EXECUTE, 0, "s1", null);
+    output.record(nanos + 10, 2, SQL_QUERY, 0, null, "SELECT '\u00e9'");
+    output.dropped(nanos + 11, 42);
+    output.record(nanos + 12, 2, SQL_CLOSE, 0, "s1", null);
+    output.record(nanos + 13, 2, SQL_EXECUTE, 0, "s1", null);
+    output.close();
+
+    String[] lines = decode(file).split("\n");
+    assertEquals(8, lines.length);
+    assertTrue(lines[0], lines[0].endsWith(" [2] P: s1 = SELECT 1"));
+    assertTrue(lines[1], lines[1].endsWith(" [1] <P<S"));
+    assertTrue(lines[2], lines[2].endsWith(" [1] >1.>Z*"));
+    assertTrue(lines[3], lines[3].endsWith(" [2] Q (s1): SELECT 1"));
+    assertTrue(lines[4], lines[4].endsWith(" [2] Q: SELECT '\u00e9'"));
+    assertTrue(lines[5], lines[5].endsWith(" !! 42 records dropped"));
+    assertTrue(lines[6], lines[6].endsWith(" [2] C: s1"));
+    assertTrue(lines[7], lines[7].endsWith(" [2] Q (s1): ?"));
+  }
+
+  @Test
+  public void testRotation() throws IOException {
+
+    File file = new File(folder.getRoot(), "trace");
+
+    BinaryTraceOutput output = new BinaryTraceOutput(file, 1024, 3);
+    for (int c = 0; c < 1000; ++c) {
+      output.record(System.nanoTime(), 1, SQL_QUERY, 0, null, "SELECT " + c);
+    }
+    output.close();
+
+    assertTrue(file.exists());
+    assertTrue(new File(file.getPath() + ".1").exists());
+    assertTrue(new File(file.getPath() + ".2").exists());
+    assertFalse(new File(file.getPath() + ".3").exists());
+
+    String current = decode(file);
+    assertTrue(current.endsWith("Q: SELECT 999\n"));
+    assertFalse(current.contains("SELECT 0\n"));
+  }
+
+  @Test
+  public void testSinkWritesAsynchronously() throws IOException {
+
+    File file = new File(folder.getRoot(), "trace");
+
+    TraceSink sink = new TraceSink(file.getPath(), new BinaryTraceOutput(file, Integer.MAX_VALUE, 1), 1024);
+    int id = sink.newConnectionId();
+    for (int c = 0; c < 100; ++c) {
+      sink.record(id, SQL_QUERY, null, "SELECT " + c);
+    }
+    sink.close();
+
+    String[] lines = decode(file).split("\n");
+    assertEquals(100, lines.length);
+    assertTrue(lines[99], lines[99].endsWith("] Q: SELECT 99"));
+  }
+
+
+  @Test
+  public void testSinkWakesIdleWriter() throws Exception {
+
+    File file = new File(folder.getRoot(), "trace");
+
+    TraceSink sink = new TraceSink(file.getPath(), new BinaryTraceOutput(file, Integer.MAX_VALUE, 1), 1024);
+    try {
+      int id = sink.newConnectionId();
+
+      sink.record(id, SQL_QUERY, null, "SELECT 1");
+      awaitLines(file, 1);
+
+      // Writer is now parked until the next record
+      sink.record(id, SQL_QUERY, null, "SELECT 2");
+      awaitLines(file, 2);
+    }
+    finally {
+      sink.close();
+    }
+  }
+
+  private static void awaitLines(File file, int count) throws Exception {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (countLines(file) < count) {
+      assertTrue("Records not written", System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  private static int countLines(File file) {
+    try {
+      String text = decode(file);
+      return text.isEmpty() ? 0 : text.split("\n").length;
+    }
+    catch (IOException e) {
+      // Header not yet flushed
+      return 0;
+    }
+  }
+
+}
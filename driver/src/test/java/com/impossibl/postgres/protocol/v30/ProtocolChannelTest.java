@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import static com.impossibl.postgres.jdbc.util.Asserts.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class ProtocolChannelTest {
+
+  /**
+   * Holds write promises so tests can complete them later.
+   */
+  private static class PendingWrites extends ChannelOutboundHandlerAdapter {
+
+    List<ChannelPromise> promises = new ArrayList<>();
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+      ReferenceCountUtil.release(msg);
+      promises.add(promise);
+    }
+
+  }
+
+  @Test
+  public void testDeferredCopyDataFailure() throws IOException {
+
+    PendingWrites writes = new PendingWrites();
+    EmbeddedChannel channel = new EmbeddedChannel(writes);
+    ProtocolChannel protocolChannel = new ProtocolChannel(channel, UTF_8);
+
+    ByteBuf data = Unpooled.wrappedBuffer(new byte[] {1, 2, 3});
+    try {
+      protocolChannel.writeCopyDataAndWait(data.duplicate());
+      assertEquals(1, writes.promises.size());
+
+      // Failure after the call returned is reported by the next call
+      writes.promises.get(0).setFailure(new IOException("write failed"));
+      assertThrows(IOException.class, () -> protocolChannel.writeCopyDataAndWait(data.duplicate()));
+
+      // And only once
+      protocolChannel.writeCopyDataAndWait(data.duplicate());
+
+      writes.promises.get(1).setFailure(new IOException("write failed"));
+      assertThrows(IOException.class, protocolChannel::writeCopyDone);
+    }
+    finally {
+      data.release();
+      channel.finishAndReleaseAll();
+    }
+  }
+
+}
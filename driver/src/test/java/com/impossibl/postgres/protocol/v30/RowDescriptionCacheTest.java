@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.protocol.FieldFormat;
+import com.impossibl.postgres.protocol.ResultField;
+
+import static com.impossibl.postgres.protocol.FieldFormats.REQUEST_ALL_BINARY;
+import static com.impossibl.postgres.protocol.FieldFormats.REQUEST_ALL_TEXT;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class RowDescriptionCacheTest {
+
+  private static ByteBuf description(String... names) {
+    ByteBuf buffer = Unpooled.buffer();
+    buffer.writeShort(names.length);
+    for (String name : names) {
+      buffer.writeBytes(name.getBytes(UTF_8)).writeByte(0);
+      buffer.writeInt(0);
+      buffer.writeShort(0);
+      buffer.writeInt(23);
+      buffer.writeShort(4);
+      buffer.writeInt(-1);
+      buffer.writeShort(0);
+    }
+    return buffer;
+  }
+
+  @Test
+  public void testInterned() {
+
+    RowDescriptionCache cache = new RowDescriptionCache(UTF_8);
+
+    ResultField[] first = cache.decode(description("a", "b"), null);
+    ResultField[] second = cache.decode(description("a", "b"), null);
+
+    assertSame(first, second);
+    assertEquals(FieldFormat.Text, first[0].getFormat());
+  }
+
+  @Test
+  public void testFormattedInterned() {
+
+    RowDescriptionCache cache = new RowDescriptionCache(UTF_8);
+
+    ResultField[] described = cache.decode(description("a", "b"), null);
+    ResultField[] first = cache.decode(description("a", "b"), REQUEST_ALL_BINARY);
+    ResultField[] second = cache.decode(description("a", "b"), REQUEST_ALL_BINARY);
+
+    assertSame(first, second);
+    assertNotSame(described, first);
+    assertEquals(FieldFormat.Binary, first[0].getFormat());
+    assertEquals(FieldFormat.Binary, first[1].getFormat());
+
+    // Described formats already match
+    assertSame(described, cache.decode(description("a", "b"), REQUEST_ALL_TEXT));
+  }
+
+  @Test
+  public void testMixedFormats() {
+
+    RowDescriptionCache cache = new RowDescriptionCache(UTF_8);
+
+    FieldFormat[] formats = {FieldFormat.Binary, FieldFormat.Text};
+    ResultField[] fields = cache.decode(description("a", "b"), formats);
+
+    assertEquals(FieldFormat.Binary, fields[0].getFormat());
+    assertEquals(FieldFormat.Text, fields[1].getFormat());
+    assertSame(fields, cache.decode(description("a", "b"), formats.clone()));
+  }
+
+}
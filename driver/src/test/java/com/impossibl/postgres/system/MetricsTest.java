@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system;
+
+import static com.impossibl.postgres.system.SystemSettings.METRICS;
+import static com.impossibl.postgres.system.SystemSettings.METRICS_NAME;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class MetricsTest {
+
+  private static Configuration configurationOf(Settings settings) {
+    return new Configuration() {
+      @Override
+      public <T> T getSetting(Setting<T> setting) {
+        return settings.get(setting);
+      }
+    };
+  }
+
+  @Test
+  public void testDefaultIsDisabled() throws IOException {
+
+    Metrics metrics = Metrics.lookup(configurationOf(new Settings()));
+    assertSame(Metrics.NONE, metrics);
+    assertFalse(metrics.isEnabled());
+  }
+
+  @Test
+  public void testLookupSharesInstances() throws IOException {
+
+    Settings settings = new Settings();
+    settings.set(METRICS, JMXMetrics.class);
+    settings.set(METRICS_NAME, "metrics-test-shared");
+
+    Metrics first = Metrics.lookup(configurationOf(settings));
+    Metrics second = Metrics.lookup(configurationOf(settings));
+    assertTrue(first instanceof JMXMetrics);
+    assertSame(first, second);
+
+    settings.set(METRICS_NAME, "metrics-test-other");
+    assertTrue(first != Metrics.lookup(configurationOf(settings)));
+  }
+
+  @Test
+  public void testJMXCounters() throws Exception {
+
+    JMXMetrics metrics = new JMXMetrics("metrics-test-counters");
+
+    metrics.requestQueued(1_000_000);
+    metrics.requestCompleted(2_000_000);
+    metrics.requestCompleted(2_000_000);
+    metrics.bytesSent(10);
+    metrics.bytesReceived(20);
+    metrics.rowRead();
+    metrics.valueDecoded(500_000);
+
+    metrics.cacheAccessed(Metrics.Cache.ParsedSQL, true);
+    metrics.cacheAccessed(Metrics.Cache.ParsedSQL, true);
+    metrics.cacheAccessed(Metrics.Cache.ParsedSQL, true);
+    metrics.cacheAccessed(Metrics.Cache.ParsedSQL, false);
+    metrics.cacheAccessed(Metrics.Cache.Description, false);
+
+    metrics.connectionOpened();
+    metrics.connectionOpened();
+    metrics.connectionCheckedOut();
+
+    assertEquals(2, metrics.getRoundTrips());
+    assertEquals(10, metrics.getBytesSent());
+    assertEquals(20, metrics.getBytesReceived());
+    assertEquals(1, metrics.getRowsRead());
+    assertEquals(1, metrics.getValuesDecoded());
+    assertEquals(1.0, metrics.getQueuedTime(), 0.0001);
+    assertEquals(4.0, metrics.getWireTime(), 0.0001);
+    assertEquals(0.5, metrics.getDecodeTime(), 0.0001);
+    assertEquals(0.75, metrics.getParsedSQLCacheHitRatio(), 0.0001);
+    assertEquals(0.0, metrics.getDescriptionCacheHitRatio(), 0.0001);
+    assertEquals(0.0, metrics.getPreparedStatementCacheHitRatio(), 0.0001);
+    assertEquals(0.5, metrics.getPoolUtilization(), 0.0001);
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("com.impossibl.postgres:type=Metrics,name=" + ObjectName.quote("metrics-test-counters"));
+    assertEquals(2L, server.getAttribute(name, "RoundTrips"));
+
+    metrics.reset();
+    assertEquals(0, metrics.getRoundTrips());
+    assertEquals(0.0, metrics.getParsedSQLCacheHitRatio(), 0.0001);
+    assertEquals(2, metrics.getConnectionsOpen());
+  }
+
+}
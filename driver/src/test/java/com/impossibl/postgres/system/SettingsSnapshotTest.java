@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system;
+
+import static com.impossibl.postgres.jdbc.JDBCSettings.PARSED_SQL_CACHE_SIZE;
+import static com.impossibl.postgres.system.SystemSettings.FIELD_LENGTH_MAX;
+import static com.impossibl.postgres.system.SystemSettings.STANDARD_CONFORMING_STRINGS;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class SettingsSnapshotTest {
+
+  private static Configuration configurationOf(Settings settings) {
+    return new Configuration() {
+      @Override
+      public <T> T getSetting(Setting<T> setting) {
+        return settings.get(setting);
+      }
+    };
+  }
+
+  @Test
+  public void testSnapshotValues() {
+
+    Settings settings = new Settings();
+    settings.set(FIELD_LENGTH_MAX, 10);
+    settings.set(STANDARD_CONFORMING_STRINGS, true);
+
+    SettingsSnapshot snapshot = new SettingsSnapshot(configurationOf(settings));
+    assertEquals(Integer.valueOf(10), snapshot.fieldLengthMax);
+    assertEquals(Boolean.TRUE, snapshot.standardConformingStrings);
+    assertEquals((int) PARSED_SQL_CACHE_SIZE.getDefault(), snapshot.parsedSqlCacheSize);
+
+    settings.unset(FIELD_LENGTH_MAX);
+    assertNull(new SettingsSnapshot(configurationOf(settings)).fieldLengthMax);
+  }
+
+  @Test
+  public void testSnapshotInvalidValueFallsBackToDefault() {
+
+    Settings settings = new Settings();
+    settings.setText(PARSED_SQL_CACHE_SIZE, "not-a-number");
+
+    SettingsSnapshot snapshot = new SettingsSnapshot(configurationOf(settings));
+    assertEquals((int) PARSED_SQL_CACHE_SIZE.getDefault(), snapshot.parsedSqlCacheSize);
+  }
+
+  @Test
+  public void testModificationCount() {
+
+    Settings settings = new Settings();
+    int initial = settings.getModificationCount();
+
+    settings.set(FIELD_LENGTH_MAX, 10);
+    assertNotEquals(initial, settings.getModificationCount());
+
+    int afterSet = settings.getModificationCount();
+    settings.set("field.length.max", "20");
+    assertTrue(settings.getModificationCount() > afterSet);
+
+    int afterChange = settings.getModificationCount();
+    settings.set(FIELD_LENGTH_MAX, 20);
+    settings.unset(STANDARD_CONFORMING_STRINGS);
+    assertEquals(afterChange, settings.getModificationCount());
+  }
+
+  @Test
+  public void testSnapshotDerivedFromBase() {
+
+    Settings baseSettings = new Settings();
+    baseSettings.set(FIELD_LENGTH_MAX, 10);
+    baseSettings.set(STANDARD_CONFORMING_STRINGS, true);
+    SettingsSnapshot base = new SettingsSnapshot(configurationOf(baseSettings));
+
+    Settings overrides = new Settings();
+    overrides.set(FIELD_LENGTH_MAX, 20);
+
+    SettingsSnapshot snapshot = new SettingsSnapshot(base, configurationOf(overrides), overrides);
+    assertEquals(Integer.valueOf(20), snapshot.fieldLengthMax);
+    assertEquals(Boolean.TRUE, snapshot.standardConformingStrings);
+  }
+
+}
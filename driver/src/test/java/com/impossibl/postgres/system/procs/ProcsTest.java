@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.procs;
+
+import com.impossibl.postgres.system.ServerInfo;
+import com.impossibl.postgres.system.Version;
+import com.impossibl.postgres.types.Type.Codec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class ProcsTest {
+
+  @Test
+  public void testIndexedLookupsMatchProviderScan() {
+
+    ServerInfo serverInfo = new ServerInfo(Version.parse("10.0"), "UTF8", true);
+    Procs procs = new Procs(serverInfo, ProcsTest.class.getClassLoader());
+
+    List<ProcProvider> providers = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+    names.add("unknown_recv");
+    for (ProcProvider pp : ServiceLoader.load(ProcProvider.class, ProcsTest.class.getClassLoader())) {
+      providers.add(pp);
+      for (String baseName : ((BaseProcProvider) pp).baseNames) {
+        for (String suffix : new String[] {"recv", "send", "in", "out", "typmodin", "typmodout"}) {
+          names.add(baseName + suffix);
+        }
+      }
+    }
+
+    for (String name : names) {
+
+      Codec.Decoder<ByteBuf> binDecoder = Procs.DEFAULT_BINARY_DECODER;
+      Codec.Encoder<ByteBuf> binEncoder = Procs.DEFAULT_BINARY_ENCODER;
+      Codec.Decoder<CharSequence> txtDecoder = Procs.DEFAULT_TEXT_DECODER;
+      for (ProcProvider pp : providers) {
+        Codec.Decoder<ByteBuf> decoder = pp.findDecoder(name, serverInfo, ByteBuf.class);
+        if (decoder != null) {
+          binDecoder = decoder;
+          break;
+        }
+      }
+      for (ProcProvider pp : providers) {
+        Codec.Encoder<ByteBuf> encoder = pp.findEncoder(name, serverInfo, ByteBuf.class);
+        if (encoder != null) {
+          binEncoder = encoder;
+          break;
+        }
+      }
+      for (ProcProvider pp : providers) {
+        Codec.Decoder<CharSequence> decoder = pp.findDecoder(name, serverInfo, CharSequence.class);
+        if (decoder != null) {
+          txtDecoder = decoder;
+          break;
+        }
+      }
+
+      assertSame(name, binDecoder.getClass(), procs.loadDecoderProc(name, Procs.DEFAULT_BINARY_DECODER, ByteBuf.class).getClass());
+      assertSame(name, binEncoder.getClass(), procs.loadEncoderProc(name, Procs.DEFAULT_BINARY_ENCODER, ByteBuf.class).getClass());
+      assertSame(name, txtDecoder.getClass(), procs.loadDecoderProc(name, Procs.DEFAULT_TEXT_DECODER, CharSequence.class).getClass());
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.utils;
+
+import static com.impossibl.postgres.utils.ByteBufs.decodeString;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class StringCacheTest {
+
+  private static ByteBuf heapBuffer(String value) {
+    return Unpooled.wrappedBuffer(("xx" + value).getBytes(UTF_8));
+  }
+
+  private static ByteBuf directBuffer(String value) {
+    byte[] bytes = ("xx" + value).getBytes(UTF_8);
+    return Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+  }
+
+  @Test
+  public void testDecodeString() {
+
+    for (String value : new String[] {"", "ascii", "caf\u00e9", "\u65e5\u672c"}) {
+      int length = value.getBytes(UTF_8).length;
+
+      ByteBuf heap = heapBuffer(value);
+      ByteBuf direct = directBuffer(value);
+      try {
+        assertEquals(value, decodeString(heap, 2, length, UTF_8));
+        assertEquals(value, decodeString(direct, 2, length, UTF_8));
+      }
+      finally {
+        heap.release();
+        direct.release();
+      }
+    }
+
+    ByteBuf latin = Unpooled.wrappedBuffer("caf\u00e9".getBytes(ISO_8859_1));
+    try {
+      assertEquals("caf\u00e9", decodeString(latin, 0, 4, ISO_8859_1));
+    }
+    finally {
+      latin.release();
+    }
+  }
+
+  @Test
+  public void testDeduplicates() {
+
+    StringCache cache = new StringCache(8);
+
+    ByteBuf first = directBuffer("pending");
+    ByteBuf second = heapBuffer("pending");
+    ByteBuf other = heapBuffer("caf\u00e9");
+    try {
+      String value = cache.get(first, 2, 7, UTF_8);
+      assertEquals("pending", value);
+      assertSame(value, cache.get(second, 2, 7, UTF_8));
+
+      String otherValue = cache.get(other, 2, 5, UTF_8);
+      assertEquals("caf\u00e9", otherValue);
+      assertSame(otherValue, cache.get(other, 2, 5, UTF_8));
+    }
+    finally {
+      first.release();
+      second.release();
+      other.release();
+    }
+  }
+
+  @Test
+  public void testEviction() {
+
+    StringCache cache = new StringCache(4);
+
+    for (int c = 0; c < 100; ++c) {
+      String value = "value-" + c;
+      ByteBuf buffer = heapBuffer(value);
+      try {
+        assertEquals(value, cache.get(buffer, 2, value.length(), UTF_8));
+      }
+      finally {
+        buffer.release();
+      }
+    }
+  }
+
+  @Test
+  public void testLongValuesBypassCache() {
+
+    StringBuilder value = new StringBuilder();
+    for (int c = 0; c <= StringCache.MAX_VALUE_LENGTH; ++c) {
+      value.append('a');
+    }
+
+    StringCache cache = new StringCache();
+
+    ByteBuf buffer = heapBuffer(value.toString());
+    try {
+      String first = cache.get(buffer, 2, value.length(), UTF_8);
+      assertEquals(value.toString(), first);
+      assertNotSame(first, cache.get(buffer, 2, value.length(), UTF_8));
+    }
+    finally {
+      buffer.release();
+    }
+  }
+
+}
@@ -75,6 +75,9 @@ class SettingsProcessor : AbstractProcessor() {
   private val versionTypeName = ClassName.get(SYSTEM_PKG, "Version")
   private val strTxmsTypeName = ClassName.get("$PG_PKG.utils", "StringTransforms")
   private val dsTypeName = ClassName.get(JDBC_PKG, "AbstractDataSource")
+  private val configurationTypeName = ClassName.get(SYSTEM_PKG, "Configuration")
+  private val settingTypeName = ClassName.get(SYSTEM_PKG, "Setting")
+  private val settingsTypeName = ClassName.get(SYSTEM_PKG, "Settings")
 
   override fun init(processingEnv: ProcessingEnvironment) {
     synchronized(this) {
@@ -106,6 +109,8 @@ class SettingsProcessor : AbstractProcessor() {
 
     if (!generateDataSourceWithProperties(globalGroups, allSettings)) return false
 
+    if (!generateSettingsSnapshot(allSettings)) return false
+
     if (!generateSettingsDoc(globalGroups, allSettings)) return false
 
     return true
@@ -615,6 +620,126 @@ class SettingsProcessor : AbstractProcessor() {
     return true
   }
 
+  private fun generateSettingsSnapshot(settings: Set<SettingInfo>): Boolean {
+
+    val snapshotClassBldr = TypeSpec.classBuilder("SettingsSnapshot")
+       .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+       .addJavadoc("Immutable, typed snapshot of every known setting's value as seen\n")
+       .addJavadoc("by a {@link \$T}.\n\n", configurationTypeName)
+       .addJavadoc("Settings that have a static default value are stored as primitives,\n")
+       .addJavadoc("all others are stored as their declared type and may be {@code null}.\n")
+       .apply {
+         if (generatedAnn != null) {
+           addAnnotation(
+              AnnotationSpec.builder(ClassName.get(generatedAnn))
+                 .addMember("value", "{\$S, \$S}",
+                            SettingsProcessor::class.java.canonicalName,
+                            "PGJDBC-NG Settings Annotation Processor")
+                 .addMember("date", "\$S", DateTimeFormatter.ISO_DATE_TIME.format(LocalDateTime.now()))
+                 .addMember("comments", "\$S", "Generated from all Setting(s)")
+                 .build()
+           )
+         }
+       }
+
+    val initCode = CodeBlock.builder()
+    val overrideCode = CodeBlock.builder()
+
+    val addedNames = mutableSetOf<String>()
+    val addedFieldNames = mutableSetOf<String>()
+
+    for (setting in settings.sortedBy { it.name }) {
+
+      if (!addedNames.add(setting.name)) continue
+
+      val fieldName = setting.field.simpleName.toString().dashesFromSnakeCase().beanPropertyName
+      if (!addedFieldNames.add(fieldName)) {
+        messager.printMessage(Diagnostic.Kind.ERROR, "Duplicate Setting field name", setting.field)
+        return false
+      }
+
+      val owner = ClassName.get(setting.field.enclosingElement.asType())
+      val settingFieldName = setting.field.simpleName.toString()
+      val typeName = TypeName.get(setting.type)
+
+      val fieldTypeName =
+         if (setting.dynamicDefaultCode == null && setting.default != null && typeName.isBoxedPrimitive)
+           typeName.unbox()
+         else
+           typeName
+
+      snapshotClassBldr.addField(
+         FieldSpec.builder(fieldTypeName, fieldName, Modifier.PUBLIC, Modifier.FINAL)
+            .addJavadoc(setting.desc.escapePoet() + "\n\n")
+            .addJavadoc("@see \$T#\$L\n", owner, settingFieldName)
+            .build()
+      )
+
+      initCode.addStatement("this.\$L = value(config, \$T.\$L)", fieldName, owner, settingFieldName)
+      overrideCode.addStatement("this.\$L = overrides.hasStoredValue(\$T.\$L) ? value(config, \$T.\$L) : base.\$L",
+                                fieldName, owner, settingFieldName, owner, settingFieldName, fieldName)
+    }
+
+    snapshotClassBldr.addMethod(
+       MethodSpec.constructorBuilder()
+          .addJavadoc("Captures the current value of every known setting.\n\n")
+          .addJavadoc("@param config Configuration to read setting values from.\n")
+          .addModifiers(Modifier.PUBLIC)
+          .addParameter(configurationTypeName, "config")
+          .addCode(initCode.build())
+          .build()
+    )
+
+    snapshotClassBldr.addMethod(
+       MethodSpec.constructorBuilder()
+          .addJavadoc("Derives a snapshot from {@code base}, re-reading only the settings\n")
+          .addJavadoc("that have a value stored in {@code overrides}.\n\n")
+          .addJavadoc("@param base Snapshot supplying the value of every setting not overridden.\n")
+          .addJavadoc("@param config Configuration to read overridden setting values from.\n")
+          .addJavadoc("@param overrides Settings whose stored values override {@code base}.\n")
+          .addModifiers(Modifier.PUBLIC)
+          .addParameter(ClassName.get(SYSTEM_PKG, "SettingsSnapshot"), "base")
+          .addParameter(configurationTypeName, "config")
+          .addParameter(settingsTypeName, "overrides")
+          .addCode(overrideCode.build())
+          .build()
+    )
+
+    // Falling back to the default keeps one bad value from failing every
+    // snapshot of its context; the failure is still logged.
+    val loggerTypeName = ClassName.get("java.util.logging", "Logger")
+    snapshotClassBldr.addField(
+       FieldSpec.builder(loggerTypeName, "logger", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+          .initializer("\$T.getLogger(\$L.class.getName())", loggerTypeName, "SettingsSnapshot")
+          .build()
+    )
+
+    val typeVar = TypeVariableName.get("T")
+    snapshotClassBldr.addMethod(
+       MethodSpec.methodBuilder("value")
+          .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+          .addTypeVariable(typeVar)
+          .addParameter(configurationTypeName, "config")
+          .addParameter(ParameterizedTypeName.get(settingTypeName, typeVar), "setting")
+          .returns(typeVar)
+          .beginControlFlow("try")
+          .addStatement("return config.getSetting(setting)")
+          .nextControlFlow("catch (\$T e)", ClassName.get(RuntimeException::class.java))
+          .addStatement("logger.log(\$T.WARNING, \"Invalid value for setting '\" + setting.getName() + \"', using default\", e)",
+                        ClassName.get("java.util.logging", "Level"))
+          .addStatement("return setting.getDefault()")
+          .endControlFlow()
+          .build()
+    )
+
+    JavaFile.builder(SYSTEM_PKG, snapshotClassBldr.build())
+       .skipJavaLangImports(true)
+       .build()
+       .writeTo(filer)
+
+    return true
+  }
+
   private fun enumJavadoc(element: TypeElement): String {
 
     val valueFormatter: (String) -> String =
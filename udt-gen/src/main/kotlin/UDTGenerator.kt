@@ -1,5 +1,6 @@
 package com.impossibl.postgres.tools
 
+import com.impossibl.postgres.api.data.BinaryRecordData
 import com.impossibl.postgres.api.jdbc.PGAnyType
 import com.impossibl.postgres.api.jdbc.PGConnection
 import com.impossibl.postgres.api.jdbc.PGType
@@ -7,6 +8,7 @@ import com.impossibl.postgres.types.QualifiedName
 import com.squareup.javapoet.*
 import com.xenomachina.argparser.*
 import java.io.File
+import java.io.IOException
 import java.io.InputStream
 import java.io.Reader
 import java.sql.*
@@ -231,6 +233,7 @@ class UDTGenerator(
     val classBldr = TypeSpec.classBuilder(className)
        .addModifiers(Modifier.PUBLIC)
        .addSuperinterface(SQLData::class.java)
+       .addSuperinterface(BinaryRecordData::class.java)
        .addField(
           FieldSpec.builder(String::class.java, "TYPE_NAME")
              .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
@@ -303,6 +306,22 @@ class UDTGenerator(
        .addParameter(SQLOutput::class.java, "out")
        .addException(SQLException::class.java)
 
+    val readRecordBldr = MethodSpec.methodBuilder("readRecord")
+       .addAnnotation(Override::class.java)
+       .addModifiers(Modifier.PUBLIC)
+       .addParameter(BinaryRecordData.Reader::class.java, "in")
+       .addException(IOException::class.java)
+       .addCode("if (in.readAttributeCount() != \$L) {\$>\n", attributes.size)
+       .addCode("throw new \$T(\$S + TYPE_NAME);\$<\n", IOException::class.java, "Unexpected attribute count for ")
+       .addCode("}\n")
+
+    val writeRecordBldr = MethodSpec.methodBuilder("writeRecord")
+       .addAnnotation(Override::class.java)
+       .addModifiers(Modifier.PUBLIC)
+       .addParameter(BinaryRecordData.Writer::class.java, "out")
+       .addException(IOException::class.java)
+       .addStatement("out.writeAttributeCount(\$L)", attributes.size)
+
 
     for (attr in attributes) {
 
@@ -376,10 +395,31 @@ class UDTGenerator(
          }
       )
 
+      val attrSqlTypeName = attr.typeName.toString()
+
+      readRecordBldr.addCode(
+         if (typesInfo[attr.typeName] == TypeCategory.Enum)
+           CodeBlock.builder()
+              .addStatement("\$T \$LLabel = in.readAttribute(\$T.class)", String::class.java, attrPropName, String::class.java)
+              .addStatement("this.\$1L = \$1LLabel != null ? \$2T.valueOfLabel(\$1LLabel) : null", attrPropName, attrTypeName)
+              .build()
+         else
+           CodeBlock.of("this.\$L = in.readAttribute(\$T.class);\n", attrPropName, attrTypeName.box())
+      )
+
+      writeRecordBldr.addCode(
+         if (typesInfo[attr.typeName] == TypeCategory.Enum)
+           CodeBlock.of("out.writeAttribute(\$S, this.\$L != null ? this.\$L.getLabel() : null);\n", attrSqlTypeName, attrPropName, attrPropName)
+         else
+           CodeBlock.of("out.writeAttribute(\$S, this.\$L);\n", attrSqlTypeName, attrPropName)
+      )
+
     }
 
     classBldr.addMethod(readSQLBldr.build())
     classBldr.addMethod(writeSQLBldr.build())
+    classBldr.addMethod(readRecordBldr.build())
+    classBldr.addMethod(writeRecordBldr.build())
 
     return classBldr.build()
   }